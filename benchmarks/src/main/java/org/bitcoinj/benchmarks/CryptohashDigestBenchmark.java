@@ -0,0 +1,76 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bitcoinj.benchmarks;
+
+import fr.cryptohash.Digest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures each of the thirteen 512 bit {@code fr.cryptohash} engines making up X13 in isolation, the way the X13
+ * chain drives them: one reused engine, a 64 byte input (80 bytes for the first stage) and a caller supplied output
+ * buffer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CryptohashDigestBenchmark {
+    @Param({"BLAKE512", "BMW512", "Groestl512", "Skein512", "JH512", "Keccak512", "Luffa512", "CubeHash512",
+            "SHAvite512", "SIMD512", "SIMD512X13", "ECHO512", "Hamsi512", "Fugue512"})
+    public String engine;
+
+    @Param({"64", "80"})
+    public int inputLength;
+
+    private Digest digest;
+    private byte[] input;
+    private final byte[] output = new byte[64];
+
+    @Setup
+    public void setUp() throws Exception {
+        digest = (Digest) Class.forName("fr.cryptohash." + engine).getConstructor().newInstance();
+        input = new byte[inputLength];
+        new Random(42).nextBytes(input);
+    }
+
+    @Benchmark
+    public byte[] digest() {
+        digest.update(input, 0, input.length);
+        digest.digest(output, 0, output.length);
+        return output;
+    }
+
+    /** The same digest with a freshly allocated engine and output, as the X13 chain used to do for every header. */
+    @Benchmark
+    public byte[] digestAllocating() throws Exception {
+        Digest fresh = (Digest) Class.forName("fr.cryptohash." + engine).getConstructor().newInstance();
+        return fresh.digest(input);
+    }
+}
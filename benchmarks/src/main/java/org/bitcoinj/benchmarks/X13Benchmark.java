@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bitcoinj.benchmarks;
+
+import org.bitcoinj.core.Block;
+import org.bitcoinj.crypto.X13;
+import org.bitcoinj.crypto.X13Hasher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the full X13 chain over an 80 byte block header. {@link #x13Digest()} goes through {@link X13}, so it runs
+ * the native library if it could be loaded (pass {@code -PnativeLibPath=...} to the {@code jmh} task) and the pure
+ * Java chain otherwise; comparing it with {@link #javaChain()} gives the native-vs-Java speedup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class X13Benchmark {
+    private static final Logger log = LoggerFactory.getLogger(X13Benchmark.class);
+
+    private final byte[] header = new byte[Block.HEADER_SIZE];
+    private final byte[] output = new byte[X13Hasher.HASH_LENGTH];
+    private X13Hasher hasher;
+
+    @Setup
+    public void setUp() {
+        new Random(42).nextBytes(header);
+        hasher = new X13Hasher();
+        if (!X13.isNativeLibraryLoaded())
+            log.warn("Native x13 library not loaded, x13Digest measures the pure Java chain");
+    }
+
+    /** The pure Java chain, reusing one set of engines. */
+    @Benchmark
+    public byte[] javaChain() {
+        hasher.digest(header, 0, header.length, output, 0);
+        return output;
+    }
+
+    /** The pure Java chain, building new engines for every hash. */
+    @Benchmark
+    public byte[] javaChainAllocating() {
+        return new X13Hasher().digest(header, 0, header.length);
+    }
+
+    /** Whatever {@link X13} selected at startup, native if available. */
+    @Benchmark
+    public byte[] x13Digest() {
+        return X13.x13Digest(header);
+    }
+}
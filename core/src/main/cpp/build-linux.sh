@@ -0,0 +1,10 @@
+# Builds libx13.so for the current platform. To bundle it in the jar, copy it to
+# core/src/main/resources/org/bitcoinj/crypto/native/linux-<os.arch>/, e.g. linux-amd64.
+set -e
+JAVA_HOME=${JAVA_HOME:-$(dirname $(dirname $(readlink -f $(which javac))))}
+OBJDIR=$(mktemp -d)
+for f in aes_helper blake echo hamsi jh shavite bmw fugue keccak simd cubehash hamsi_helper luffa skein groestl; do
+    gcc -O2 -fPIC -I"." -c $f.c -o $OBJDIR/$f.o
+done
+g++ -O2 -fPIC -shared -I"$JAVA_HOME/include" -I"$JAVA_HOME/include/linux" -I"." -o libx13.so hashblock.cpp $OBJDIR/*.o
+rm -rf $OBJDIR
@@ -4,6 +4,7 @@
 
 #include "hashblock.h"
 #include <inttypes.h>
+#include <string.h>
 
 #include <jni.h>
 
@@ -27,8 +28,46 @@ jbyteArray JNICALL hash13_native(JNIEnv *env, jclass cls, jbyteArray header)
     return DK;
 }
 
+/*
+ * Hashes count inputs of length bytes each, found in input at offset, offset + stride, ... and writes the 32 byte
+ * hashes back to back into output. Hashing many block headers per call amortizes the cost of crossing JNI. Returns
+ * the number of hashes written, or -1 if the arguments are out of range.
+ */
+jint JNICALL hash13_native_batch(JNIEnv *env, jclass cls, jbyteArray input, jint offset, jint length, jint stride,
+                                 jint count, jbyteArray output)
+{
+    jint inLen = (env)->GetArrayLength(input);
+    jint outLen = (env)->GetArrayLength(output);
+    if (offset < 0 || length < 0 || stride < length || count < 0 || (jlong) count * 32 > outLen ||
+            (count > 0 && (jlong) offset + (jlong) (count - 1) * stride + length > inLen))
+        return -1;
+
+    // Hash into a local buffer so the critical sections stay short and nothing calls back into the JVM.
+    jbyte *in = (jbyte *) (env)->GetPrimitiveArrayCritical(input, NULL);
+    if (!in)
+        return -1;
+    uint256 *results = new uint256[count > 0 ? count : 1];
+    for (jint i = 0; i < count; i++) {
+        const jbyte *begin = in + offset + (jlong) i * stride;
+        results[i] = Hash9(begin, begin + length);
+    }
+    (env)->ReleasePrimitiveArrayCritical(input, in, JNI_ABORT);
+
+    jbyte *out = (jbyte *) (env)->GetPrimitiveArrayCritical(output, NULL);
+    if (!out) {
+        delete[] results;
+        return -1;
+    }
+    for (jint i = 0; i < count; i++)
+        memcpy(out + i * 32, results[i].begin(), 32);
+    (env)->ReleasePrimitiveArrayCritical(output, out, 0);
+    delete[] results;
+    return count;
+}
+
 static const JNINativeMethod methods[] = {
-        {"x13_native", "([B)[B", (void *) hash13_native}
+        {"x13_native", "([B)[B", (void *) hash13_native},
+        {"x13_native_batch", "([BIIII[B)I", (void *) hash13_native_batch}
 };
 
 jint JNI_OnLoad(JavaVM *vm, void *reserved) {
@@ -38,8 +77,11 @@ jint JNI_OnLoad(JavaVM *vm, void *reserved) {
         return -1;
     }
 
-    jclass cls = (env)->FindClass("org/deeponion/deeponionj/crypto/X13");
-    int r = (env)->RegisterNatives(cls, methods, 1);
+    jclass cls = (env)->FindClass("org/bitcoinj/crypto/X13");
+    if (cls == NULL) {
+        return -1;
+    }
+    int r = (env)->RegisterNatives(cls, methods, sizeof(methods) / sizeof(methods[0]));
 
     return (r == JNI_OK) ? JNI_VERSION_1_6 : -1;
 }
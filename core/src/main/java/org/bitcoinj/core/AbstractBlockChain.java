@@ -123,6 +123,9 @@ public abstract class AbstractBlockChain {
     // Holds blocks that we have received but can't plug into the chain yet, eg because they were created whilst we
     // were downloading the block chain.
     private final LinkedHashMap<Sha256Hash, OrphanBlock> orphanBlocks = new LinkedHashMap<>();
+    // Headers that storeHeader() put into the block store ahead of their blocks, so that connecting the blocks later
+    // doesn't store them a second time. Concurrent so that it can be cleared without the lock.
+    private final ConcurrentHashMap<Sha256Hash, StoredBlock> storedHeaders = new ConcurrentHashMap<>();
 
     /** False positive estimation uses a double exponential moving average. */
     public static final double FP_ESTIMATOR_ALPHA = 0.0001;
@@ -494,6 +497,34 @@ public abstract class AbstractBlockChain {
         }
     }
 
+    /**
+     * Verifies the proof of work and difficulty of a header following {@code storedPrev} and puts it into the block
+     * store, without connecting it to the chain: the chain head doesn't move and no listeners are told. Used by
+     * headers-first chain download, which adds the blocks themselves later on, and calls
+     * {@link #forgetStoredHeaders()} when it's done.
+     */
+    StoredBlock storeHeader(StoredBlock storedPrev, Block header) throws VerificationException, BlockStoreException {
+        lock.lock();
+        try {
+            header.verifyHeader();
+            params.checkDifficultyTransitions(storedPrev, header, blockStore);
+            if (!params.passesCheckpoint(storedPrev.getHeight() + 1, header.getHash()))
+                throw new VerificationException("Block failed checkpoint lockin at " + (storedPrev.getHeight() + 1));
+            StoredBlock stored = addToBlockStore(storedPrev, header);
+            // A fully verifying chain stores undo data with the block, so it has to put the block itself.
+            if (!shouldVerifyTransactions())
+                storedHeaders.put(stored.getHeader().getHash(), stored);
+            return stored;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Forgets about the headers stored by {@link #storeHeader(StoredBlock, Block)} whose blocks weren't added. */
+    void forgetStoredHeaders() {
+        storedHeaders.clear();
+    }
+
     // expensiveChecks enables checks that require looking at blocks further back in the chain
     // than the previous one when connecting (eg median timestamp check)
     // It could be exposed, but for now we just set it to shouldVerifyTransactions()
@@ -538,8 +569,10 @@ public abstract class AbstractBlockChain {
             TransactionOutputChanges txOutChanges = null;
             if (shouldVerifyTransactions())
                 txOutChanges = connectTransactions(storedPrev.getHeight() + 1, block);
-            StoredBlock newStoredBlock = addToBlockStore(storedPrev,
-                    block.getTransactions() == null ? block : block.cloneAsHeader(), txOutChanges);
+            StoredBlock newStoredBlock = txOutChanges == null ? storedHeaders.remove(block.getHash()) : null;
+            if (newStoredBlock == null)
+                newStoredBlock = addToBlockStore(storedPrev,
+                        block.getTransactions() == null ? block : block.cloneAsHeader(), txOutChanges);
             versionTally.add(block.getVersion());
             setChainHead(newStoredBlock);
             if (log.isDebugEnabled())
@@ -697,11 +730,11 @@ public abstract class AbstractBlockChain {
     private static long getMedianTimestampOfRecentBlocks(StoredBlock storedBlock,
                                                          BlockStore store) throws BlockStoreException {
         long[] timestamps = new long[11];
-        int unused = 9;
-        timestamps[10] = storedBlock.getHeader().getTimeSeconds();
-        while (unused >= 0 && (storedBlock = storedBlock.getPrev(store)) != null)
-            timestamps[unused--] = storedBlock.getHeader().getTimeSeconds();
-        
+        List<StoredBlock> recent = storedBlock.getRecent(store, 11);
+        int unused = 10 - recent.size();
+        for (int i = 0; i < recent.size(); i++)
+            timestamps[unused + 1 + i] = recent.get(i).getHeader().getTimeSeconds();
+
         Arrays.sort(timestamps, unused+1, 11);
         return timestamps[unused + (11-unused)/2];
     }
@@ -25,6 +25,7 @@ import java.io.OutputStream;
 import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -169,10 +170,34 @@ public class BitcoinSerializer extends MessageSerializer {
     public Message deserializePayload(BitcoinPacketHeader header, ByteBuffer in) throws ProtocolException, BufferUnderflowException {
         byte[] payloadBytes = new byte[header.size];
         in.get(payloadBytes, 0, header.size);
+        return parsePayload(header, payloadBytes);
+    }
+
+    /**
+     * Deserialize a payload held in the first {@code header.size} bytes of the given array, which may be longer. Unless
+     * the serializer retains payloads, blocks are parsed straight from the array, which is no longer referenced once
+     * the block has been parsed. All other payloads are copied out first, as their parsers expect the array to end
+     * with the message. A block that only parses by reading past its message is rejected, as it read whatever the
+     * array held after it.
+     */
+    @Override
+    public Message deserializePayload(BitcoinPacketHeader header, byte[] payload) throws ProtocolException, BufferUnderflowException {
+        if (header.size > payload.length)
+            throw new BufferUnderflowException();
+        if (parseRetain || !header.command.equals("block"))
+            return parsePayload(header, Arrays.copyOf(payload, header.size));
+        Message block = parsePayload(header, payload);
+        if (block.getMessageSize() > header.size)
+            throw new ProtocolException("Block of " + block.getMessageSize() + " bytes is longer than its message of "
+                    + header.size + " bytes");
+        return block;
+    }
 
+    // Parses the first header.size bytes of payloadBytes, which must be exactly that long unless it holds a block.
+    private Message parsePayload(BitcoinPacketHeader header, byte[] payloadBytes) throws ProtocolException {
         // Verify the checksum.
         byte[] hash;
-        hash = Sha256Hash.hashTwice(payloadBytes);
+        hash = Sha256Hash.hashTwice(payloadBytes, 0, header.size);
         if (header.checksum[0] != hash[0] || header.checksum[1] != hash[1] ||
                 header.checksum[2] != hash[2] || header.checksum[3] != hash[3]) {
             throw new ProtocolException("Checksum failed to verify, actual " +
@@ -182,13 +207,13 @@ public class BitcoinSerializer extends MessageSerializer {
 
         if (log.isDebugEnabled()) {
             log.debug("Received {} byte '{}' message: {}", header.size, header.command,
-                    HEX.encode(payloadBytes));
+                    HEX.encode(payloadBytes, 0, header.size));
         }
 
         try {
             return makeMessage(header.command, header.size, payloadBytes, hash, header.checksum);
         } catch (Exception e) {
-            throw new ProtocolException("Error deserializing message " + HEX.encode(payloadBytes) + "\n", e);
+            throw new ProtocolException("Error deserializing message " + HEX.encode(payloadBytes, 0, header.size) + "\n", e);
         }
     }
 
@@ -104,7 +104,10 @@ public class Block extends Message {
     @VisibleForTesting
     @Nullable List<Transaction> transactions;
 
-    /** Stores the hash of the block. If null, getHash() will recalculate it. */
+    /**
+     * Stores the hash of the block. If null, getHash() will recalculate it. Parsing leaves this null, so blocks that
+     * are deserialized but never asked for their hash don't pay for X13.
+     */
     private Sha256Hash hash;
 
     protected boolean headerBytesValid;
@@ -232,7 +235,8 @@ public class Block extends Message {
     protected void parseTransactions(final int transactionsOffset) throws ProtocolException {
         cursor = transactionsOffset;
         optimalEncodingMessageSize = HEADER_SIZE;
-        if (payload.length == cursor) {
+        // The payload may be longer than the block if it came from a PayloadBufferPool, in which case we know the length.
+        if (payload.length == cursor || (length != UNKNOWN_LENGTH && offset + length == cursor)) {
             // This message is just a header, it has no transactions.
             transactionBytesValid = false;
             return;
@@ -262,7 +266,8 @@ public class Block extends Message {
         time = readUint32();
         difficultyTarget = readUint32();
         nonce = readUint32();
-        hash = Sha256Hash.wrapReversed(X13.x13Digest(payload, offset, cursor - offset));
+        // The X13 hash is computed on demand by getHash(), so that batches of headers can be hashed in parallel by
+        // BlockHeaderHasher rather than serially here on the network thread.
         headerBytesValid = serializer.isParseRetainMode();
 
         // transactions
@@ -293,6 +298,21 @@ public class Block extends Message {
         Utils.uint32ToByteStreamLE(nonce, stream);
     }
 
+    /** Copies the 80 byte header into {@code buf} at {@code off}, straight from the cached payload if possible. */
+    void copyHeaderTo(byte[] buf, int off) {
+        if (headerBytesValid && payload != null && payload.length >= offset + HEADER_SIZE) {
+            System.arraycopy(payload, offset, buf, off, HEADER_SIZE);
+            return;
+        }
+        try {
+            ByteArrayOutputStream bos = new UnsafeByteArrayOutputStream(HEADER_SIZE);
+            writeHeader(bos);
+            System.arraycopy(bos.toByteArray(), 0, buf, off, HEADER_SIZE);
+        } catch (IOException e) {
+            throw new RuntimeException(e); // Cannot happen.
+        }
+    }
+
     private void writeTransactions(OutputStream stream) throws IOException {
         // check for no transaction conditions first
         // must be a more efficient way to do this but I'm tired atm.
@@ -402,10 +422,13 @@ public class Block extends Message {
      * resulting bytes.
      */
     private Sha256Hash calculateHash() {
+        // Hash straight out of the cached payload if we still have it, avoiding a re-serialization.
+        if (headerBytesValid && payload != null && payload.length >= offset + HEADER_SIZE)
+            return Sha256Hash.wrap(X13.x13DigestReversed(payload, offset, HEADER_SIZE));
         try {
             ByteArrayOutputStream bos = new UnsafeByteArrayOutputStream(HEADER_SIZE);
             writeHeader(bos);
-            return Sha256Hash.wrapReversed(X13.x13Digest(bos.toByteArray()));
+            return Sha256Hash.wrap(X13.x13DigestReversed(bos.toByteArray(), 0, HEADER_SIZE));
         } catch (IOException e) {
             throw new RuntimeException(e); // Cannot happen.
         }
@@ -431,6 +454,15 @@ public class Block extends Message {
         return hash;
     }
 
+    /**
+     * Attaches a hash that is already known to belong to this header, for example because it was read from a block
+     * store that keys its records by hash, so that {@link #getHash()} does not need to run X13 again. The caller is
+     * responsible for the hash being correct; it is dropped like any other cached hash if the header is modified.
+     */
+    void setTrustedHash(Sha256Hash hash) {
+        this.hash = hash;
+    }
+
     /**
      * The number that is one greater than the largest representable SHA-256
      * hash.
@@ -466,7 +498,8 @@ public class Block extends Message {
         block.time = time;
         block.difficultyTarget = difficultyTarget;
         block.transactions = null;
-        block.hash = getHash();
+        // Share the memoized hash if we have one, otherwise leave the clone to compute it on demand.
+        block.hash = hash;
     }
 
     /**
@@ -0,0 +1,101 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bitcoinj.core;
+
+import org.bitcoinj.crypto.X13;
+import org.bitcoinj.utils.Threading;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <p>Computes the X13 hashes of a batch of blocks in parallel. X13 is expensive enough that hashing the 2000 headers
+ * of a full {@link HeadersMessage} on the network thread dominates header download, so this fans the work out over
+ * {@link Threading#HASHING_POOL} and only returns once every block in the batch has its hash memoized. Callers can
+ * then feed the blocks into {@link AbstractBlockChain#add(Block)} in their original order without any further
+ * hashing.</p>
+ *
+ * <p>When the native x13 library supports it, each worker hashes its share of the batch with a single JNI call.</p>
+ *
+ * <p>Each block is hashed by exactly one worker and the calling thread waits for all of them, so the usual rule that
+ * {@link Block} is not safe for use by multiple threads is respected.</p>
+ */
+public final class BlockHeaderHasher {
+    /** Batches smaller than this are hashed on the calling thread, as forking would cost more than it saves. */
+    public static final int SEQUENTIAL_THRESHOLD = 32;
+
+    private BlockHeaderHasher() {
+    }
+
+    /** Hashes all given blocks using {@link Threading#HASHING_POOL}. */
+    public static void hashAll(List<? extends Block> blocks) {
+        hashAll(blocks, Threading.HASHING_POOL);
+    }
+
+    /** Hashes all given blocks using the given pool. Returns when every block has its hash computed. */
+    public static void hashAll(List<? extends Block> blocks, ForkJoinPool pool) {
+        if (blocks.size() <= SEQUENTIAL_THRESHOLD || pool.getParallelism() <= 1) {
+            hashRange(blocks, 0, blocks.size());
+            return;
+        }
+        pool.invoke(new HashTask(blocks, 0, blocks.size()));
+    }
+
+    private static void hashRange(List<? extends Block> blocks, int from, int to) {
+        if (X13.isNativeBatchAvailable() && to - from > 1) {
+            hashRangeBatch(blocks, from, to);
+            return;
+        }
+        for (int i = from; i < to; i++)
+            blocks.get(i).getHash();
+    }
+
+    /** Packs the headers into one buffer so the native library can hash them with a single JNI call. */
+    private static void hashRangeBatch(List<? extends Block> blocks, int from, int to) {
+        int count = to - from;
+        byte[] headers = new byte[count * Block.HEADER_SIZE];
+        for (int i = 0; i < count; i++)
+            blocks.get(from + i).copyHeaderTo(headers, i * Block.HEADER_SIZE);
+        byte[] hashes = new byte[count * Sha256Hash.LENGTH];
+        X13.x13DigestBatch(headers, 0, Block.HEADER_SIZE, Block.HEADER_SIZE, count, hashes, true);
+        for (int i = 0; i < count; i++) {
+            byte[] hash = Arrays.copyOfRange(hashes, i * Sha256Hash.LENGTH, (i + 1) * Sha256Hash.LENGTH);
+            blocks.get(from + i).setTrustedHash(Sha256Hash.wrap(hash));
+        }
+    }
+
+    private static class HashTask extends RecursiveAction {
+        private final List<? extends Block> blocks;
+        private final int from, to;
+
+        HashTask(List<? extends Block> blocks, int from, int to) {
+            this.blocks = blocks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                hashRange(blocks, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new HashTask(blocks, from, mid), new HashTask(blocks, mid, to));
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bitcoinj.core;
+
+import net.jcip.annotations.GuardedBy;
+import org.bitcoinj.core.TransactionConfidence.ConfidenceType;
+import org.bitcoinj.wallet.Wallet;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p>Counts the blocks added to the best chain, so that the depth of a {@link TransactionConfidence} attached to it
+ * can be derived from the count instead of being incremented on every block. A {@link Wallet} owns one and
+ * attaches the confidences of its transactions, so a new block costs the same no matter how many transactions the
+ * wallet has.</p>
+ *
+ * <p>Work that is to be done once a transaction is buried deep enough, like running the listeners of a
+ * {@link TransactionConfidence#getDepthFuture(int)}, is queued with {@link #runAtDepth(TransactionConfidence, int,
+ * Runnable)} and kept in order of the block it is due at, so each block only looks at the work that is due.
+ * The actions are run outside of the lock of the tracker, on the thread calling {@link #addBlock()}.
+ * Instances are thread safe.</p>
+ */
+public class DepthTracker {
+    @GuardedBy("this") private int blockCount;
+    @GuardedBy("this") private final PriorityQueue<Task> tasks = new PriorityQueue<>();
+
+    private static final class Task implements Comparable<Task> {
+        final int dueCount;
+        final TransactionConfidence confidence;
+        final int depth;
+        final Runnable action;
+        @Nullable final Runnable dropped;
+
+        Task(int dueCount, TransactionConfidence confidence, int depth, Runnable action, @Nullable Runnable dropped) {
+            this.dueCount = dueCount;
+            this.confidence = confidence;
+            this.depth = depth;
+            this.action = action;
+            this.dropped = dropped;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            return Integer.compare(dueCount, other.dueCount);
+        }
+    }
+
+    /** Returns the number of blocks added so far. Depths are relative to it, so the absolute value has no meaning. */
+    public synchronized int getBlockCount() {
+        return blockCount;
+    }
+
+    /** Called when a block is added to the top of the best chain. Runs the actions that became due. */
+    public void addBlock() {
+        List<Task> due = new ArrayList<>();
+        int count;
+        synchronized (this) {
+            count = ++blockCount;
+            while (!tasks.isEmpty() && tasks.peek().dueCount <= count)
+                due.add(tasks.poll());
+        }
+        for (Task task : due) {
+            // The depth may have been reset in the meantime, e.g. by a re-org, so check before running.
+            if (task.confidence.getConfidenceType() != ConfidenceType.BUILDING) {
+                if (task.dropped != null)
+                    task.dropped.run();
+                continue;
+            }
+            int depth = task.confidence.getDepthInBlocks();
+            if (depth >= task.depth) {
+                task.action.run();
+            } else {
+                synchronized (this) {
+                    tasks.add(new Task(blockCount + task.depth - depth, task.confidence, task.depth, task.action,
+                            task.dropped));
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the given action once the given confidence is {@link ConfidenceType#BUILDING} at the given depth or
+     * deeper. If the confidence isn't building when that is checked, the action is dropped. The check happens as
+     * blocks are added, so an action for a depth that was already reached runs with the next block.
+     */
+    public void runAtDepth(TransactionConfidence confidence, int depth, Runnable action) {
+        runAtDepth(confidence, depth, action, null);
+    }
+
+    /**
+     * Like {@link #runAtDepth(TransactionConfidence, int, Runnable)}, but runs {@code dropped} instead of the action
+     * if it is dropped, so that whoever queued it can tell it is no longer queued.
+     */
+    public void runAtDepth(TransactionConfidence confidence, int depth, Runnable action, @Nullable Runnable dropped) {
+        checkNotNull(action);
+        int currentDepth = confidence.getDepthInBlocks();
+        synchronized (this) {
+            tasks.add(new Task(blockCount + Math.max(1, depth - currentDepth), confidence, depth, action, dropped));
+        }
+    }
+
+    /** Returns the number of queued actions. */
+    public synchronized int getPendingActionCount() {
+        return tasks.size();
+    }
+}
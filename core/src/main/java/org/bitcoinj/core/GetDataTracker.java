@@ -0,0 +1,211 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bitcoinj.core;
+
+import com.google.common.util.concurrent.SettableFuture;
+import net.jcip.annotations.GuardedBy;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Keeps track of the data a {@link Peer} asked for with getdata messages, indexed by hash, so that looking up the
+ * request for a received transaction or block is constant time no matter how many are outstanding. Requests that
+ * aren't answered in time fail with a {@link TimeoutException}; the check for that happens as requests are added and
+ * answered, so no timer is needed.
+ *
+ * <p>If given a {@link PeerPerformance}, the time it took to answer each request is recorded there, and a timeout
+ * counts as a stall.</p>
+ *
+ * <p>The futures are completed outside of the lock, as their listeners may well make new requests.</p>
+ */
+final class GetDataTracker {
+    private final long timeoutMillis;
+    @Nullable private final PeerPerformance performance;
+
+    @GuardedBy("this") private final Map<Sha256Hash, List<Request>> byHash = new HashMap<>();
+    // All requests in the order they were made, which is also the order they time out in. Answered requests are only
+    // dropped once they get to the front.
+    @GuardedBy("this") private final ArrayDeque<Request> byAge = new ArrayDeque<>();
+
+    private static final class Request {
+        final Sha256Hash hash;
+        final SettableFuture future;
+        final long createdMillis;
+        final long deadlineMillis;
+        boolean done;
+
+        Request(Sha256Hash hash, SettableFuture future, long createdMillis, long deadlineMillis) {
+            this.hash = hash;
+            this.future = future;
+            this.createdMillis = createdMillis;
+            this.deadlineMillis = deadlineMillis;
+        }
+    }
+
+    GetDataTracker(long timeoutMillis) {
+        this(timeoutMillis, null);
+    }
+
+    GetDataTracker(long timeoutMillis, @Nullable PeerPerformance performance) {
+        this.timeoutMillis = timeoutMillis;
+        this.performance = performance;
+    }
+
+    /** Registers a request for the given hash, to be completed when the data or a notfound for it arrives. */
+    void add(Sha256Hash hash, SettableFuture future) {
+        List<Request> expired;
+        synchronized (this) {
+            long now = Utils.currentTimeMillis();
+            Request request = new Request(hash, future, now, now + timeoutMillis);
+            List<Request> requests = byHash.get(hash);
+            if (requests == null) {
+                requests = new ArrayList<>(1);
+                byHash.put(hash, requests);
+            }
+            requests.add(request);
+            byAge.add(request);
+            expired = removeExpired();
+        }
+        failExpired(expired);
+    }
+
+    /**
+     * Completes all requests for the hash of the given message with it. Returns false if there were none, i.e. the
+     * message wasn't asked for through this tracker.
+     */
+    @SuppressWarnings("unchecked")
+    boolean complete(Message m) {
+        List<Request> requests;
+        List<Request> expired;
+        synchronized (this) {
+            requests = remove(m.getHash());
+            expired = removeExpired();
+        }
+        failExpired(expired);
+        if (requests == null)
+            return false;
+        if (performance != null) {
+            long now = Utils.currentTimeMillis();
+            for (Request request : requests)
+                performance.recordGetDataLatency(now - request.createdMillis);
+        }
+        for (Request request : requests)
+            request.future.set(m);
+        return true;
+    }
+
+    /**
+     * Cancels all requests for the given hashes, which the peer told us it doesn't have. Returns the hashes for which
+     * there were requests.
+     */
+    List<Sha256Hash> cancel(Collection<Sha256Hash> hashes) {
+        List<Request> cancelled = new ArrayList<>();
+        List<Sha256Hash> found = new ArrayList<>();
+        synchronized (this) {
+            for (Sha256Hash hash : hashes) {
+                List<Request> requests = remove(hash);
+                if (requests != null) {
+                    cancelled.addAll(requests);
+                    found.add(hash);
+                }
+            }
+        }
+        for (Request request : cancelled)
+            request.future.cancel(true);
+        return found;
+    }
+
+    /** Fails all outstanding requests with the given exception, e.g. because the connection closed. */
+    void failAll(Throwable t) {
+        List<Request> requests;
+        synchronized (this) {
+            requests = new ArrayList<>();
+            for (Request request : byAge) {
+                if (!request.done)
+                    requests.add(request);
+            }
+            byHash.clear();
+            byAge.clear();
+        }
+        for (Request request : requests)
+            request.future.setException(t);
+    }
+
+    /** Fails the requests that timed out. This also happens as requests come and go. */
+    void expire() {
+        List<Request> expired;
+        synchronized (this) {
+            expired = removeExpired();
+        }
+        failExpired(expired);
+    }
+
+    /** Returns the number of outstanding requests. */
+    synchronized int size() {
+        int size = 0;
+        for (List<Request> requests : byHash.values())
+            size += requests.size();
+        return size;
+    }
+
+    @GuardedBy("this") @Nullable
+    private List<Request> remove(Sha256Hash hash) {
+        List<Request> requests = byHash.remove(hash);
+        if (requests != null) {
+            for (Request request : requests)
+                request.done = true;
+        }
+        return requests;
+    }
+
+    @GuardedBy("this") @Nullable
+    private List<Request> removeExpired() {
+        List<Request> expired = null;
+        long now = Utils.currentTimeMillis();
+        while (!byAge.isEmpty()) {
+            Request oldest = byAge.peekFirst();
+            if (!oldest.done) {
+                if (oldest.deadlineMillis > now)
+                    break;
+                List<Request> requests = byHash.get(oldest.hash);
+                requests.remove(oldest);
+                if (requests.isEmpty())
+                    byHash.remove(oldest.hash);
+                oldest.done = true;
+                if (expired == null)
+                    expired = new ArrayList<>();
+                expired.add(oldest);
+            }
+            byAge.pollFirst();
+        }
+        return expired;
+    }
+
+    private void failExpired(@Nullable List<Request> expired) {
+        if (expired == null)
+            return;
+        if (performance != null)
+            performance.recordStall();
+        for (Request request : expired)
+            request.future.setException(new TimeoutException("No answer to getdata for " + request.hash));
+    }
+}
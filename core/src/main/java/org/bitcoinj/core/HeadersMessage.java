@@ -60,6 +60,8 @@ public class HeadersMessage extends Message {
         stream.write(new VarInt(blockHeaders.size()).encode());
         for (Block header : blockHeaders) {
             header.cloneAsHeader().bitcoinSerializeToStream(stream);
+            // Empty transaction count and empty block signature, as parse() expects.
+            stream.write(0);
             stream.write(0);
         }
     }
@@ -46,6 +46,14 @@ public abstract class MessageSerializer {
      */
     public abstract Message deserializePayload(BitcoinSerializer.BitcoinPacketHeader header, ByteBuffer in) throws ProtocolException, BufferUnderflowException, UnsupportedOperationException;
 
+    /**
+     * Deserialize a payload held in the first {@code header.size} bytes of the given array, which may be longer. The
+     * array is not referenced by the returned message, so the caller may reuse it afterwards.
+     */
+    public Message deserializePayload(BitcoinSerializer.BitcoinPacketHeader header, byte[] payload) throws ProtocolException, BufferUnderflowException, UnsupportedOperationException {
+        return deserializePayload(header, ByteBuffer.wrap(payload, 0, header.size));
+    }
+
     /**
      * Whether the serializer will produce cached mode Messages
      */
@@ -0,0 +1,622 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bitcoinj.core;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningScheduledExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import org.bitcoinj.core.listeners.PeerDataEventListener;
+import org.bitcoinj.store.BlockStoreException;
+import org.bitcoinj.utils.Threading;
+import org.bitcoinj.wallet.Wallet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Downloads the block chain from several peers at once, for {@link PeerGroup#setMaxDownloadPeers(int)}. The headers
+ * following the chain head are fetched from one peer, then the blocks are requested in short consecutive ranges spread
+ * over all peers, with a few ranges in flight per peer. Blocks are added to the chain strictly in order, those that
+ * arrive ahead of their turn are buffered. Blocks are only requested up to {@link #WINDOW_SIZE} ahead of the next one
+ * to add, which bounds the buffer.</p>
+ *
+ * <p>A range that isn't delivered in time is handed to another peer, and the slow peer gets no new ranges for a while.
+ * The same happens to the ranges of a peer that disconnects or doesn't have the blocks. Whichever copy of a block
+ * arrives first is used.</p>
+ *
+ * <p>Like {@link Peer}, only headers are downloaded for blocks before the fast catchup time. Filtered blocks are
+ * requested from peers that support Bloom filtering if a filter is in use. If the filter gets exhausted, the download
+ * fails so that it can be picked up by the single peer download, which knows how to recover.</p>
+ *
+ * <p>In headers-first mode, every header is checked for proof of work and difficulty and put into the block store as
+ * soon as it arrives, without waiting for the blocks: the header chain runs up to {@link #MAX_HEADER_LEAD} blocks ahead
+ * of the chain head, limited so that a ring buffer store like {@link org.bitcoinj.store.SPVBlockStore} never drops
+ * the chain head. Otherwise headers are only fetched as blocks are needed, and checked when the blocks are added. The
+ * rates of both pipelines are measured separately, see {@link #getHeaderRate()} and {@link #getBlockRate()}.</p>
+ *
+ * <p>All work happens on the given executor, which must be single threaded.</p>
+ */
+final class ParallelChainDownload {
+    private static final Logger log = LoggerFactory.getLogger(ParallelChainDownload.class);
+
+    /** Number of blocks requested in one go. */
+    static final int RANGE_SIZE = 16;
+    /** Number of ranges a peer may have in flight at the same time. */
+    static final int RANGES_PER_PEER = 2;
+    /** How far ahead of the next block to add blocks may be requested. */
+    static final int WINDOW_SIZE = 1024;
+    /** A request still not answered after this long is handed to another peer. */
+    static final long STALL_TIMEOUT_MILLIS = 20 * 1000;
+    /** For how long a peer that stalled doesn't get new requests, unless all other peers did too. */
+    static final long STALL_COOLDOWN_MILLIS = 60 * 1000;
+    /** How far the header chain may run ahead of the chain head in headers-first mode. */
+    static final int MAX_HEADER_LEAD = 2 * HeadersMessage.MAX_HEADERS;
+    private static final int COMPACT_THRESHOLD = 256;
+    private static final long RATE_LOG_INTERVAL_MILLIS = 10 * 1000;
+
+    private final AbstractBlockChain chain;
+    private final ListeningScheduledExecutorService executor;
+    private final List<Wallet> wallets;
+    private final long fastCatchupTimeSecs;
+    private final boolean filtered;
+    @Nullable private final PeerDataEventListener listener;
+    private final int maxPeers;
+    private final boolean headersFirst;
+    private final SettableFuture<Void> result = SettableFuture.create();
+
+    // Progress of the header and block pipelines, readable from any thread.
+    private volatile int headerCount, blockCount;
+    private volatile long headersStartMillis, headersEndMillis, blocksStartMillis, blocksEndMillis;
+    private long lastRateLogMillis;
+
+    // Everything below is only used on the executor thread.
+    private final Map<Peer, PeerState> peers = new LinkedHashMap<>();
+    private final List<Peer> spares = new ArrayList<>();
+    // One slot per header following the chain head, in chain order. Slot i has sequence number base + i, the first
+    // added slots are already in the chain and get dropped from time to time.
+    private final ArrayList<Slot> slots = new ArrayList<>();
+    private int base, added;
+    // Sequence number of the first slot that was never requested.
+    private int nextUnrequested;
+    // Ranges of slots to request again, lowest first.
+    private final PriorityQueue<Range> retries = new PriorityQueue<>(11, new Comparator<Range>() {
+        @Override
+        public int compare(Range a, Range b) {
+            return Integer.compare(a.start, b.start);
+        }
+    });
+    private Sha256Hash lastHeaderHash;
+    // In headers-first mode, the last header put into the block store.
+    @Nullable private StoredBlock lastStoredHeader;
+    private boolean downloadBodies, headersDone;
+    @Nullable private Peer headerPeer;
+    @Nullable private ListenableFuture<HeadersMessage> headerRequest;
+    private long headerRequestTimeMillis;
+    @Nullable private volatile ScheduledFuture<?> stallCheck;
+
+    private static final class Slot {
+        final Sha256Hash hash;
+        @Nullable Message block;
+        @Nullable Peer source;
+
+        Slot(Sha256Hash hash) {
+            this.hash = hash;
+        }
+    }
+
+    private static final class Range {
+        final int start, end;
+        Peer peer;
+        long requestTimeMillis;
+        int missing;
+        boolean active;
+
+        Range(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private static final class PeerState {
+        final List<Range> ranges = new ArrayList<>(RANGES_PER_PEER);
+        long cooldownUntilMillis;
+    }
+
+    /**
+     * @param maxPeers the number of peers to download from at the same time, further peers are kept as spares
+     * @param filtered whether to request filtered blocks from peers that support it
+     * @param headersFirst whether to check and store headers ahead of the blocks, see the class documentation
+     */
+    ParallelChainDownload(AbstractBlockChain chain, ListeningScheduledExecutorService executor, List<Wallet> wallets,
+                          long fastCatchupTimeSecs, boolean filtered, @Nullable PeerDataEventListener listener,
+                          int maxPeers, boolean headersFirst) {
+        this.chain = chain;
+        this.executor = executor;
+        this.wallets = wallets;
+        this.fastCatchupTimeSecs = fastCatchupTimeSecs;
+        this.filtered = filtered;
+        this.listener = listener;
+        this.maxPeers = maxPeers;
+        this.headersFirst = headersFirst;
+    }
+
+    /**
+     * Starts downloading from the chain head. The returned future completes once there are no more headers to get and
+     * all blocks are in the chain, or fails if a block doesn't fit into the chain.
+     */
+    ListenableFuture<Void> start() {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (result.isDone())
+                    return;
+                lastStoredHeader = chain.getChainHead();
+                lastHeaderHash = lastStoredHeader.getHeader().getHash();
+                downloadBodies = chain.getChainHead().getHeader().getTimeSeconds() >= fastCatchupTimeSecs;
+                stallCheck = executor.scheduleWithFixedDelay(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            checkForStalls();
+                        } catch (Throwable e) {
+                            log.error("Exception in stall check", e);  // The executor swallows exceptions :(
+                        }
+                    }
+                }, 1, 1, TimeUnit.SECONDS);
+                log.info("Starting parallel chain download from {} at height {}", lastHeaderHash,
+                        chain.getBestChainHeight());
+                requestMore();
+            }
+        });
+        result.addListener(new Runnable() {
+            @Override
+            public void run() {
+                ScheduledFuture<?> check = stallCheck;
+                if (check != null)
+                    check.cancel(false);
+                if (headersFirst)
+                    chain.forgetStoredHeaders();
+            }
+        }, MoreExecutors.directExecutor());
+        return result;
+    }
+
+    /** Stops requesting blocks. Requests in flight are left to finish, but their blocks are dropped. */
+    void stop() {
+        result.cancel(false);
+    }
+
+    /** Makes the given peer available for downloading. */
+    void addPeer(final Peer peer) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (result.isDone() || peers.containsKey(peer) || spares.contains(peer))
+                    return;
+                if (peers.size() < maxPeers) {
+                    peers.put(peer, new PeerState());
+                    requestMore();
+                } else {
+                    spares.add(peer);
+                }
+            }
+        });
+    }
+
+    /** Hands everything in flight from the given peer, which disconnected, to other peers. */
+    void removePeer(final Peer peer) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                spares.remove(peer);
+                PeerState state = peers.remove(peer);
+                if (state == null)
+                    return;
+                for (Range range : state.ranges)
+                    retry(range);
+                if (!spares.isEmpty())
+                    peers.put(spares.remove(0), new PeerState());
+                if (peer == headerPeer) {
+                    headerPeer = null;
+                    headerRequest = null;
+                }
+                requestMore();
+            }
+        });
+    }
+
+    // Fills all peers with requests and gets more headers if we are running out of blocks to request.
+    private void requestMore() {
+        if (result.isDone() || lastHeaderHash == null)
+            return;
+        long now = Utils.currentTimeMillis();
+        boolean allCoolingDown = true;
+        for (PeerState state : peers.values())
+            allCoolingDown &= state.cooldownUntilMillis > now;
+        for (Map.Entry<Peer, PeerState> entry : peers.entrySet()) {
+            PeerState state = entry.getValue();
+            if (state.cooldownUntilMillis > now && !allCoolingDown)
+                continue;
+            while (state.ranges.size() < RANGES_PER_PEER) {
+                Range range = nextRange();
+                if (range == null)
+                    break;
+                request(entry.getKey(), state, range, now);
+            }
+        }
+        int lead = headersFirst ? MAX_HEADER_LEAD : HeadersMessage.MAX_HEADERS;
+        if (!headersDone && headerRequest == null && slots.size() - added < lead)
+            requestHeaders(now, allCoolingDown);
+    }
+
+    @Nullable
+    private Range nextRange() {
+        Range retry = retries.poll();
+        if (retry != null)
+            return new Range(retry.start, retry.end);
+        int limit = Math.min(base + slots.size(), base + added + WINDOW_SIZE);
+        while (nextUnrequested < limit && !isMissing(nextUnrequested))
+            nextUnrequested++;
+        if (nextUnrequested >= limit)
+            return null;
+        int start = nextUnrequested, end = start + 1;
+        while (end < limit && end - start < RANGE_SIZE && isMissing(end))
+            end++;
+        nextUnrequested = end;
+        return new Range(start, end);
+    }
+
+    private boolean isMissing(int seq) {
+        return seq >= base + added && slots.get(seq - base).block == null;
+    }
+
+    private void request(final Peer peer, PeerState state, final Range range, long now) {
+        List<Sha256Hash> hashes = new ArrayList<>(range.end - range.start);
+        final List<Integer> seqs = new ArrayList<>(range.end - range.start);
+        for (int seq = Math.max(range.start, base + added); seq < range.end; seq++) {
+            if (isMissing(seq)) {
+                hashes.add(slots.get(seq - base).hash);
+                seqs.add(seq);
+            }
+        }
+        if (hashes.isEmpty())
+            return;  // Everything arrived in the meantime.
+        range.peer = peer;
+        range.requestTimeMillis = now;
+        range.missing = hashes.size();
+        range.active = true;
+        state.ranges.add(range);
+        if (blocksStartMillis == 0)
+            blocksStartMillis = now;
+        boolean useFilteredBlocks = filtered && peer.getPeerVersionMessage().isBloomFilteringSupported();
+        List<ListenableFuture<Message>> futures = peer.getBlocks(hashes, useFilteredBlocks);
+        for (int i = 0; i < futures.size(); i++) {
+            final int seq = seqs.get(i);
+            Futures.addCallback(futures.get(i), new FutureCallback<Message>() {
+                @Override
+                public void onSuccess(Message block) {
+                    blockReceived(range, seq, block);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    // The peer doesn't have the block.
+                    if (range.active) {
+                        log.info("{}: Could not get blocks, requesting them from another peer", peer);
+                        coolDown(peer);
+                        retry(range);
+                        requestMore();
+                    }
+                }
+            }, executor);
+        }
+    }
+
+    private void blockReceived(Range range, int seq, Message block) {
+        if (result.isDone())
+            return;
+        if (range.active && --range.missing == 0) {
+            range.active = false;
+            PeerState state = peers.get(range.peer);
+            if (state != null)
+                state.ranges.remove(range);
+        }
+        if (isMissing(seq)) {
+            Slot slot = slots.get(seq - base);
+            if (slot.hash.equals(block.getHash())) {
+                blockCount++;
+                slot.block = block;
+                slot.source = range.peer;
+                addReadyBlocks();
+            }
+        }
+        requestMore();
+    }
+
+    // Adds the blocks at the start of the window to the chain, as far as they arrived.
+    private void addReadyBlocks() {
+        while (added < slots.size() && slots.get(added).block != null) {
+            Slot slot = slots.get(added);
+            if (!addToChain(slot))
+                return;
+            slot.block = null;
+            slot.source = null;
+            added++;
+        }
+        if (added >= COMPACT_THRESHOLD) {
+            slots.subList(0, added).clear();
+            base += added;
+            added = 0;
+        }
+        if (headersDone && added == slots.size()) {
+            blocksEndMillis = Utils.currentTimeMillis();
+            log.info("Parallel chain download done at height {}", chain.getBestChainHeight());
+            logRates();
+            result.set(null);
+        }
+    }
+
+    private boolean addToChain(Slot slot) {
+        try {
+            Block block;
+            FilteredBlock filteredBlock = null;
+            boolean connected;
+            if (slot.block instanceof FilteredBlock) {
+                filteredBlock = (FilteredBlock) slot.block;
+                block = filteredBlock.getBlockHeader();
+                boolean exhausted = false;
+                for (Wallet wallet : wallets)
+                    exhausted |= wallet.checkForFilterExhaustion(filteredBlock);
+                if (exhausted) {
+                    log.info("Bloom filter exhausted at {}, stopping parallel chain download", slot.hash);
+                    result.setException(new IllegalStateException("Bloom filter exhausted"));
+                    return false;
+                }
+                connected = chain.add(filteredBlock);
+            } else {
+                block = (Block) slot.block;
+                connected = chain.add(block);
+            }
+            if (!connected) {
+                // Can't happen unless the header chain we were given was bogus.
+                result.setException(new VerificationException("Block " + slot.hash + " does not connect to the chain"));
+                return false;
+            }
+            if (slot.source != null)
+                slot.source.invokeOnBlocksDownloaded(block, filteredBlock);
+            if (listener != null)
+                notifyListener(slot.source, block, filteredBlock);
+            return true;
+        } catch (VerificationException | PrunedException e) {
+            log.warn("Block {} failed to verify, stopping parallel chain download", slot.hash, e);
+            result.setException(e);
+            return false;
+        }
+    }
+
+    private void notifyListener(final Peer source, final Block block, @Nullable final FilteredBlock filteredBlock) {
+        final int blocksLeft = Math.max(0, bestPeerHeight() - chain.getBestChainHeight());
+        Threading.USER_THREAD.execute(new Runnable() {
+            @Override
+            public void run() {
+                listener.onBlocksDownloaded(source, block, filteredBlock, blocksLeft);
+            }
+        });
+    }
+
+    private int bestPeerHeight() {
+        long best = 0;
+        for (Peer peer : peers.keySet())
+            best = Math.max(best, peer.getBestHeight());
+        return (int) best;
+    }
+
+    private void requestHeaders(long now, boolean allCoolingDown) {
+        Peer best = null;
+        for (Map.Entry<Peer, PeerState> entry : peers.entrySet()) {
+            if (entry.getValue().cooldownUntilMillis > now && !allCoolingDown)
+                continue;
+            if (best == null || entry.getKey().getBestHeight() > best.getBestHeight())
+                best = entry.getKey();
+        }
+        if (best == null)
+            return;
+        if (listener != null && slots.isEmpty()) {
+            final Peer peer = best;
+            final int blocksLeft = Math.max(0, bestPeerHeight() - chain.getBestChainHeight());
+            if (blocksLeft > 0) {
+                Threading.USER_THREAD.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onChainDownloadStarted(peer, blocksLeft);
+                    }
+                });
+            }
+        }
+        final Peer peer = best;
+        final ListenableFuture<HeadersMessage> request =
+                peer.getBlockHeaders(new BlockLocator().add(lastHeaderHash), Sha256Hash.ZERO_HASH);
+        headerPeer = peer;
+        headerRequest = request;
+        headerRequestTimeMillis = now;
+        if (headersStartMillis == 0)
+            headersStartMillis = now;
+        Futures.addCallback(request, new FutureCallback<HeadersMessage>() {
+            @Override
+            public void onSuccess(HeadersMessage headers) {
+                if (request == headerRequest)
+                    headersReceived(peer, headers);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                if (request == headerRequest) {
+                    headerPeer = null;
+                    headerRequest = null;
+                    requestMore();
+                }
+            }
+        }, executor);
+    }
+
+    private void headersReceived(Peer peer, HeadersMessage message) {
+        headerPeer = null;
+        headerRequest = null;
+        if (result.isDone())
+            return;
+        List<Block> headers = message.getBlockHeaders();
+        BlockHeaderHasher.hashAll(headers);
+        Sha256Hash prev = lastHeaderHash;
+        for (Block header : headers) {
+            if (!header.getPrevBlockHash().equals(prev)) {
+                log.warn("{}: Sent headers that don't connect to {}, asking another peer", peer, lastHeaderHash);
+                coolDown(peer);
+                requestMore();
+                return;
+            }
+            prev = header.getHash();
+        }
+        if (headersFirst && !storeHeaders(peer, headers))
+            return;
+        headerCount += headers.size();
+        for (Block header : headers) {
+            Slot slot = new Slot(header.getHash());
+            downloadBodies |= header.getTimeSeconds() >= fastCatchupTimeSecs;
+            if (!downloadBodies) {
+                slot.block = header;
+                slot.source = peer;
+            }
+            slots.add(slot);
+        }
+        lastHeaderHash = prev;
+        if (headers.size() < HeadersMessage.MAX_HEADERS) {
+            headersDone = true;
+            headersEndMillis = Utils.currentTimeMillis();
+        }
+        addReadyBlocks();
+        requestMore();
+    }
+
+    // Checks and stores the given headers, which connect to the last stored one, and returns whether all of them are
+    // good. If one isn't, none of them are used and they are asked from another peer. If the block store fails, so
+    // does the download.
+    private boolean storeHeaders(Peer peer, List<Block> headers) {
+        StoredBlock stored = lastStoredHeader;
+        try {
+            for (Block header : headers)
+                stored = chain.storeHeader(stored, header);
+        } catch (VerificationException e) {
+            log.warn("{}: Sent a header that failed to verify, asking another peer", peer, e);
+            coolDown(peer);
+            requestMore();
+            return false;
+        } catch (BlockStoreException e) {
+            log.error("Could not store headers, stopping parallel chain download", e);
+            result.setException(e);
+            return false;
+        }
+        lastStoredHeader = stored;
+        return true;
+    }
+
+    /**
+     * Returns the number of headers received per second, from the first header request until all headers are in or
+     * until now.
+     */
+    double getHeaderRate() {
+        return rate(headerCount, headersStartMillis, headersEndMillis);
+    }
+
+    /**
+     * Returns the number of blocks received per second, from the first block request until all blocks are in or until
+     * now. Blocks before the fast catchup time, for which only headers are needed, don't count.
+     */
+    double getBlockRate() {
+        return rate(blockCount, blocksStartMillis, blocksEndMillis);
+    }
+
+    private static double rate(int count, long startMillis, long endMillis) {
+        if (startMillis == 0)
+            return 0;
+        long elapsedMillis = (endMillis != 0 ? endMillis : Utils.currentTimeMillis()) - startMillis;
+        return count * 1000.0 / Math.max(elapsedMillis, 1);
+    }
+
+    private void logRates() {
+        log.info("Chain download: {} headers at {}/sec, {} blocks at {}/sec", headerCount,
+                String.format(Locale.US, "%.1f", getHeaderRate()), blockCount,
+                String.format(Locale.US, "%.1f", getBlockRate()));
+    }
+
+    private void checkForStalls() {
+        if (result.isDone())
+            return;
+        long now = Utils.currentTimeMillis();
+        if (now - lastRateLogMillis >= RATE_LOG_INTERVAL_MILLIS) {
+            lastRateLogMillis = now;
+            logRates();
+        }
+        for (Map.Entry<Peer, PeerState> entry : peers.entrySet()) {
+            PeerState state = entry.getValue();
+            for (Range range : new ArrayList<>(state.ranges)) {
+                if (now - range.requestTimeMillis > STALL_TIMEOUT_MILLIS) {
+                    log.info("{}: Stalled on blocks {} to {}, requesting them from another peer", entry.getKey(),
+                            range.start, range.end);
+                    entry.getKey().getPerformance().recordStall();
+                    coolDown(entry.getKey());
+                    retry(range);
+                }
+            }
+        }
+        if (headerRequest != null && now - headerRequestTimeMillis > STALL_TIMEOUT_MILLIS) {
+            log.info("{}: Stalled on headers, requesting them from another peer", headerPeer);
+            headerPeer.getPerformance().recordStall();
+            coolDown(headerPeer);
+            headerPeer = null;
+            headerRequest = null;
+        }
+        requestMore();
+    }
+
+    private void coolDown(Peer peer) {
+        PeerState state = peers.get(peer);
+        if (state != null)
+            state.cooldownUntilMillis = Utils.currentTimeMillis() + STALL_COOLDOWN_MILLIS;
+    }
+
+    // Takes the range off its peer and queues it for another, where blocks arriving late from the first one still count.
+    private void retry(Range range) {
+        if (!range.active)
+            return;
+        range.active = false;
+        PeerState state = peers.get(range.peer);
+        if (state != null)
+            state.ranges.remove(range);
+        retries.add(range);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bitcoinj.core;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of byte arrays for receiving messages that don't fit into a connection's read buffer, mostly blocks. Arrays
+ * are handed out in power of two sizes, so an array is usually longer than the message it receives; see
+ * {@link MessageSerializer#deserializePayload(BitcoinSerializer.BitcoinPacketHeader, byte[])}. Only a few free arrays
+ * of each size are retained, and arrays for very large messages are not pooled at all.
+ */
+final class PayloadBufferPool {
+    /** The smallest pooled size, about the size of a connection's read buffer. */
+    static final int MIN_POOLED_SIZE = 64 * 1024;
+    /** The largest pooled size. Bigger messages get an array of their own. */
+    static final int MAX_POOLED_SIZE = 4 * 1024 * 1024;
+    /** The pool shared by all connections. */
+    static final PayloadBufferPool SHARED = new PayloadBufferPool(2);
+
+    private final int maxRetainedPerSize;
+    private final ConcurrentLinkedQueue<byte[]>[] free;
+    private final AtomicInteger[] freeCounts;
+
+    @SuppressWarnings("unchecked")
+    PayloadBufferPool(int maxRetainedPerSize) {
+        this.maxRetainedPerSize = maxRetainedPerSize;
+        int buckets = Integer.numberOfTrailingZeros(MAX_POOLED_SIZE) - Integer.numberOfTrailingZeros(MIN_POOLED_SIZE) + 1;
+        free = new ConcurrentLinkedQueue[buckets];
+        freeCounts = new AtomicInteger[buckets];
+        for (int i = 0; i < buckets; i++) {
+            free[i] = new ConcurrentLinkedQueue<>();
+            freeCounts[i] = new AtomicInteger();
+        }
+    }
+
+    /** Returns an array of at least the given size, from the pool if possible. Its contents are undefined. */
+    byte[] acquire(int size) {
+        if (size > MAX_POOLED_SIZE)
+            return new byte[size];
+        int bucket = bucketOf(Math.max(size, MIN_POOLED_SIZE));
+        byte[] array = free[bucket].poll();
+        if (array == null)
+            return new byte[MIN_POOLED_SIZE << bucket];
+        freeCounts[bucket].decrementAndGet();
+        return array;
+    }
+
+    /** Returns an array obtained from {@link #acquire(int)} to the pool. It must not be used afterwards. */
+    void release(byte[] array) {
+        int length = array.length;
+        if (length < MIN_POOLED_SIZE || length > MAX_POOLED_SIZE || Integer.bitCount(length) != 1)
+            return;
+        int bucket = bucketOf(length);
+        if (freeCounts[bucket].incrementAndGet() <= maxRetainedPerSize)
+            free[bucket].offer(array);
+        else
+            freeCounts[bucket].decrementAndGet();
+    }
+
+    /** Returns the number of free arrays currently retained. */
+    int getFreeCount() {
+        int count = 0;
+        for (AtomicInteger freeCount : freeCounts)
+            count += freeCount.get();
+        return count;
+    }
+
+    // Index of the smallest power of two size that holds the given size, which must be at least MIN_POOLED_SIZE.
+    private static int bucketOf(int size) {
+        int powerOfTwo = Integer.highestOneBit(size - 1) << 1;
+        return Integer.numberOfTrailingZeros(powerOfTwo) - Integer.numberOfTrailingZeros(MIN_POOLED_SIZE);
+    }
+}
@@ -48,9 +48,11 @@ import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
@@ -135,19 +137,33 @@ public class Peer extends PeerSocketHandler {
     private volatile int vMinProtocolVersion;
     // When an API user explicitly requests a block or transaction from a peer, the InventoryItem is put here
     // whilst waiting for the response. Is not used for downloads Peer generates itself.
-    private static class GetDataRequest {
-        public GetDataRequest(Sha256Hash hash, SettableFuture future) {
-            this.hash = hash;
-            this.future = future;
-        }
-        final Sha256Hash hash;
-        final SettableFuture future;
-    }
+    private final GetDataTracker getDataFutures;
+    // How long to wait for the answer to a getdata before failing its future.
+    static final long GETDATA_TIMEOUT_MILLIS = 5 * 60 * 1000;
     // TODO: The types/locking should be rationalised a bit.
-    private final CopyOnWriteArrayList<GetDataRequest> getDataFutures;
     @GuardedBy("getAddrFutures") private final LinkedList<SettableFuture<AddressMessage>> getAddrFutures;
+    // The getheaders requests that weren't answered yet, in the order they were sent, which is the order the answers
+    // come in. Those made through getBlockHeaders() have a future, those of the chain download don't.
+    @GuardedBy("headersRequests") private final LinkedList<HeadersRequest> headersRequests;
+    // How long to wait for the answer to a getheaders before giving up on it, so that later answers aren't taken for it.
+    static final long GETHEADERS_TIMEOUT_MILLIS = 5 * 60 * 1000;
     @Nullable @GuardedBy("lock") private LinkedList<SettableFuture<UTXOsMessage>> getutxoFutures;
 
+    // Inventory to announce to the peer, in the order it was queued and without duplicates. Sent in batches of up to
+    // vMaxInventoryBatchSize items, see announce().
+    @GuardedBy("pendingInventory") private final LinkedHashSet<InventoryItem> pendingInventory = new LinkedHashSet<>();
+    private volatile int vMaxInventoryBatchSize = 1;
+    // Transactions announced through announce(Transaction), kept until the peer asks for them. The oldest are
+    // forgotten if the peer never does.
+    @GuardedBy("pendingInventory") private final LinkedHashMap<Sha256Hash, Transaction> announcedTransactions =
+            new LinkedHashMap<Sha256Hash, Transaction>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Sha256Hash, Transaction> eldest) {
+                    return size() > MAX_ANNOUNCED_TRANSACTIONS;
+                }
+            };
+    private static final int MAX_ANNOUNCED_TRANSACTIONS = 1000;
+
     // Outstanding pings against this peer and how long the last one took to complete.
     private final ReentrantLock lastPingTimesLock = new ReentrantLock();
     @GuardedBy("lastPingTimesLock") private long[] lastPingTimes = null;
@@ -232,8 +248,9 @@ public class Peer extends PeerSocketHandler {
         this.vDownloadTxDependencyDepth = chain != null ? downloadTxDependencyDepth : 0;
         this.blockChain = chain;  // Allowed to be null.
         this.vDownloadData = chain != null;
-        this.getDataFutures = new CopyOnWriteArrayList<>();
+        this.getDataFutures = new GetDataTracker(GETDATA_TIMEOUT_MILLIS, getPerformance());
         this.getAddrFutures = new LinkedList<>();
+        this.headersRequests = new LinkedList<>();
         this.fastCatchupTimeSecs = params.getGenesisBlock().getTimeSeconds();
         this.pendingPings = new CopyOnWriteArrayList<>();
         this.vMinProtocolVersion = params.getProtocolVersionNum(NetworkParameters.ProtocolVersion.PONG);
@@ -417,6 +434,16 @@ public class Peer extends PeerSocketHandler {
 
     @Override
     public void connectionClosed() {
+        getDataFutures.failAll(new PeerException("Connection closed"));
+        List<HeadersRequest> unanswered;
+        synchronized (headersRequests) {
+            unanswered = new ArrayList<>(headersRequests);
+            headersRequests.clear();
+        }
+        for (HeadersRequest request : unanswered) {
+            if (request.future != null)
+                request.future.setException(new PeerException("Connection closed"));
+        }
         for (final ListenerRegistration<PeerDisconnectedEventListener> registration : disconnectedEventListeners) {
             registration.executor.execute(new Runnable() {
                 @Override
@@ -626,17 +653,12 @@ public class Peer extends PeerSocketHandler {
         // the bottom of the dependency tree (where the unconfirmed transactions connect to transactions that are
         // in the chain).
         //
-        // We go through and cancel the pending getdata futures for the items we were told weren't found.
-        for (GetDataRequest req : getDataFutures) {
-            for (InventoryItem item : m.getItems()) {
-                if (item.hash.equals(req.hash)) {
-                    log.info("{}: Bottomed out dep tree at {}", this, req.hash);
-                    req.future.cancel(true);
-                    getDataFutures.remove(req);
-                    break;
-                }
-            }
-        }
+        // We cancel the pending getdata futures for the items we were told weren't found.
+        List<Sha256Hash> hashes = new ArrayList<>(m.getItems().size());
+        for (InventoryItem item : m.getItems())
+            hashes.add(item.hash);
+        for (Sha256Hash hash : getDataFutures.cancel(hashes))
+            log.info("{}: Bottomed out dep tree at {}", this, hash);
     }
 
     protected void processAlert(AlertMessage m) {
@@ -665,6 +687,21 @@ public class Peer extends PeerSocketHandler {
         boolean downloadBlockBodies;
         long fastCatchupTimeSecs;
 
+        // Which request does this answer? If none, the peer sent it unasked.
+        HeadersRequest request = null;
+        List<HeadersRequest> expired;
+        synchronized (headersRequests) {
+            expired = removeExpiredHeadersRequests();
+            HeadersRequest next = headersRequests.peek();
+            if (next != null && next.isAnsweredBy(m))
+                request = headersRequests.poll();
+        }
+        failExpiredHeadersRequests(expired);
+        if (request != null && request.future != null) {
+            request.future.set(m);
+            return;
+        }
+
         lock.lock();
         try {
             if (blockChain == null) {
@@ -680,6 +717,8 @@ public class Peer extends PeerSocketHandler {
 
         try {
             checkState(!downloadBlockBodies, toString());
+            // Hash the whole batch across all cores up front, the loop below then only links them in order.
+            BlockHeaderHasher.hashAll(m.getBlockHeaders());
             for (int i = 0; i < m.getBlockHeaders().size(); i++) {
                 Block header = m.getBlockHeaders().get(i);
                 // Process headers until we pass the fast catchup time, or are about to catch up with the head
@@ -740,11 +779,25 @@ public class Peer extends PeerSocketHandler {
     protected void processGetData(GetDataMessage getdata) {
         log.info("{}: Received getdata message: {}", getAddress(), getdata.toString());
         ArrayList<Message> items = new ArrayList<>();
+        Set<Sha256Hash> announced = new HashSet<>();
+        synchronized (pendingInventory) {
+            for (InventoryItem item : getdata.getItems()) {
+                Transaction tx = announcedTransactions.remove(item.hash);
+                if (tx != null) {
+                    items.add(tx);
+                    announced.add(item.hash);
+                }
+            }
+        }
         for (ListenerRegistration<GetDataEventListener> registration : getDataEventListeners) {
             if (registration.executor != Threading.SAME_THREAD) continue;
             List<Message> listenerItems = registration.listener.getData(this, getdata);
             if (listenerItems == null) continue;
-            items.addAll(listenerItems);
+            for (Message item : listenerItems) {
+                // Don't send what was already answered from the announced transactions.
+                if (!(item instanceof Transaction && announced.contains(((Transaction) item).getTxId())))
+                    items.add(item);
+            }
         }
         if (items.isEmpty()) {
             return;
@@ -913,9 +966,9 @@ public class Peer extends PeerSocketHandler {
                 log.info("{}: Requesting {} transactions for depth {} dep resolution", getAddress(), needToRequest.size(), depth + 1);
             for (Sha256Hash hash : needToRequest) {
                 getdata.addTransaction(hash, vPeerVersionMessage.isWitnessSupported());
-                GetDataRequest req = new GetDataRequest(hash, SettableFuture.create());
-                futures.add(req.future);
-                getDataFutures.add(req);
+                SettableFuture<Transaction> future = SettableFuture.create();
+                futures.add(future);
+                getDataFutures.add(hash, future);
             }
             ListenableFuture<List<Transaction>> successful = Futures.successfulAsList(futures);
             Futures.addCallback(successful, new FutureCallback<List<Transaction>>() {
@@ -1035,6 +1088,8 @@ public class Peer extends PeerSocketHandler {
     protected void endFilteredBlock(FilteredBlock m) {
         if (log.isDebugEnabled())
             log.debug("{}: Received broadcast filtered block {}", getAddress(), m.getHash().toString());
+        // Was this block requested by getBlocks()?
+        if (maybeHandleRequestedData(m)) return;
         if (!vDownloadData) {
             if (log.isDebugEnabled())
                 log.debug("{}: Received block we did not ask for: {}", getAddress(), m.getHash().toString());
@@ -1141,20 +1196,11 @@ public class Peer extends PeerSocketHandler {
     }
 
     private boolean maybeHandleRequestedData(Message m) {
-        boolean found = false;
-        Sha256Hash hash = m.getHash();
-        for (GetDataRequest req : getDataFutures) {
-            if (hash.equals(req.hash)) {
-                req.future.set(m);
-                getDataFutures.remove(req);
-                found = true;
-                // Keep going in case there are more.
-            }
-        }
-        return found;
+        return getDataFutures.complete(m);
     }
 
-    private void invokeOnBlocksDownloaded(final Block block, @Nullable final FilteredBlock fb) {
+    // Also used by ParallelChainDownload for the blocks it fetched through us.
+    void invokeOnBlocksDownloaded(final Block block, @Nullable final FilteredBlock fb) {
         // It is possible for the peer block height difference to be negative when blocks have been solved and broadcast
         // since the time we first connected to the peer. However, it's weird and unexpected to receive a callback
         // with negative "blocks left" in this case, so we clamp to zero so the API user doesn't have to think about it.
@@ -1333,14 +1379,102 @@ public class Peer extends PeerSocketHandler {
         return sendSingleGetData(getdata);
     }
 
+    /**
+     * Asks the connected peer for the given blocks with a single getdata, and returns a future for each of them, in the
+     * same order. If {@code filtered} is true, filtered blocks are requested instead of full blocks, followed by a ping
+     * that marks the end of the last one. The futures complete with a {@link Block} or a {@link FilteredBlock},
+     * whatever the peer sends, and are cancelled if the peer doesn't have the block.
+     */
+    public List<ListenableFuture<Message>> getBlocks(List<Sha256Hash> blockHashes, boolean filtered) {
+        // This does not need to be locked.
+        GetDataMessage getdata = new GetDataMessage(params);
+        List<ListenableFuture<Message>> futures = new ArrayList<>(blockHashes.size());
+        for (Sha256Hash hash : blockHashes) {
+            if (filtered)
+                getdata.addFilteredBlock(hash);
+            else
+                getdata.addBlock(hash, vPeerVersionMessage.isWitnessSupported());
+            SettableFuture<Message> future = SettableFuture.create();
+            getDataFutures.add(hash, future);
+            futures.add(future);
+        }
+        sendMessage(getdata);
+        if (filtered)
+            sendMessage(new Ping((long) (Math.random() * Long.MAX_VALUE)));
+        return futures;
+    }
+
+    /**
+     * Asks the connected peer for the headers of the blocks following the first hash of the locator it knows, up to
+     * {@code stopHash} or as many as fit into a headers message, and returns a future that completes with the answer.
+     * The answers to these and to the getheaders of the chain download of this peer are told apart by the order they
+     * come in, so each goes where it was asked for.
+     */
+    public ListenableFuture<HeadersMessage> getBlockHeaders(BlockLocator locator, Sha256Hash stopHash) {
+        SettableFuture<HeadersMessage> future = SettableFuture.create();
+        sendGetHeaders(locator, stopHash, future);
+        return future;
+    }
+
+    private void sendGetHeaders(BlockLocator locator, Sha256Hash stopHash,
+                                @Nullable SettableFuture<HeadersMessage> future) {
+        // Queued and sent together, so that requests from different threads are queued in the order they are sent.
+        List<HeadersRequest> expired;
+        synchronized (headersRequests) {
+            expired = removeExpiredHeadersRequests();
+            headersRequests.add(new HeadersRequest(locator, future,
+                    Utils.currentTimeMillis() + GETHEADERS_TIMEOUT_MILLIS));
+            sendMessage(new GetHeadersMessage(params, locator, stopHash));
+        }
+        failExpiredHeadersRequests(expired);
+    }
+
+    // Removes the getheaders requests at the front that timed out. The peer answers in order, so once the oldest one
+    // is given up on, the next answer is matched against the one after it.
+    @GuardedBy("headersRequests")
+    private List<HeadersRequest> removeExpiredHeadersRequests() {
+        List<HeadersRequest> expired = new ArrayList<>();
+        long now = Utils.currentTimeMillis();
+        while (!headersRequests.isEmpty() && headersRequests.peek().deadlineMillis <= now)
+            expired.add(headersRequests.poll());
+        return expired;
+    }
+
+    private void failExpiredHeadersRequests(List<HeadersRequest> expired) {
+        for (HeadersRequest request : expired) {
+            log.info("{}: No answer to getheaders, giving up on it", this);
+            if (request.future != null)
+                request.future.setException(new TimeoutException("No answer to getheaders"));
+        }
+    }
+
+    private static final class HeadersRequest {
+        final BlockLocator locator;
+        @Nullable final SettableFuture<HeadersMessage> future;
+        final long deadlineMillis;
+
+        HeadersRequest(BlockLocator locator, @Nullable SettableFuture<HeadersMessage> future, long deadlineMillis) {
+            this.locator = locator;
+            this.future = future;
+            this.deadlineMillis = deadlineMillis;
+        }
+
+        // Headers that answer the request follow one of the blocks of the locator. Others were sent unasked, e.g. to
+        // announce a new block.
+        boolean isAnsweredBy(HeadersMessage m) {
+            List<Block> headers = m.getBlockHeaders();
+            return headers.isEmpty() || locator.getHashes().contains(headers.get(0).getPrevBlockHash());
+        }
+    }
+
     /** Sends a getdata with a single item in it. */
     private ListenableFuture sendSingleGetData(GetDataMessage getdata) {
         // This does not need to be locked.
         Preconditions.checkArgument(getdata.getItems().size() == 1);
-        GetDataRequest req = new GetDataRequest(getdata.getItems().get(0).hash, SettableFuture.create());
-        getDataFutures.add(req);
+        SettableFuture future = SettableFuture.create();
+        getDataFutures.add(getdata.getItems().get(0).hash, future);
         sendMessage(getdata);
-        return req.future;
+        return future;
     }
 
     /** Sends a getaddr request to the peer and returns a future that completes with the answer once the peer has replied. */
@@ -1482,8 +1616,7 @@ public class Peer extends PeerSocketHandler {
             sendMessage(message);
         } else {
             // Downloading headers for a while instead of full blocks.
-            GetHeadersMessage message = new GetHeadersMessage(params, blockLocator, toHash);
-            sendMessage(message);
+            sendGetHeaders(blockLocator, toHash, null);
         }
     }
 
@@ -1559,6 +1692,72 @@ public class Peer extends PeerSocketHandler {
         }
     }
 
+    /**
+     * <p>Queues the given item to be announced to the peer with an inv message. Once the queue holds
+     * {@link #setMaxInventoryBatchSize(int)} items, they are all sent in one message. Items already queued are
+     * ignored, and the order is preserved.</p>
+     *
+     * <p>With the default batch size of 1 every item goes out right away. With larger batches, something has to call
+     * {@link #flushInventory()} regularly, which {@link PeerGroup} does when configured with
+     * {@link PeerGroup#setInventoryBatching(long, int)}.</p>
+     */
+    public void announce(InventoryItem item) {
+        synchronized (pendingInventory) {
+            pendingInventory.add(item);
+            if (pendingInventory.size() >= vMaxInventoryBatchSize)
+                flushInventory();
+        }
+    }
+
+    /**
+     * Queues the given transaction to be announced to the peer, like {@link #announce(InventoryItem)}, and sends it
+     * when the peer asks for it with a getdata.
+     */
+    public void announce(Transaction tx) {
+        synchronized (pendingInventory) {
+            announcedTransactions.put(tx.getTxId(), tx);
+            announce(new InventoryItem(InventoryItem.Type.TRANSACTION, tx.getTxId()));
+        }
+    }
+
+    /** Sends all queued inventory to the peer, see {@link #announce(InventoryItem)}. */
+    public void flushInventory() {
+        // Sent while holding the lock, so that concurrent flushes can't reorder the announcements. Sending only queues
+        // the bytes for the network thread, so it's quick.
+        synchronized (pendingInventory) {
+            if (pendingInventory.isEmpty())
+                return;
+            InventoryMessage inv = new InventoryMessage(params);
+            for (InventoryItem item : pendingInventory) {
+                inv.addItem(item);
+                if (inv.getItems().size() == InventoryMessage.MAX_INVENTORY_ITEMS) {
+                    sendMessage(inv);
+                    inv = new InventoryMessage(params);
+                }
+            }
+            pendingInventory.clear();
+            if (!inv.getItems().isEmpty())
+                sendMessage(inv);
+        }
+    }
+
+    /** Returns how many items are queued to be announced to the peer. */
+    public int getPendingInventoryCount() {
+        synchronized (pendingInventory) {
+            return pendingInventory.size();
+        }
+    }
+
+    /**
+     * Sets how many items {@link #announce(InventoryItem)} collects before it sends them. The default is 1, i.e. no
+     * batching.
+     */
+    public void setMaxInventoryBatchSize(int maxBatchSize) {
+        checkArgument(maxBatchSize > 0 && maxBatchSize <= InventoryMessage.MAX_INVENTORY_ITEMS,
+                "maxBatchSize out of range");
+        vMaxInventoryBatchSize = maxBatchSize;
+    }
+
     /**
      * Sends the peer a ping message and returns a future that will be invoked when the pong is received back.
      * The future provides a number which is the number of milliseconds elapsed between the ping and the pong.
@@ -1623,6 +1822,13 @@ public class Peer extends PeerSocketHandler {
     }
 
     protected void processPong(Pong m) {
+        // Pongs come in regularly, so this is a good time to give up on getdatas and getheaders that won't be answered.
+        getDataFutures.expire();
+        List<HeadersRequest> expired;
+        synchronized (headersRequests) {
+            expired = removeExpiredHeadersRequests();
+        }
+        failExpiredHeadersRequests(expired);
         // Iterates over a snapshot of the list, so we can run unlocked here.
         for (PendingPing ping : pendingPings) {
             if (m.getNonce() == ping.nonce) {
@@ -111,6 +111,15 @@ public class PeerGroup implements TransactionBroadcaster {
     @GuardedBy("lock") private Peer downloadPeer;
     // Callback for events related to chain download.
     @Nullable @GuardedBy("lock") private PeerDataEventListener downloadListener;
+    // How many peers to download the chain from at once, whether to get headers first, and the download doing that if
+    // either is asked for. The last such download is kept around for its metrics.
+    @GuardedBy("lock") private int maxDownloadPeers = 1;
+    @GuardedBy("lock") private boolean headersFirst;
+    @Nullable @GuardedBy("lock") private ParallelChainDownload parallelDownload;
+    @Nullable private volatile ParallelChainDownload vLastParallelDownload;
+    private volatile boolean vDownloadPeerRotation = true;
+    /** How often it is checked whether a much faster peer than the download peer is available, in seconds. */
+    public static final int DOWNLOAD_PEER_ROTATION_INTERVAL_SECS = 30;
     private final CopyOnWriteArrayList<ListenerRegistration<BlocksDownloadedEventListener>> peersBlocksDownloadedEventListeners
         = new CopyOnWriteArrayList<>();
     private final CopyOnWriteArrayList<ListenerRegistration<ChainDownloadStartedEventListener>> peersChainDownloadStartedEventListeners
@@ -147,6 +156,11 @@ public class PeerGroup implements TransactionBroadcaster {
     public static final long DEFAULT_PING_INTERVAL_MSEC = 2000;
     @GuardedBy("lock") private long pingIntervalMsec = DEFAULT_PING_INTERVAL_MSEC;
 
+    // Inventory announced to peers is sent in batches every inventoryFlushIntervalMillis, if that isn't 0.
+    @GuardedBy("lock") private long inventoryFlushIntervalMillis = 0;
+    @GuardedBy("lock") private int maxInventoryBatchSize = 1;
+    @Nullable @GuardedBy("lock") private ListenableScheduledFuture<?> inventoryFlushTask;
+
     @GuardedBy("lock") private boolean useLocalhostPeerWhenPossible = true;
     @GuardedBy("lock") private boolean ipv6Unreachable = false;
 
@@ -277,6 +291,31 @@ public class PeerGroup implements TransactionBroadcaster {
     /** The default timeout between when a connection attempt begins and version message exchange completes */
     public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 5000;
     private volatile int vConnectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT_MILLIS;
+
+    /** The default number of connection attempts, including the version handshake, that may be in flight at once. */
+    public static final int DEFAULT_MAX_PENDING_CONNECTIONS = 16;
+    /** The default number of connection attempts started beyond those needed to reach the maximum, see {@link #setConnectRace(int, int)}. */
+    public static final int DEFAULT_CONNECT_RACE_SURPLUS = 2;
+    @GuardedBy("lock") private int maxPendingConnections = DEFAULT_MAX_PENDING_CONNECTIONS;
+    @GuardedBy("lock") private int connectRaceSurplus = DEFAULT_CONNECT_RACE_SURPLUS;
+    // Connection attempts made to fill up to maxConnections. Once there are enough peers, those still pending lost the
+    // race and are closed; they are put into raceLosers so their death doesn't count as a failure.
+    @GuardedBy("lock") private final Set<Peer> racingPeers = new HashSet<>();
+    @GuardedBy("lock") private final Set<Peer> raceLosers = new HashSet<>();
+    // Whether an attempt of the current race round failed. A round lasts until no attempts are racing any more, and
+    // counts as one failure against groupBackoff however many of its attempts fail.
+    @GuardedBy("lock") private boolean raceRoundFailed;
+    // The kind of address the last connection attempt went to, so that the next one can try another kind.
+    @Nullable @GuardedBy("lock") private AddressFamily lastConnectFamily;
+    // How many of the next addresses are looked at for one of another kind than the last attempt.
+    private static final int ADDRESS_FAMILY_LOOKAHEAD = 8;
+    private volatile long vStartTimeMillis;
+    private volatile long vTimeToFirstPeerMillis = -1;
+    private volatile long vTimeToFullPeersMillis = -1;
+
+    private enum AddressFamily {
+        IPV4, IPV6, HOSTNAME // The latter are mostly onion addresses.
+    }
     
     /** Whether bloom filter support is enabled when using a non FullPrunedBlockchain*/
     private volatile boolean vBloomFilteringEnabled = true;
@@ -450,6 +489,8 @@ public class PeerGroup implements TransactionBroadcaster {
                     connectToLocalHost();
                     return;
                 }
+                if (!wantMoreConnections())
+                    return;
 
                 boolean havePeerWeCanTry = !inactives.isEmpty() && backoffMap.get(inactives.peek()).getRetryTime() <= now;
                 doDiscovery = !havePeerWeCanTry;
@@ -488,36 +529,124 @@ public class PeerGroup implements TransactionBroadcaster {
                     }
                     return;
                 }
-                PeerAddress addrToTry;
-                do {
-                    addrToTry = inactives.poll();
-                } while (ipv6Unreachable && addrToTry.getAddr() instanceof Inet6Address);
-                if (addrToTry == null) {
+                if (!wantMoreConnections())
+                    return;
+                PeerAddress addrToTry = pollNextAddress(now);
+                if (addrToTry == null && inactives.isEmpty()) {
                     // We have exhausted the queue of reachable peers, so just settle down.
                     // Most likely we were given a fixed set of addresses in some test scenario.
                     return;
                 }
-                long retryTime = backoffMap.get(addrToTry).getRetryTime();
-                retryTime = Math.max(retryTime, groupBackoff.getRetryTime());
+                long retryTime = groupBackoff.getRetryTime();
+                if (addrToTry == null)
+                    retryTime = Math.max(retryTime, backoffMap.get(inactives.peek()).getRetryTime());
                 if (retryTime > now) {
                     long delay = retryTime - now;
-                    log.info("Waiting {} ms before next connect attempt to {}", delay, addrToTry);
-                    inactives.add(addrToTry);
+                    log.info("Waiting {} ms before next connect attempt to {}", delay,
+                            addrToTry != null ? addrToTry : inactives.peek());
+                    if (addrToTry != null)
+                        inactives.add(addrToTry);
                     executor.schedule(this, delay, TimeUnit.MILLISECONDS);
                     return;
                 }
                 if(shouldAttemptConnect(addrToTry)) {
-                    connectTo(addrToTry, false, vConnectTimeoutMillis);
+                    Peer peer = connectTo(addrToTry, false, vConnectTimeoutMillis);
+                    lastConnectFamily = addressFamily(addrToTry);
+                    if (peer != null && pendingPeers.contains(peer))
+                        racingPeers.add(peer);
                 }
+                if (!wantMoreConnections())
+                    return;
             } finally {
                 lock.unlock();
             }
-            if (countConnectedAndPendingPeers() < getMaxConnections()) {
-                executor.execute(this);   // Try next peer immediately.
-            }
+            executor.execute(this);   // Try next peer immediately.
         }
     };
 
+    // Whether another connection attempt should be started. Up to maxConnections + connectRaceSurplus attempts are
+    // made at once, and no more than maxPendingConnections of them at a time, so that slow addresses (or an exit node
+    // that is slow to build a circuit) don't hold up the others. The surplus is closed once enough peers are connected.
+    @GuardedBy("lock")
+    private boolean wantMoreConnections() {
+        int connected = peers.size();
+        int pending = pendingPeers.size();
+        if (connected >= maxConnections || pending >= maxPendingConnections)
+            return false;
+        return connected + pending < maxConnections + connectRaceSurplus;
+    }
+
+    // Takes the next address that can be tried now from inactives, or returns null if there is none. The addresses are
+    // ordered by when they may be tried, but of the ones that can be tried now an address of another family than the
+    // last attempt is preferred. That way IPv4, IPv6 and onion addresses are raced against each other, like "happy
+    // eyeballs", instead of waiting on one family that may not work from here.
+    @GuardedBy("lock") @Nullable
+    private PeerAddress pollNextAddress(long now) {
+        List<PeerAddress> skipped = new ArrayList<>(ADDRESS_FAMILY_LOOKAHEAD);
+        PeerAddress chosen = null;
+        while (chosen == null && skipped.size() < ADDRESS_FAMILY_LOOKAHEAD && !inactives.isEmpty()) {
+            PeerAddress address = inactives.peek();
+            if (backoffMap.get(address).getRetryTime() > now)
+                break;  // Nothing further can be tried yet either.
+            inactives.poll();
+            if (ipv6Unreachable && address.getAddr() instanceof Inet6Address)
+                continue;
+            if (lastConnectFamily == null || addressFamily(address) != lastConnectFamily)
+                chosen = address;
+            else
+                skipped.add(address);
+        }
+        if (chosen == null && !skipped.isEmpty())
+            chosen = skipped.remove(0);
+        for (PeerAddress address : skipped)
+            inactives.offer(address);
+        return chosen;
+    }
+
+    private static AddressFamily addressFamily(PeerAddress address) {
+        InetAddress addr = address.getAddr();
+        if (addr == null)
+            return AddressFamily.HOSTNAME;
+        return addr instanceof Inet6Address ? AddressFamily.IPV6 : AddressFamily.IPV4;
+    }
+
+    /**
+     * <p>Configures how connections are established. Up to maxPendingConnections connection attempts may be in flight
+     * at once, including their version handshake. While filling up to {@link #getMaxConnections()}, raceSurplus more
+     * attempts than needed are made, and those still pending once enough peers are connected are closed. This gets
+     * the group connected a lot faster when some addresses are slow or dead, e.g. over Tor.</p>
+     *
+     * <p>The defaults are {@link #DEFAULT_MAX_PENDING_CONNECTIONS} and {@link #DEFAULT_CONNECT_RACE_SURPLUS}.</p>
+     */
+    public void setConnectRace(int maxPendingConnections, int raceSurplus) {
+        checkArgument(maxPendingConnections > 0, "maxPendingConnections must be positive");
+        checkArgument(raceSurplus >= 0, "raceSurplus must not be negative");
+        lock.lock();
+        try {
+            this.maxPendingConnections = maxPendingConnections;
+            this.connectRaceSurplus = raceSurplus;
+        } finally {
+            lock.unlock();
+        }
+        triggerConnections();
+    }
+
+    /**
+     * Returns how many milliseconds it took from starting the group until the first peer was connected, or -1 if that
+     * didn't happen yet.
+     */
+    public long getTimeToFirstPeerMillis() {
+        return vTimeToFirstPeerMillis;
+    }
+
+    /**
+     * Returns how many milliseconds it took from starting the group until {@link #getMaxConnections()} peers were
+     * connected for the first time, or -1 if that didn't happen yet.
+     */
+    public long getTimeToFullPeersMillis() {
+        return vTimeToFullPeersMillis;
+    }
+
     /**
      * Check if we are already connected to the peer.
      * @param addrToTry peer to connect to
@@ -525,15 +654,17 @@ public class PeerGroup implements TransactionBroadcaster {
      * @return return false if already connected or pending.
      */
     private boolean shouldAttemptConnect(PeerAddress addrToTry) {
+        // Addresses from discovery have no hostname, so compare the socket addresses, which hold either.
+        InetSocketAddress socketAddress = addrToTry.toSocketAddress();
         for(Peer p : peers) {
-            if(p.peerAddress.getHostname().equals(addrToTry.getHostname())) {
-                log.info("Already connected to {} ", addrToTry.getHostname());
+            if(p.peerAddress.toSocketAddress().equals(socketAddress)) {
+                log.info("Already connected to {} ", addrToTry);
                 return false;
             }
         }
         for(Peer p : pendingPeers) {
-            if(p.peerAddress.getHostname().equals(addrToTry.getHostname())) {
-                log.info("Already connecting to {} ", addrToTry.getHostname());
+            if(p.peerAddress.toSocketAddress().equals(socketAddress)) {
+                log.info("Already connecting to {} ", addrToTry);
                 return false;
             }
         }
@@ -1044,6 +1175,7 @@ public class PeerGroup implements TransactionBroadcaster {
         checkState(!vUsedUp, "Cannot start a peer group twice");
         vRunning = true;
         vUsedUp = true;
+        vStartTimeMillis = Utils.currentTimeMillis();
         executorStartupLatch.countDown();
         // We do blocking waits during startup, so run on the executor thread.
         return executor.submit(new Runnable() {
@@ -1078,6 +1210,13 @@ public class PeerGroup implements TransactionBroadcaster {
                     Stopwatch watch = Stopwatch.createStarted();
                     // The log output this creates can be useful.
                     setDownloadPeer(null);
+                    lock.lock();
+                    try {
+                        if (parallelDownload != null)
+                            parallelDownload.stop();
+                    } finally {
+                        lock.unlock();
+                    }
                     // Blocking close of all sockets.
                     channels.stopAsync();
                     channels.awaitTerminated();
@@ -1437,9 +1576,12 @@ public class PeerGroup implements TransactionBroadcaster {
                 }
             }
             this.downloadListener = listener;
-            // TODO: be more nuanced about which peer to download from.  We can also try
-            // downloading from multiple peers and handle the case when a new peer comes along
-            // with a longer chain after we thought we were done.
+            if (useParallelDownload()) {
+                if (parallelDownload == null && !peers.isEmpty())
+                    startParallelDownload();
+                return;
+            }
+            // TODO: handle the case when a new peer comes along with a longer chain after we thought we were done.
             if (!peers.isEmpty()) {
                 startBlockChainDownloadFromPeer(peers.iterator().next()); // Will add the new download listener
             }
@@ -1448,6 +1590,146 @@ public class PeerGroup implements TransactionBroadcaster {
         }
     }
 
+    /**
+     * <p>Sets how many peers the block chain is downloaded from at the same time. With more than one, the headers are
+     * fetched from one peer and the blocks are spread over the others in small ranges, which is a lot faster when the
+     * peers are slow, e.g. over Tor. A peer that stalls has its blocks requested from another one. Once caught up, new
+     * blocks are followed through a single download peer as usual.</p>
+     *
+     * <p>Call this before starting block chain download. The default is 1.</p>
+     */
+    public void setMaxDownloadPeers(int maxDownloadPeers) {
+        checkArgument(maxDownloadPeers > 0, "maxDownloadPeers must be positive");
+        lock.lock();
+        try {
+            this.maxDownloadPeers = maxDownloadPeers;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Returns how many peers the block chain is downloaded from at the same time, see {@link #setMaxDownloadPeers(int)}. */
+    public int getMaxDownloadPeers() {
+        lock.lock();
+        try {
+            return maxDownloadPeers;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * <p>Switches block chain download to headers-first: headers are checked for proof of work and difficulty and put
+     * into the block store as soon as they arrive, while the blocks the wallets need (those after the fast catchup time)
+     * follow separately, from up to {@link #getMaxDownloadPeers()} peers. The rates of both can be watched through
+     * {@link #getHeaderDownloadRate()} and {@link #getBlockDownloadRate()}.</p>
+     *
+     * <p>Call this before starting block chain download. Not compatible with fully verifying chains.</p>
+     */
+    public void setHeadersFirst(boolean headersFirst) {
+        lock.lock();
+        try {
+            checkState(chain == null || !chain.shouldVerifyTransactions(), "Headers first is incompatible with fully verifying");
+            this.headersFirst = headersFirst;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Returns whether block chain download is headers-first, see {@link #setHeadersFirst(boolean)}. */
+    public boolean isHeadersFirst() {
+        lock.lock();
+        try {
+            return headersFirst;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * <p>Sets whether the download peer is replaced by a faster one while the block chain is downloaded. Every
+     * {@link #DOWNLOAD_PEER_ROTATION_INTERVAL_SECS} seconds the connected peers are compared by their
+     * {@link PeerPerformance}: their ping time, and how often they stalled. If one is at least twice as fast as the
+     * download peer, the download continues from it. The default is true.</p>
+     *
+     * <p>This doesn't apply to multi-peer and headers-first downloads, which spread the work by themselves.</p>
+     */
+    public void setDownloadPeerRotation(boolean rotate) {
+        vDownloadPeerRotation = rotate;
+    }
+
+    /** Returns whether the download peer is replaced by a faster one, see {@link #setDownloadPeerRotation(boolean)}. */
+    public boolean isDownloadPeerRotation() {
+        return vDownloadPeerRotation;
+    }
+
+    /**
+     * Returns how many headers per second the current or last headers-first or multi-peer chain download received, or
+     * zero if there was none.
+     */
+    public double getHeaderDownloadRate() {
+        ParallelChainDownload download = vLastParallelDownload;
+        return download != null ? download.getHeaderRate() : 0;
+    }
+
+    /**
+     * Returns how many blocks per second the current or last headers-first or multi-peer chain download received, not
+     * counting those before the fast catchup time, or zero if there was none.
+     */
+    public double getBlockDownloadRate() {
+        ParallelChainDownload download = vLastParallelDownload;
+        return download != null ? download.getBlockRate() : 0;
+    }
+
+    // Whether the chain is downloaded by a ParallelChainDownload rather than by a single download peer.
+    @GuardedBy("lock")
+    private boolean useParallelDownload() {
+        return (maxDownloadPeers > 1 || headersFirst) && chain != null;
+    }
+
+    @GuardedBy("lock")
+    private void startParallelDownload() {
+        setDownloadPeer(null);
+        final ParallelChainDownload download = new ParallelChainDownload(chain, executor, wallets, fastCatchupTimeSecs,
+                bloomFilterMerger.getLastFilter() != null, downloadListener, maxDownloadPeers, headersFirst);
+        parallelDownload = download;
+        vLastParallelDownload = download;
+        ListenableFuture<Void> result = download.start();
+        for (Peer peer : peers)
+            download.addPeer(peer);
+        Futures.addCallback(result, new FutureCallback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+                finishParallelDownload(download);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                log.info("Parallel chain download stopped: {}", t.toString());
+                finishParallelDownload(download);
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    // Continues with a single download peer, which keeps us in sync or recovers from whatever stopped the download.
+    private void finishParallelDownload(ParallelChainDownload download) {
+        lock.lock();
+        try {
+            if (parallelDownload != download || !isRunning())
+                return;
+            parallelDownload = null;
+            Peer newDownloadPeer = selectDownloadPeer(peers);
+            if (newDownloadPeer != null) {
+                if (downloadListener != null)
+                    startBlockChainDownloadFromPeer(newDownloadPeer);
+                else
+                    setDownloadPeer(newDownloadPeer);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * Register a data event listener against a single peer (i.e. for blockchain
      * download). Handling registration/deregistration on peer death/add is
@@ -1500,15 +1782,46 @@ public class PeerGroup implements TransactionBroadcaster {
             peers.add(peer);
             newSize = peers.size();
             log.info("{}: New peer      ({} connected, {} pending, {} max)", peer, newSize, pendingPeers.size(), maxConnections);
+            if (racingPeers.remove(peer) && racingPeers.isEmpty())
+                raceRoundFailed = false;
+            long elapsed = Utils.currentTimeMillis() - vStartTimeMillis;
+            if (vTimeToFirstPeerMillis < 0) {
+                vTimeToFirstPeerMillis = elapsed;
+                log.info("First peer connected after {} ms", elapsed);
+            }
+            if (newSize >= maxConnections) {
+                if (vTimeToFullPeersMillis < 0 && maxConnections > 0) {
+                    vTimeToFullPeersMillis = elapsed;
+                    log.info("{} peers connected after {} ms", newSize, elapsed);
+                }
+                // The attempts still pending lost the race. Closing them may call back into handlePeerDeath.
+                List<Peer> losers = new ArrayList<>(racingPeers);
+                racingPeers.clear();
+                raceRoundFailed = false;
+                raceLosers.addAll(losers);
+                for (Peer loser : losers) {
+                    log.info("{}: Closing, enough peers are connected", loser.getAddress());
+                    loser.close();
+                }
+            } else if (pendingPeers.size() + 1 >= maxPendingConnections) {
+                // The attempt that finished made room for another.
+                triggerConnections();
+            }
             // Give the peer a filter that can be used to probabilistically drop transactions that
             // aren't relevant to our wallet. We may still receive some false positives, which is
             // OK because it helps improve wallet privacy. Old nodes will just ignore the message.
             if (bloomFilterMerger.getLastFilter() != null) peer.setBloomFilter(bloomFilterMerger.getLastFilter());
             peer.setDownloadData(false);
+            peer.setMaxInventoryBatchSize(maxInventoryBatchSize);
             // TODO: The peer should calculate the fast catchup time from the added wallets here.
             for (Wallet wallet : wallets)
                 peer.addWallet(wallet);
-            if (downloadPeer == null && newSize > maxConnections / 2) {
+            if (parallelDownload != null) {
+                parallelDownload.addPeer(peer);
+            } else if (downloadPeer == null && newSize > maxConnections / 2 && useParallelDownload()
+                    && downloadListener != null) {
+                startParallelDownload();
+            } else if (downloadPeer == null && newSize > maxConnections / 2) {
                 Peer newDownloadPeer = selectDownloadPeer(peers);
                 if (newDownloadPeer != null) {
                     setDownloadPeer(newDownloadPeer);
@@ -1661,10 +1974,16 @@ public class PeerGroup implements TransactionBroadcaster {
         try {
             pendingPeers.remove(peer);
             peers.remove(peer);
+            boolean racer = racingPeers.remove(peer);
+
+            // If we closed it because it lost a connection race, that isn't held against it.
+            boolean raceLoser = raceLosers.remove(peer);
 
             PeerAddress address = peer.getAddress();
 
             log.info("{}: Peer died      ({} connected, {} pending, {} max)", address, peers.size(), pendingPeers.size(), maxConnections);
+            if (parallelDownload != null)
+                parallelDownload.removePeer(peer);
             if (peer == downloadPeer) {
                 log.info("Download peer died. Picking a new one.");
                 setDownloadPeer(null);
@@ -1680,9 +1999,14 @@ public class PeerGroup implements TransactionBroadcaster {
             numPeers = peers.size() + pendingPeers.size();
             numConnectedPeers = peers.size();
 
-            groupBackoff.trackFailure();
+            if (!raceLoser && !(racer && raceRoundFailed))
+                groupBackoff.trackFailure();
+            if (racer)
+                raceRoundFailed = !racingPeers.isEmpty();
 
-            if (exception instanceof NoRouteToHostException) {
+            if (raceLoser) {
+                inactives.offer(address);
+            } else if (exception instanceof NoRouteToHostException) {
                 if (address.getAddr() instanceof Inet6Address && !ipv6Unreachable) {
                     ipv6Unreachable = true;
                     log.warn("IPv6 peer connect failed due to routing failure, ignoring IPv6 addresses from now on");
@@ -1865,6 +2189,7 @@ public class PeerGroup implements TransactionBroadcaster {
                             log.warn(String.format(Locale.US,
                                     "Chain download stalled: received %.2f KB/sec for %d seconds, require average of %.2f KB/sec, disconnecting %s, %d stalls left",
                                     average / 1024.0, samples.length, minSpeedBytesPerSec / 1024.0, peer, maxStalls));
+                            peer.getPerformance().recordStall();
                             peer.close();
                             // Reset the sample buffer and give the next peer time to get going.
                             samples = null;
@@ -1892,6 +2217,12 @@ public class PeerGroup implements TransactionBroadcaster {
                 // Every second, run the calculator which will log how fast we are downloading the chain.
                 chainDownloadSpeedCalculator = new ChainDownloadSpeedCalculator();
                 executor.scheduleAtFixedRate(chainDownloadSpeedCalculator, 1, 1, TimeUnit.SECONDS);
+                executor.scheduleWithFixedDelay(new Runnable() {
+                    @Override
+                    public void run() {
+                        maybeRotateDownloadPeer();
+                    }
+                }, DOWNLOAD_PEER_ROTATION_INTERVAL_SECS, DOWNLOAD_PEER_ROTATION_INTERVAL_SECS, TimeUnit.SECONDS);
             }
             peer.addBlocksDownloadedEventListener(Threading.SAME_THREAD, chainDownloadSpeedCalculator);
 
@@ -2147,6 +2478,62 @@ public class PeerGroup implements TransactionBroadcaster {
         }
     }
 
+    /**
+     * <p>Makes peers announce transactions with inv messages that are sent in batches, instead of sending every
+     * transaction right away in a message of its own. Every flushIntervalMillis, or as soon as maxBatchSize
+     * transactions are queued for a peer, they are announced in one inv and the peer fetches them with a getdata,
+     * see {@link Peer#announce(Transaction)}.
+     * The order of the announcements is preserved.</p>
+     *
+     * <p>This is for services that broadcast a lot of transactions: it takes far fewer messages, and the interval
+     * also hides which transactions were created at the same time. For a wallet that sends a transaction now and
+     * then, it's only slower. A flush interval of 0, the default, turns batching off.</p>
+     */
+    public void setInventoryBatching(long flushIntervalMillis, int maxBatchSize) {
+        checkArgument(flushIntervalMillis >= 0, "flushIntervalMillis must not be negative");
+        checkArgument(maxBatchSize > 0 && maxBatchSize <= InventoryMessage.MAX_INVENTORY_ITEMS,
+                "maxBatchSize out of range");
+        lock.lock();
+        try {
+            inventoryFlushIntervalMillis = flushIntervalMillis;
+            maxInventoryBatchSize = flushIntervalMillis > 0 ? maxBatchSize : 1;
+            if (inventoryFlushTask != null) {
+                inventoryFlushTask.cancel(false);
+                inventoryFlushTask = null;
+            }
+            for (Peer peer : peers) {
+                peer.setMaxInventoryBatchSize(maxInventoryBatchSize);
+                if (flushIntervalMillis == 0)
+                    peer.flushInventory();
+            }
+            if (flushIntervalMillis > 0) {
+                inventoryFlushTask = executor.scheduleAtFixedRate(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            for (Peer peer : getConnectedPeers())
+                                peer.flushInventory();
+                        } catch (Throwable e) {
+                            log.error("Exception in inventory flush loop", e);  // The executor swallows exceptions :(
+                        }
+                    }
+                }, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Returns whether inventory is announced in batches, see {@link #setInventoryBatching(long, int)}. */
+    public boolean isInventoryBatching() {
+        lock.lock();
+        try {
+            return inventoryFlushIntervalMillis > 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * If a peer is connected to that claims to speak a protocol version lower than the given version, it will
      * be disconnected and another one will be tried instead.
@@ -2266,8 +2653,65 @@ public class PeerGroup implements TransactionBroadcaster {
         }
         if (candidates2.isEmpty())
             return null;
-        int index = (int) (Math.random() * candidates2.size());
-        return candidates2.get(index);
+        // Prefer the fastest peers we know of, and pick randomly amongst equals (e.g. when we know nothing yet).
+        long lowestCost = Long.MAX_VALUE;
+        ArrayList<Peer> fastest = new ArrayList<>(candidates2.size());
+        for (Peer peer : candidates2) {
+            long cost = downloadCost(peer);
+            if (cost < lowestCost) {
+                lowestCost = cost;
+                fastest.clear();
+            }
+            if (cost == lowestCost)
+                fastest.add(peer);
+        }
+        int index = (int) (Math.random() * fastest.size());
+        return fastest.get(index);
+    }
+
+    /**
+     * Estimates how long the given peer takes to serve us, in milliseconds: its ping time, or the median time it took
+     * to answer our getdata requests if it wasn't pinged yet, doubled for each time it stalled. Returns
+     * {@link Long#MAX_VALUE} if we know nothing about the peer yet.
+     */
+    static long downloadCost(Peer peer) {
+        PeerPerformance performance = peer.getPerformance();
+        long cost = peer.getPingTime();
+        if (cost == Long.MAX_VALUE)
+            cost = performance.getGetDataLatencyPercentile(50);
+        if (cost == Long.MAX_VALUE)
+            return cost;
+        int stalls = Math.min(performance.getStallCount(), 16);
+        return Math.max(cost, 1) << stalls;
+    }
+
+    // Moves the chain download over to a much faster peer, if there is one and we're still behind.
+    private void maybeRotateDownloadPeer() {
+        if (!vDownloadPeerRotation)
+            return;
+        lock.lock();
+        try {
+            Peer current = downloadPeer;
+            if (current == null || parallelDownload != null || downloadListener == null || chain == null
+                    || !isRunning())
+                return;
+            if (chain.getBestChainHeight() >= current.getBestHeight())
+                return;
+            Peer fastest = selectDownloadPeer(peers);
+            if (fastest == null || fastest == current)
+                return;
+            long currentCost = downloadCost(current);
+            long fastestCost = downloadCost(fastest);
+            if (fastestCost == Long.MAX_VALUE || fastestCost > currentCost / 2)
+                return;
+            log.info("Switching download peer to {} ({} ms) from {} ({} ms, {})", fastest, fastestCost, current,
+                    currentCost == Long.MAX_VALUE ? "?" : currentCost, current.getPerformance());
+            startBlockChainDownloadFromPeer(fastest);
+        } catch (Throwable e) {
+            log.error("Exception in download peer rotation", e);  // The executor swallows exceptions :(
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -0,0 +1,133 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bitcoinj.core;
+
+import net.jcip.annotations.GuardedBy;
+
+import java.util.Arrays;
+
+/**
+ * <p>Measures how well a peer serves us: how many bytes and messages per second it sends, how long it takes to answer
+ * getdata requests and how often it stalled. Rates are moving averages over roughly the last
+ * {@link #RATE_TIME_CONSTANT_SECS} seconds, latencies are taken from the last {@link #LATENCY_SAMPLES} answers.</p>
+ *
+ * <p>{@link PeerGroup} uses this to pick the download peer and to move to a faster one, see
+ * {@link PeerGroup#setDownloadPeerRotation(boolean)}. Instances are thread safe.</p>
+ */
+public class PeerPerformance {
+    /** The time constant of the moving averages of the rates. */
+    public static final int RATE_TIME_CONSTANT_SECS = 10;
+    /** How many of the most recent getdata latencies are kept for percentiles. */
+    public static final int LATENCY_SAMPLES = 128;
+
+    private final long createdMillis = Utils.currentTimeMillis();
+
+    @GuardedBy("this") private long totalBytes, totalMessages;
+    @GuardedBy("this") private double bytesPerSecond, messagesPerSecond;
+    @GuardedBy("this") private long rateUpdateMillis = createdMillis, bytesSinceUpdate, messagesSinceUpdate;
+    @GuardedBy("this") private final long[] latencies = new long[LATENCY_SAMPLES];
+    @GuardedBy("this") private int latencyCount;
+    @GuardedBy("this") private int stallCount;
+
+    /** Records a message of the given size, including its header, received from the peer. */
+    public synchronized void recordMessage(int bytes) {
+        updateRates();
+        totalBytes += bytes;
+        totalMessages++;
+        bytesSinceUpdate += bytes;
+        messagesSinceUpdate++;
+    }
+
+    /** Records the time it took the peer to answer a getdata request. */
+    public synchronized void recordGetDataLatency(long millis) {
+        latencies[latencyCount % LATENCY_SAMPLES] = millis;
+        latencyCount++;
+    }
+
+    /** Records that the peer failed to deliver what we asked for in time. */
+    public synchronized void recordStall() {
+        stallCount++;
+    }
+
+    /** Returns the moving average of the bytes received per second. */
+    public synchronized double getBytesPerSecond() {
+        updateRates();
+        return bytesPerSecond;
+    }
+
+    /** Returns the moving average of the messages received per second. */
+    public synchronized double getMessagesPerSecond() {
+        updateRates();
+        return messagesPerSecond;
+    }
+
+    /** Returns the number of bytes received, including message headers. */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /** Returns the number of messages received. */
+    public synchronized long getTotalMessages() {
+        return totalMessages;
+    }
+
+    /** Returns the number of answered getdata requests. */
+    public synchronized int getGetDataResponseCount() {
+        return latencyCount;
+    }
+
+    /**
+     * Returns the given percentile, between 0 and 100, of the recent getdata latencies in milliseconds, or
+     * {@link Long#MAX_VALUE} if no getdata was answered yet.
+     */
+    public long getGetDataLatencyPercentile(double percentile) {
+        long[] sorted;
+        synchronized (this) {
+            if (latencyCount == 0)
+                return Long.MAX_VALUE;
+            sorted = Arrays.copyOf(latencies, Math.min(latencyCount, LATENCY_SAMPLES));
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    /** Returns how often the peer stalled. */
+    public synchronized int getStallCount() {
+        return stallCount;
+    }
+
+    // Folds what was received since the last update into the moving averages, once a second at most.
+    @GuardedBy("this")
+    private void updateRates() {
+        long now = Utils.currentTimeMillis();
+        long elapsedMillis = now - rateUpdateMillis;
+        if (elapsedMillis < 1000)
+            return;
+        double elapsedSecs = elapsedMillis / 1000.0;
+        double weight = 1 - Math.exp(-elapsedSecs / RATE_TIME_CONSTANT_SECS);
+        bytesPerSecond += weight * (bytesSinceUpdate / elapsedSecs - bytesPerSecond);
+        messagesPerSecond += weight * (messagesSinceUpdate / elapsedSecs - messagesPerSecond);
+        bytesSinceUpdate = 0;
+        messagesSinceUpdate = 0;
+        rateUpdateMillis = now;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(java.util.Locale.US, "%.1f KB/sec, %.1f msg/sec, %d stalls, %d getdata answers",
+                bytesPerSecond / 1024, messagesPerSecond, stallCount, latencyCount);
+    }
+}
@@ -20,6 +20,7 @@ import org.bitcoinj.net.AbstractTimeoutHandler;
 import org.bitcoinj.net.MessageWriteTarget;
 import org.bitcoinj.net.NioClient;
 import org.bitcoinj.net.NioClientManager;
+import org.bitcoinj.net.SerializingMessageWriteTarget;
 import org.bitcoinj.net.StreamConnection;
 import org.bitcoinj.utils.Threading;
 import com.google.common.annotations.VisibleForTesting;
@@ -33,7 +34,6 @@ import java.net.InetSocketAddress;
 import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.channels.NotYetConnectedException;
-import java.util.concurrent.locks.Lock;
 
 import static com.google.common.base.Preconditions.*;
 
@@ -43,22 +43,27 @@ import static com.google.common.base.Preconditions.*;
  */
 public abstract class PeerSocketHandler extends AbstractTimeoutHandler implements StreamConnection {
     private static final Logger log = LoggerFactory.getLogger(PeerSocketHandler.class);
-    private final Lock lock = Threading.lock(PeerSocketHandler.class);
 
     private final MessageSerializer serializer;
     protected PeerAddress peerAddress;
     // If we close() before we know our writeTarget, set this to true to call writeTarget.closeConnection() right away.
-    private boolean closePending = false;
-    // writeTarget will be thread-safe, and may call into PeerGroup, which calls us, so we should call it unlocked
-    @VisibleForTesting protected MessageWriteTarget writeTarget = null;
+    // close() sets this before reading writeTarget and setWriteTarget() sets writeTarget before reading this, so at
+    // least one of them closes the connection (closing twice is harmless).
+    private volatile boolean closePending = false;
+    // writeTarget will be thread-safe, and may call into PeerGroup, which calls us
+    @VisibleForTesting protected volatile MessageWriteTarget writeTarget = null;
 
     // The ByteBuffers passed to us from the writeTarget are static in size, and usually smaller than some messages we
     // will receive. For SPV clients, this should be rare (ie we're mostly dealing with small transactions), but for
-    // messages which are larger than the read buffer, we have to keep a temporary buffer with its bytes.
+    // messages which are larger than the read buffer, we have to keep a temporary buffer with its bytes. It comes from
+    // a pool and is usually longer than the message, which takes up its first header.size bytes.
+    private final PayloadBufferPool largeReadBufferPool = PayloadBufferPool.SHARED;
     private byte[] largeReadBuffer;
     private int largeReadBufferPos;
     private BitcoinSerializer.BitcoinPacketHeader header;
 
+    private final PeerPerformance performance = new PeerPerformance();
+
     public PeerSocketHandler(NetworkParameters params, InetSocketAddress remoteIp) {
         checkNotNull(params);
         serializer = params.getDefaultSerializer();
@@ -77,37 +82,38 @@ public abstract class PeerSocketHandler extends AbstractTimeoutHandler implement
      * TODO: Maybe use something other than the unchecked NotYetConnectedException here
      */
     public void sendMessage(Message message) throws NotYetConnectedException {
-        lock.lock();
-        try {
-            if (writeTarget == null)
-                throw new NotYetConnectedException();
-        } finally {
-            lock.unlock();
-        }
-        // TODO: Some round-tripping could be avoided here
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MessageWriteTarget writeTarget = this.writeTarget;
+        if (writeTarget == null)
+            throw new NotYetConnectedException();
         try {
-            serializer.serialize(message, out);
-            writeTarget.writeBytes(out.toByteArray());
+            if (writeTarget instanceof SerializingMessageWriteTarget) {
+                // Serialize straight into the connection's outbound buffers.
+                ((SerializingMessageWriteTarget) writeTarget).writeMessage(serializer, message);
+            } else {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                serializer.serialize(message, out);
+                writeTarget.writeBytes(out.toByteArray());
+            }
         } catch (IOException e) {
             exceptionCaught(e);
         }
     }
 
+    /**
+     * Returns the statistics on how fast this peer sends us data and answers our requests.
+     */
+    public PeerPerformance getPerformance() {
+        return performance;
+    }
+
     /**
      * Closes the connection to the peer if one exists, or immediately closes the connection as soon as it opens
      */
     public void close() {
-        lock.lock();
-        try {
-            if (writeTarget == null) {
-                closePending = true;
-                return;
-            }
-        } finally {
-            lock.unlock();
-        }
-        writeTarget.closeConnection();
+        closePending = true;
+        MessageWriteTarget writeTarget = this.writeTarget;
+        if (writeTarget != null)
+            writeTarget.closeConnection();
     }
 
     @Override
@@ -134,15 +140,23 @@ public abstract class PeerSocketHandler extends AbstractTimeoutHandler implement
                     // This can only happen in the first iteration
                     checkState(firstMessage);
                     // Read new bytes into the largeReadBuffer
-                    int bytesToGet = Math.min(buff.remaining(), largeReadBuffer.length - largeReadBufferPos);
+                    int bytesToGet = Math.min(buff.remaining(), header.size - largeReadBufferPos);
                     buff.get(largeReadBuffer, largeReadBufferPos, bytesToGet);
                     largeReadBufferPos += bytesToGet;
                     // Check the largeReadBuffer's status
-                    if (largeReadBufferPos == largeReadBuffer.length) {
-                        // ...processing a message if one is available
-                        processMessage(serializer.deserializePayload(header, ByteBuffer.wrap(largeReadBuffer)));
-                        largeReadBuffer = null;
-                        header = null;
+                    if (largeReadBufferPos == header.size) {
+                        // ...processing a message if one is available. The buffer isn't referenced by the message, so
+                        // it can go back to the pool before the message is processed.
+                        Message message;
+                        try {
+                            message = serializer.deserializePayload(header, largeReadBuffer);
+                            performance.recordMessage(4 + BitcoinSerializer.BitcoinPacketHeader.HEADER_LENGTH + header.size);
+                        } finally {
+                            largeReadBufferPool.release(largeReadBuffer);
+                            largeReadBuffer = null;
+                            header = null;
+                        }
+                        processMessage(message);
                         firstMessage = false;
                     } else // ...or just returning if we don't have enough bytes yet
                         return buff.position();
@@ -162,7 +176,7 @@ public abstract class PeerSocketHandler extends AbstractTimeoutHandler implement
                             header = serializer.deserializeHeader(buff);
                             // Initialize the largeReadBuffer with the next message's size and fill it with any bytes
                             // left in buff
-                            largeReadBuffer = new byte[header.size];
+                            largeReadBuffer = largeReadBufferPool.acquire(header.size);
                             largeReadBufferPos = buff.remaining();
                             buff.get(largeReadBuffer, 0, largeReadBufferPos);
                         } catch (BufferUnderflowException e1) {
@@ -180,6 +194,7 @@ public abstract class PeerSocketHandler extends AbstractTimeoutHandler implement
                     return buff.position();
                 }
                 // Process our freshly deserialized message
+                performance.recordMessage(buff.position() - preSerializePosition);
                 processMessage(message);
                 firstMessage = false;
             }
@@ -197,16 +212,9 @@ public abstract class PeerSocketHandler extends AbstractTimeoutHandler implement
     @Override
     public void setWriteTarget(MessageWriteTarget writeTarget) {
         checkArgument(writeTarget != null);
-        lock.lock();
-        boolean closeNow = false;
-        try {
-            checkArgument(this.writeTarget == null);
-            closeNow = closePending;
-            this.writeTarget = writeTarget;
-        } finally {
-            lock.unlock();
-        }
-        if (closeNow)
+        checkArgument(this.writeTarget == null);
+        this.writeTarget = writeTarget;
+        if (closePending)
             writeTarget.closeConnection();
     }
 
@@ -18,9 +18,14 @@ package org.bitcoinj.core;
 
 import org.bitcoinj.store.BlockStore;
 import org.bitcoinj.store.BlockStoreException;
+import org.bitcoinj.store.HeightIndexedBlockStore;
 
+import javax.annotation.Nullable;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
 
@@ -122,6 +127,43 @@ public class StoredBlock {
         return store.get(getHeader().getPrevBlockHash());
     }
 
+    /**
+     * Returns up to {@code count} blocks of the chain ending in this block, oldest first and this block last. Fewer
+     * blocks are returned if the chain starts at genesis sooner or the store doesn't have older blocks.
+     *
+     * <p>If the store is a {@link HeightIndexedBlockStore} and this block is on its best chain, the blocks are fetched
+     * with a single range read. Otherwise, or if the range doesn't link up to this block, the chain is walked back one
+     * {@link #getPrev(BlockStore)} at a time.</p>
+     */
+    public List<StoredBlock> getRecent(BlockStore store, int count) throws BlockStoreException {
+        int from = Math.max(0, height - count + 1);
+        if (store instanceof HeightIndexedBlockStore) {
+            List<StoredBlock> range = ((HeightIndexedBlockStore) store).getRange(from, height + 1);
+            if (range.size() == height + 1 - from && isLinkedUpTo(range))
+                return range;
+        }
+        List<StoredBlock> recent = new ArrayList<>(Math.min(count, height + 1));
+        StoredBlock cursor = this;
+        while (cursor != null && recent.size() < count) {
+            recent.add(cursor);
+            cursor = cursor.getHeight() > 0 ? cursor.getPrev(store) : null;
+        }
+        Collections.reverse(recent);
+        return recent;
+    }
+
+    /** Returns true if the given blocks are consecutive blocks of one chain and the last one is this block. */
+    private boolean isLinkedUpTo(List<StoredBlock> blocks) {
+        if (blocks.isEmpty() || !blocks.get(blocks.size() - 1).getHeader().getHash().equals(getHeader().getHash()))
+            return false;
+        for (int i = 1; i < blocks.size(); i++) {
+            Sha256Hash prevHash = blocks.get(i).getHeader().getPrevBlockHash();
+            if (!prevHash.equals(blocks.get(i - 1).getHeader().getHash()))
+                return false;
+        }
+        return true;
+    }
+
     /** Serializes the stored block to a custom packed format. Used by {@link CheckpointManager}. */
     public void serializeCompact(ByteBuffer buffer) {
         byte[] chainWorkBytes = getChainWork().toByteArray();
@@ -140,13 +182,26 @@ public class StoredBlock {
 
     /** De-serializes the stored block from a custom packed format. Used by {@link CheckpointManager}. */
     public static StoredBlock deserializeCompact(NetworkParameters params, ByteBuffer buffer) throws ProtocolException {
+        return deserializeCompact(params, buffer, null);
+    }
+
+    /**
+     * De-serializes the stored block from a custom packed format. If the hash of the header is already known, for
+     * example because the block store looked the record up by it, pass it as {@code trustedHash} and it will be
+     * attached to the header instead of being recomputed.
+     */
+    public static StoredBlock deserializeCompact(NetworkParameters params, ByteBuffer buffer,
+                                                 @Nullable Sha256Hash trustedHash) throws ProtocolException {
         byte[] chainWorkBytes = new byte[StoredBlock.CHAIN_WORK_BYTES];
         buffer.get(chainWorkBytes);
         BigInteger chainWork = new BigInteger(1, chainWorkBytes);
         int height = buffer.getInt();  // +4 bytes
         byte[] header = new byte[Block.HEADER_SIZE + 1];    // Extra byte for the 00 transactions length.
         buffer.get(header, 0, Block.HEADER_SIZE);
-        return new StoredBlock(params.getDefaultSerializer().makeBlock(header), chainWork, height);
+        Block block = params.getDefaultSerializer().makeBlock(header);
+        if (trustedHash != null)
+            block.setTrustedHash(trustedHash);
+        return new StoredBlock(block, chainWork, height);
     }
 
     @Override
@@ -147,6 +147,10 @@ public class TransactionBroadcast {
             // transaction or not. However, we are not a fully validating node and this is advertised in
             // our version message, as SPV nodes cannot relay it doesn't give away any additional information
             // to skip the inv here - we wouldn't send invs anyway.
+            //
+            // The exception is a PeerGroup that batches inventory: there many transactions are broadcast in a short
+            // time, and announcing them a batch at a time takes far fewer messages.
+            boolean announce = peerGroup.isInventoryBatching();
             int numConnected = peers.size();
             int numToBroadcastTo = (int) Math.max(1, Math.round(Math.ceil(peers.size() / 2.0)));
             numWaitingFor = (int) Math.ceil((peers.size() - numToBroadcastTo) / 2.0);
@@ -156,7 +160,10 @@ public class TransactionBroadcast {
             log.info("Sending to {} peers, will wait for {}, sending to: {}", numToBroadcastTo, numWaitingFor, Joiner.on(",").join(peers));
             for (Peer peer : peers) {
                 try {
-                    peer.sendMessage(tx);
+                    if (announce)
+                        peer.announce(tx);
+                    else
+                        peer.sendMessage(tx);
                     // We don't record the peer as having seen the tx in the memory pool because we want to track only
                     // how many peers announced to us.
                 } catch (Exception e) {
@@ -30,8 +30,6 @@ import java.util.concurrent.*;
 
 import static com.google.common.base.Preconditions.*;
 
-// TODO: Modify the getDepthInBlocks method to require the chain height to be specified, in preparation for ceasing to touch every tx on every block.
-
 /**
  * <p>A TransactionConfidence object tracks data you can use to make a confidence decision about a transaction.
  * It also contains some pre-canned rules for common scenarios: if you aren't really sure what level of confidence
@@ -56,8 +54,9 @@ import static com.google.common.base.Preconditions.*;
  * <p>Alternatively, you may know that the transaction is "dead", that is, one or more of its inputs have
  * been double spent and will never confirm unless there is another re-org.</p>
  *
- * <p>TransactionConfidence is updated via the {@link TransactionConfidence#incrementDepthInBlocks()}
- * method to ensure the block depth is up to date.</p>
+ * <p>The block depth is derived from the {@link DepthTracker} the confidence is attached to, see
+ * {@link #setDepthTracker(DepthTracker)}, so it stays up to date without touching every transaction on every block.
+ * A confidence that isn't attached to a tracker has to be updated via {@link #incrementDepthInBlocks()}.</p>
  * To make a copy that won't be changed, use {@link TransactionConfidence#duplicate()}.
  */
 public class TransactionConfidence {
@@ -80,8 +79,20 @@ public class TransactionConfidence {
     // Lazily created listeners array.
     private CopyOnWriteArrayList<ListenerRegistration<Listener>> listeners;
 
-    // The depth of the transaction on the best chain in blocks. An unconfirmed block has depth 0.
+    // The depth of the transaction on the best chain in blocks. An unconfirmed block has depth 0. If there is a depth
+    // tracker and the transaction is building, this is the depth at the time the tracker had counted depthAnchor blocks.
     private int depth;
+    @Nullable private DepthTracker depthTracker;
+    private int depthAnchor;
+    // The depths at which DEPTH listeners are to be run, and the lowest one that is queued with the tracker.
+    @Nullable private TreeSet<Integer> depthThresholds;
+    private int scheduledDepthThreshold;
+    private final Runnable depthReachedAction = new Runnable() {
+        @Override
+        public void run() {
+            depthReached();
+        }
+    };
 
     /** Describes the state of the transaction in general terms. Properties can be read to learn specifics. */
     public enum ConfidenceType {
@@ -258,7 +269,9 @@ public class TransactionConfidence {
             throw new IllegalArgumentException("appearedAtChainHeight out of range");
         this.appearedAtChainHeight = appearedAtChainHeight;
         this.depth = 1;
+        anchorDepth();
         setConfidenceType(ConfidenceType.BUILDING);
+        scheduleDepthThreshold();
     }
 
     /**
@@ -275,6 +288,9 @@ public class TransactionConfidence {
     public synchronized void setConfidenceType(ConfidenceType confidenceType) {
         if (confidenceType == this.confidenceType)
             return;
+        // Keep the depth the transaction had when it stopped building, it isn't derived from the tracker anymore.
+        if (this.confidenceType == ConfidenceType.BUILDING)
+            depth = getDepthInBlocks();
         this.confidenceType = confidenceType;
         if (confidenceType != ConfidenceType.DEAD) {
             overridingTransaction = null;
@@ -283,6 +299,29 @@ public class TransactionConfidence {
             depth = 0;
             appearedAtChainHeight = -1;
         }
+        if (confidenceType == ConfidenceType.BUILDING) {
+            anchorDepth();
+            scheduleDepthThreshold();
+        }
+    }
+
+    /**
+     * Attaches this confidence to the given tracker, which from now on keeps the depth up to date. The current depth
+     * is kept. Called by the {@link Wallet} a transaction is added to.
+     */
+    public synchronized void setDepthTracker(DepthTracker depthTracker) {
+        if (depthTracker == this.depthTracker)
+            return;
+        depth = getDepthInBlocks();
+        this.depthTracker = depthTracker;
+        anchorDepth();
+        scheduleDepthThreshold();
+    }
+
+    /** Returns the tracker that keeps the depth up to date, or null if it is incremented explicitly. */
+    @Nullable
+    public synchronized DepthTracker getDepthTracker() {
+        return depthTracker;
     }
 
 
@@ -376,7 +415,8 @@ public class TransactionConfidence {
      * @return the new depth
      */
     public synchronized int incrementDepthInBlocks() {
-        return ++this.depth;
+        ++this.depth;
+        return getDepthInBlocks();
     }
 
     /**
@@ -390,6 +430,8 @@ public class TransactionConfidence {
      * the depth is zero.</p>
      */
     public synchronized int getDepthInBlocks() {
+        if (depthTracker != null && confidenceType == ConfidenceType.BUILDING)
+            return depth + depthTracker.getBlockCount() - depthAnchor;
         return depth;
     }
 
@@ -398,6 +440,43 @@ public class TransactionConfidence {
      */
     public synchronized void setDepthInBlocks(int depth) {
         this.depth = depth;
+        anchorDepth();
+        scheduleDepthThreshold();
+    }
+
+    // Makes the stored depth relative to the current block count of the tracker.
+    private void anchorDepth() {
+        if (depthTracker != null)
+            depthAnchor = depthTracker.getBlockCount();
+        // Anything queued with the tracker was computed from the old anchor.
+        scheduledDepthThreshold = 0;
+    }
+
+    // Queues the lowest depth threshold not yet reached with the tracker, unless that was already done.
+    private void scheduleDepthThreshold() {
+        if (depthTracker == null || confidenceType != ConfidenceType.BUILDING || depthThresholds == null)
+            return;
+        if (depthThresholds.isEmpty() || depthThresholds.first() == scheduledDepthThreshold)
+            return;
+        int next = depthThresholds.first();
+        scheduledDepthThreshold = next;
+        depthTracker.runAtDepth(this, next, depthReachedAction);
+    }
+
+    // Called by the tracker once a queued depth threshold was reached.
+    private void depthReached() {
+        boolean reached;
+        synchronized (this) {
+            if (depthThresholds == null)
+                return;
+            SortedSet<Integer> passed = depthThresholds.headSet(getDepthInBlocks(), true);
+            reached = !passed.isEmpty();
+            passed.clear();
+            scheduledDepthThreshold = 0;
+            scheduleDepthThreshold();
+        }
+        if (reached)
+            queueListeners(Listener.ChangeReason.DEPTH);
     }
 
     /**
@@ -495,6 +574,12 @@ public class TransactionConfidence {
         final SettableFuture<TransactionConfidence> result = SettableFuture.create();
         if (getDepthInBlocks() >= depth) {
             result.set(this);
+        } else if (depth > 1) {
+            // Reaching depth one is a change of the confidence type, which listeners hear about anyway.
+            if (depthThresholds == null)
+                depthThresholds = new TreeSet<>();
+            depthThresholds.add(depth);
+            scheduleDepthThreshold();
         }
         addEventListener(executor, new Listener() {
             @Override public void onConfidenceChanged(TransactionConfidence confidence, ChangeReason reason) {
@@ -416,6 +416,13 @@ public class Utils {
         mockTime = new Date(mockClockSeconds * 1000);
     }
 
+    /**
+     * Clears the mock clock, so that the real time is used again.
+     */
+    public static void resetMocking() {
+        mockTime = null;
+    }
+
     /**
      * Returns the current time, or a mocked out equivalent.
      */
@@ -3,122 +3,230 @@ package org.bitcoinj.crypto;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import fr.cryptohash.BLAKE512;
-import fr.cryptohash.BMW512;
-import fr.cryptohash.CubeHash512;
-import fr.cryptohash.ECHO512;
-import fr.cryptohash.Fugue512;
-import fr.cryptohash.Groestl512;
-import fr.cryptohash.Hamsi512;
-import fr.cryptohash.JH512;
-import fr.cryptohash.Keccak512;
-import fr.cryptohash.Luffa512;
-import fr.cryptohash.SHAvite512;
-import fr.cryptohash.SIMD512;
-import fr.cryptohash.Skein512;
-
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Computes X13 hashes, using the native x13 library if it is available and the pure Java {@link X13Hasher}
+ * otherwise.</p>
+ *
+ * <p>The native library is loaded by {@link X13NativeLoader} and must then pass a self-test comparing its output with
+ * the Java implementation before it is used. If a native call fails later on, the hash is computed in Java instead.
+ * The counters exposed here show how many hashes each implementation computed and how often the native one
+ * failed.</p>
+ */
 public class X13 {
 
     private static final Logger log = LoggerFactory.getLogger(X13.class);
     private static boolean native_library_loaded = false;
+    private static boolean native_batch_available = false;
+
+    private static final AtomicLong nativeHashes = new AtomicLong();
+    private static final AtomicLong javaHashes = new AtomicLong();
+    private static final AtomicLong nativeFailures = new AtomicLong();
+    private static final AtomicLong nativeBatchCalls = new AtomicLong();
+
+    /** One reusable engine chain per thread, so the pure Java path does not allocate per hash. */
+    private static final ThreadLocal<X13Hasher> hasher = new ThreadLocal<X13Hasher>() {
+        @Override
+        protected X13Hasher initialValue() {
+            return new X13Hasher();
+        }
+    };
 
     static {
-
-        try {
-            log.info("Loading x13 native library...");
-            System.loadLibrary("x13");
-            native_library_loaded = true;
-            log.info("Loaded x13 successfully.");
-        }
-        catch(UnsatisfiedLinkError x)
-        {
-            log.info("Loading x13 failed: " + x.getMessage());
-        }
-        catch(Exception e)
-        {
-            native_library_loaded = false;
-            log.info("Loading x13 failed: " + e.getMessage());
+        log.info("Loading x13 native library...");
+        if (X13NativeLoader.load()) {
+            native_library_loaded = selfTest();
+            if (native_library_loaded)
+                native_batch_available = selfTestBatch();
+            log.info("x13 native library {}, batch hashing {}", native_library_loaded ? "enabled" : "disabled",
+                    native_batch_available ? "enabled" : "disabled");
         }
     }
 
+    /** Returns true if the native x13 library was loaded, passed its self-test and is used by {@link #x13Digest(byte[])}. */
+    public static boolean isNativeLibraryLoaded() {
+        return native_library_loaded;
+    }
+
+    /** Returns true if {@link #x13DigestBatch(byte[], int, int, int, int, byte[], boolean)} hashes in native code. */
+    public static boolean isNativeBatchAvailable() {
+        return native_batch_available;
+    }
+
+    /** Number of hashes computed by the native library. */
+    public static long getNativeHashCount() {
+        return nativeHashes.get();
+    }
+
+    /** Number of hashes computed by the pure Java implementation, including fallbacks after native failures. */
+    public static long getJavaHashCount() {
+        return javaHashes.get();
+    }
+
+    /** Number of native calls that failed and had to be redone in Java. */
+    public static long getNativeFailureCount() {
+        return nativeFailures.get();
+    }
+
+    /** Number of batch calls made into the native library. */
+    public static long getNativeBatchCallCount() {
+        return nativeBatchCalls.get();
+    }
+
     public static byte[] x13Digest(byte[] input, int offset, int length)
     {
-        byte [] buf = new byte[length];
-        for(int i = 0; i < length; ++i)
-        {
-            buf[i] = input[offset + i];
+        if (native_library_loaded) {
+            try {
+                byte[] result = x13_native(Arrays.copyOfRange(input, offset, offset + length));
+                if (result != null && result.length == X13Hasher.HASH_LENGTH) {
+                    nativeHashes.incrementAndGet();
+                    return result;
+                }
+                log.warn("x13 native library returned no result, falling back to Java");
+            } catch (Exception e) {
+                log.warn("x13 native library failed, falling back to Java", e);
+            }
+            nativeFailures.incrementAndGet();
         }
-        return x13Digest(buf);
+        javaHashes.incrementAndGet();
+        return hasher.get().digest(input, offset, length);
     }
 
     public static byte[] x13Digest(byte[] input) {
-        //long start = System.currentTimeMillis();
-        try {
-            return native_library_loaded ? x13_native(input) : x13(input);
-        /*long start = System.currentTimeMillis();
-        byte [] result = x13_native(input);
-        long end1 = System.currentTimeMillis();
-        byte [] result2 = x13(input);
-        long end2 = System.currentTimeMillis();
-        log.info("x13: native {} / java {}", end1-start, end2-end1);
-        return result;*/
-        } catch (Exception e) {
-            return null;
+        return x13Digest(input, 0, input.length);
+    }
+
+    /**
+     * Returns the X13 hash of the given range with its byte order reversed, ready to be wrapped by
+     * {@link org.bitcoinj.core.Sha256Hash#wrap(byte[])}. This avoids the extra copy made by
+     * {@link org.bitcoinj.core.Sha256Hash#wrapReversed(byte[])} when hashing block headers.
+     */
+    public static byte[] x13DigestReversed(byte[] input, int offset, int length) {
+        if (native_library_loaded)
+            return reverse(x13Digest(input, offset, length));
+        javaHashes.incrementAndGet();
+        byte[] result = new byte[X13Hasher.HASH_LENGTH];
+        hasher.get().digestReversed(input, offset, length, result, 0);
+        return result;
+    }
+
+    /**
+     * Hashes {@code count} inputs of {@code length} bytes each, the first at {@code offset} and each following one
+     * {@code stride} bytes after the previous one, and writes the 32 byte hashes back to back into {@code output}.
+     * With the native library this crosses JNI once for the whole batch, which is how block headers should be
+     * hashed during header sync.
+     *
+     * @param reversed whether to write each hash with its byte order reversed, as used for block hashes
+     */
+    public static void x13DigestBatch(byte[] input, int offset, int length, int stride, int count, byte[] output,
+                                      boolean reversed) {
+        if (stride < length || output.length < count * X13Hasher.HASH_LENGTH)
+            throw new IllegalArgumentException("Bad batch: stride " + stride + ", length " + length + ", count "
+                    + count + ", output " + output.length);
+        if (native_batch_available) {
+            try {
+                nativeBatchCalls.incrementAndGet();
+                if (x13_native_batch(input, offset, length, stride, count, output) == count) {
+                    nativeHashes.addAndGet(count);
+                    if (reversed) {
+                        for (int i = 0; i < count; i++)
+                            reverseInPlace(output, i * X13Hasher.HASH_LENGTH);
+                    }
+                    return;
+                }
+                log.warn("x13 native batch rejected its arguments, falling back to Java");
+            } catch (Exception e) {
+                log.warn("x13 native batch failed, falling back to Java", e);
+            }
+            nativeFailures.incrementAndGet();
         }
-        finally {
-            //long time = System.currentTimeMillis()-start;
-            //log.info("x13 Hash time: {} ms per block", time);
+        X13Hasher h = hasher.get();
+        for (int i = 0; i < count; i++) {
+            if (reversed)
+                h.digestReversed(input, offset + i * stride, length, output, i * X13Hasher.HASH_LENGTH);
+            else
+                h.digest(input, offset + i * stride, length, output, i * X13Hasher.HASH_LENGTH);
         }
+        javaHashes.addAndGet(count);
     }
 
     static native byte [] x13_native(byte [] input);
 
+    static native int x13_native_batch(byte[] input, int offset, int length, int stride, int count, byte[] output);
 
     static byte [] x13(byte header[])
     {
-        //Initialize
-        Sha512Hash[] hash = new Sha512Hash[17];
-
-        //Run the chain of algorithms
-        BLAKE512 blake512 = new BLAKE512();
-        hash[0] = new Sha512Hash(blake512.digest(header));
-
-        BMW512 bmw = new BMW512();
-        hash[1] = new Sha512Hash(bmw.digest(hash[0].getBytes()));
-
-        Groestl512 groestl = new Groestl512();
-        hash[2] = new Sha512Hash(groestl.digest(hash[1].getBytes()));
-
-        Skein512 skein = new Skein512();
-        hash[3] = new Sha512Hash(skein.digest(hash[2].getBytes()));
-
-        JH512 jh = new JH512();
-        hash[4] = new Sha512Hash(jh.digest(hash[3].getBytes()));
-
-        Keccak512 keccak = new Keccak512();
-        hash[5] = new Sha512Hash(keccak.digest(hash[4].getBytes()));
-
-        Luffa512 luffa = new Luffa512();
-        hash[6] = new Sha512Hash(luffa.digest(hash[5].getBytes()));
-
-        CubeHash512 cubehash = new CubeHash512();
-        hash[7] = new Sha512Hash(cubehash.digest(hash[6].getBytes()));
-
-        SHAvite512 shavite = new SHAvite512();
-        hash[8] = new Sha512Hash(shavite.digest(hash[7].getBytes()));
+        return hasher.get().digest(header, 0, header.length);
+    }
 
-        SIMD512 simd = new SIMD512();
-        hash[9] = new Sha512Hash(simd.digest(hash[8].getBytes()));
+    /** Inputs for the self-tests: an empty input, a zero block header and a patterned block header. */
+    private static byte[][] selfTestInputs() {
+        byte[] patterned = new byte[80];
+        for (int i = 0; i < patterned.length; i++)
+            patterned[i] = (byte) (i * 7 + 3);
+        return new byte[][] { new byte[0], new byte[80], patterned };
+    }
 
-        ECHO512 echo = new ECHO512();
-        hash[10] = new Sha512Hash(echo.digest(hash[9].getBytes()));
+    /** Checks that the native library computes the same hashes as the Java implementation. */
+    private static boolean selfTest() {
+        try {
+            for (byte[] input : selfTestInputs()) {
+                if (!Arrays.equals(x13(input), x13_native(input))) {
+                    log.warn("x13 native library failed its self-test, using the Java implementation");
+                    return false;
+                }
+            }
+            return true;
+        } catch (Throwable t) {
+            log.warn("x13 native library failed its self-test, using the Java implementation", t);
+            return false;
+        }
+    }
 
-        Hamsi512 hamsi = new Hamsi512();
-        hash[11] = new Sha512Hash(hamsi.digest(hash[10].getBytes()));
+    /** Checks the batch entry point, which libraries built before it was introduced don't have. */
+    private static boolean selfTestBatch() {
+        try {
+            byte[] patterned = selfTestInputs()[2];
+            int stride = patterned.length + 2, count = 3;
+            byte[] input = new byte[stride * count + 1];
+            for (int i = 0; i < count; i++) {
+                patterned[0] = (byte) i;
+                System.arraycopy(patterned, 0, input, 1 + i * stride, patterned.length);
+            }
+            byte[] output = new byte[count * X13Hasher.HASH_LENGTH];
+            if (x13_native_batch(input, 1, patterned.length, stride, count, output) != count)
+                return false;
+            for (int i = 0; i < count; i++) {
+                patterned[0] = (byte) i;
+                byte[] expected = x13(patterned);
+                byte[] actual = Arrays.copyOfRange(output, i * X13Hasher.HASH_LENGTH, (i + 1) * X13Hasher.HASH_LENGTH);
+                if (!Arrays.equals(expected, actual)) {
+                    log.warn("x13 native batch hashing failed its self-test");
+                    return false;
+                }
+            }
+            return true;
+        } catch (UnsatisfiedLinkError e) {
+            log.info("x13 native library has no batch entry point, rebuild it to enable batch hashing");
+            return false;
+        } catch (Throwable t) {
+            log.warn("x13 native batch hashing failed its self-test", t);
+            return false;
+        }
+    }
 
-        Fugue512 fugue = new Fugue512();
-        hash[12] = new Sha512Hash(fugue.digest(hash[11].getBytes()));
+    private static byte[] reverse(byte[] hash) {
+        reverseInPlace(hash, 0);
+        return hash;
+    }
 
-        return hash[12].trim256().getBytes();
+    private static void reverseInPlace(byte[] buf, int offset) {
+        for (int i = 0, j = X13Hasher.HASH_LENGTH - 1; i < j; i++, j--) {
+            byte tmp = buf[offset + i];
+            buf[offset + i] = buf[offset + j];
+            buf[offset + j] = tmp;
+        }
     }
 }
@@ -0,0 +1,98 @@
+package org.bitcoinj.crypto;
+
+import fr.cryptohash.BLAKE512;
+import fr.cryptohash.BMW512;
+import fr.cryptohash.CubeHash512;
+import fr.cryptohash.Digest;
+import fr.cryptohash.ECHO512;
+import fr.cryptohash.Fugue512;
+import fr.cryptohash.Groestl512;
+import fr.cryptohash.Hamsi512;
+import fr.cryptohash.JH512;
+import fr.cryptohash.Keccak512;
+import fr.cryptohash.Luffa512;
+import fr.cryptohash.SHAvite512;
+import fr.cryptohash.SIMD512X13;
+import fr.cryptohash.Skein512;
+
+/**
+ * <p>A reusable, pure Java implementation of the X13 chain of hash functions. The thirteen digest engines and the
+ * two 64 byte intermediate buffers are allocated once and reused for every call, so hashing a block header does not
+ * produce any garbage apart from the caller supplied output.</p>
+ *
+ * <p>The SIMD stage uses {@link SIMD512X13}, a variant of {@link fr.cryptohash.SIMD512} that HotSpot can compile;
+ * the generic core is several times slower because its round function is too large to be JIT-compiled.</p>
+ *
+ * <p>Instances of this class are not safe for use by multiple threads. Use {@link X13} which keeps one instance per
+ * thread, or confine an instance to a single thread yourself.</p>
+ */
+public final class X13Hasher {
+    /** Length of the intermediate digests produced by each stage of the chain. */
+    public static final int INTERMEDIATE_LENGTH = 64;
+    /** Length of the final X13 hash. */
+    public static final int HASH_LENGTH = 32;
+
+    private final Digest[] chain;
+    private final byte[] bufA = new byte[INTERMEDIATE_LENGTH];
+    private final byte[] bufB = new byte[INTERMEDIATE_LENGTH];
+
+    public X13Hasher() {
+        this(new Digest[] {
+                new BLAKE512(), new BMW512(), new Groestl512(), new Skein512(), new JH512(), new Keccak512(),
+                new Luffa512(), new CubeHash512(), new SHAvite512(), new SIMD512X13(), new ECHO512(), new Hamsi512(),
+                new Fugue512()
+        });
+    }
+
+    /** Creates a hasher running the given chain of 512 bit digests. Used to swap in specialised stages. */
+    X13Hasher(Digest[] chain) {
+        for (Digest digest : chain) {
+            if (digest.getDigestLength() != INTERMEDIATE_LENGTH)
+                throw new IllegalArgumentException("X13 stages must produce 64 byte digests: " + digest);
+        }
+        this.chain = chain;
+    }
+
+    /**
+     * Hashes {@code length} bytes of {@code input} starting at {@code offset} and writes the 32 byte X13 hash to
+     * {@code output} at {@code outputOffset}, in the byte order produced by the hash functions.
+     */
+    public void digest(byte[] input, int offset, int length, byte[] output, int outputOffset) {
+        byte[] last = runChain(input, offset, length);
+        System.arraycopy(last, 0, output, outputOffset, HASH_LENGTH);
+    }
+
+    /**
+     * Same as {@link #digest(byte[], int, int, byte[], int)} but writes the hash with its byte order reversed, which
+     * is the order used by {@link org.bitcoinj.core.Sha256Hash} for block hashes.
+     */
+    public void digestReversed(byte[] input, int offset, int length, byte[] output, int outputOffset) {
+        byte[] last = runChain(input, offset, length);
+        for (int i = 0; i < HASH_LENGTH; i++)
+            output[outputOffset + i] = last[HASH_LENGTH - 1 - i];
+    }
+
+    /** Convenience method returning a newly allocated 32 byte hash of the given range. */
+    public byte[] digest(byte[] input, int offset, int length) {
+        byte[] result = new byte[HASH_LENGTH];
+        digest(input, offset, length, result, 0);
+        return result;
+    }
+
+    /** Runs all stages and returns the intermediate buffer holding the final 64 byte digest. */
+    private byte[] runChain(byte[] input, int offset, int length) {
+        Digest first = chain[0];
+        first.update(input, offset, length);
+        first.digest(bufA, 0, INTERMEDIATE_LENGTH);
+        byte[] in = bufA, out = bufB;
+        for (int i = 1; i < chain.length; i++) {
+            Digest stage = chain[i];
+            stage.update(in, 0, INTERMEDIATE_LENGTH);
+            stage.digest(out, 0, INTERMEDIATE_LENGTH);
+            byte[] tmp = in;
+            in = out;
+            out = tmp;
+        }
+        return in;
+    }
+}
@@ -0,0 +1,83 @@
+package org.bitcoinj.crypto;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+
+/**
+ * Loads the native x13 library. A copy bundled in the jar under
+ * {@code /org/bitcoinj/crypto/native/<os>-<arch>/} is preferred: it is extracted to a temporary file and loaded from
+ * there. Otherwise the library is looked up on {@code java.library.path}.
+ */
+final class X13NativeLoader {
+    private static final Logger log = LoggerFactory.getLogger(X13NativeLoader.class);
+
+    static final String LIBRARY_NAME = "x13";
+    static final String RESOURCE_DIR = "/org/bitcoinj/crypto/native/";
+
+    private X13NativeLoader() {
+    }
+
+    /** Returns true if the library could be loaded. Never throws. */
+    static boolean load() {
+        String resource = RESOURCE_DIR + platform() + "/" + System.mapLibraryName(LIBRARY_NAME);
+        try {
+            InputStream in = X13NativeLoader.class.getResourceAsStream(resource);
+            if (in != null) {
+                File file = extract(in);
+                System.load(file.getAbsolutePath());
+                log.info("Loaded bundled x13 library {}", resource);
+                return true;
+            }
+            System.loadLibrary(LIBRARY_NAME);
+            log.info("Loaded x13 library from java.library.path");
+            return true;
+        } catch (UnsatisfiedLinkError x) {
+            log.info("Loading x13 failed: " + x.getMessage());
+        } catch (IOException x) {
+            log.info("Extracting bundled x13 library failed: " + x.getMessage());
+        } catch (SecurityException x) {
+            log.info("Loading x13 not permitted: " + x.getMessage());
+        }
+        return false;
+    }
+
+    /** Returns the platform directory name, e.g. {@code linux-amd64}, {@code osx-x86_64} or {@code windows-x86}. */
+    static String platform() {
+        String os = System.getProperty("os.name", "unknown").toLowerCase(Locale.US);
+        if (os.startsWith("mac") || os.startsWith("darwin"))
+            os = "osx";
+        else if (os.startsWith("windows"))
+            os = "windows";
+        else if (os.startsWith("linux"))
+            os = "linux";
+        else
+            os = os.replaceAll("\\W", "");
+        String arch = System.getProperty("os.arch", "unknown").toLowerCase(Locale.US);
+        return os + "-" + arch;
+    }
+
+    private static File extract(InputStream in) throws IOException {
+        String mapped = System.mapLibraryName(LIBRARY_NAME);
+        int dot = mapped.lastIndexOf('.');
+        File file = File.createTempFile(mapped.substring(0, dot) + "-", mapped.substring(dot));
+        file.deleteOnExit();
+        OutputStream out = new FileOutputStream(file);
+        try {
+            byte[] buf = new byte[8192];
+            int read;
+            while ((read = in.read(buf)) != -1)
+                out.write(buf, 0, read);
+        } finally {
+            out.close();
+            in.close();
+        }
+        return file;
+    }
+}
@@ -17,61 +17,80 @@
 package org.bitcoinj.net;
 
 import org.bitcoinj.core.Message;
-import org.bitcoinj.utils.Threading;
+import org.bitcoinj.core.MessageSerializer;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
-import javax.annotation.concurrent.GuardedBy;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.CancelledKeyException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
-import java.util.Arrays;
+import java.util.ArrayDeque;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
-// TODO: The locking in all this class is horrible and not really necessary. We should just run all network stuff on one thread.
-
 /**
  * A simple NIO MessageWriteTarget which handles all the business logic of a connection (reading+writing bytes).
  * Used only by the NioClient and NioServer classes
+ *
+ * Outbound messages are serialized into direct buffers from the {@link DirectBufferPool}, and all queued buffers are
+ * flushed with a single gathering write whenever the channel is writable.
+ *
+ * A handler is owned by the selector thread that created it, which does all reading and writing on the channel, so
+ * no locks are needed. Other threads only append their serialized messages to a concurrent queue and ask the selector
+ * to wake up for writing; messages written from the selector thread itself, such as replies sent while handling
+ * received bytes, are flushed as soon as the read is done.
  */
-class ConnectionHandler implements MessageWriteTarget {
+class ConnectionHandler implements SerializingMessageWriteTarget {
     private static final org.slf4j.Logger log = LoggerFactory.getLogger(ConnectionHandler.class);
-    // We lock when touching local flags and when writing data, but NEVER when calling any methods which leave this
-    // class into non-Java classes.
-    private final ReentrantLock lock = Threading.lock(ConnectionHandler.class);
 
     private static final int BUFFER_SIZE_LOWER_BOUND = 4096;
     private static final int BUFFER_SIZE_UPPER_BOUND = 65536;
 
     private static final int OUTBOUND_BUFFER_BYTE_COUNT = Message.MAX_SIZE + 24; // 24 byte message header
+    // Maximum number of buffers handed to a single gathering write.
+    private static final int MAX_GATHERED_BUFFERS = 64;
 
-    @GuardedBy("lock") private final ByteBuffer readBuff;
-    @GuardedBy("lock") private final SocketChannel channel;
-    @GuardedBy("lock") private final SelectionKey key;
-    @GuardedBy("lock") StreamConnection connection;
-    @GuardedBy("lock") private boolean closeCalled = false;
+    private final Thread owner;
+    private final ByteBuffer readBuff;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    StreamConnection connection;
+    private final AtomicBoolean closeCalled = new AtomicBoolean(false);
 
-    @GuardedBy("lock") private long bytesToWriteRemaining = 0;
-    @GuardedBy("lock") private final LinkedList<ByteBuffer> bytesToWrite = new LinkedList<>();
+    // Messages handed over by any thread, one list of buffers per message so that concurrent writers can't interleave.
+    private final Queue<List<ByteBuffer>> pendingWrites = new ConcurrentLinkedQueue<>();
+    // Set when a writer has asked for OP_WRITE, so that a burst of messages only wakes up the selector once.
+    private final AtomicBoolean writeScheduled = new AtomicBoolean(false);
+    // Bytes queued but not yet written, in pendingWrites or bytesToWrite.
+    private final AtomicLong bytesToWriteRemaining = new AtomicLong();
+    // Only touched by the owner thread.
+    private final ArrayDeque<ByteBuffer> bytesToWrite = new ArrayDeque<>();
+    private final ByteBuffer[] gatherArray = new ByteBuffer[MAX_GATHERED_BUFFERS];
+    private final DirectBufferPool bufferPool;
 
-    private Set<ConnectionHandler> connectedHandlers;
+    private volatile Set<ConnectionHandler> connectedHandlers;
 
     public ConnectionHandler(StreamConnectionFactory connectionFactory, SelectionKey key) throws IOException {
-        this(connectionFactory.getNewConnection(((SocketChannel) key.channel()).socket().getInetAddress(), ((SocketChannel) key.channel()).socket().getPort()), key);
+        this(connectionFactory.getNewConnection(((SocketChannel) key.channel()).socket().getInetAddress(), ((SocketChannel) key.channel()).socket().getPort()), key, DirectBufferPool.SHARED);
         if (connection == null)
             throw new IOException("Parser factory.getNewConnection returned null");
     }
 
-    private ConnectionHandler(@Nullable StreamConnection connection, SelectionKey key) {
+    private ConnectionHandler(@Nullable StreamConnection connection, SelectionKey key, DirectBufferPool bufferPool) {
+        this.owner = Thread.currentThread();
+        this.bufferPool = bufferPool;
         this.key = key;
         this.channel = checkNotNull(((SocketChannel)key.channel()));
         if (connection == null) {
@@ -85,93 +104,125 @@ class ConnectionHandler implements MessageWriteTarget {
     }
 
     public ConnectionHandler(StreamConnection connection, SelectionKey key, Set<ConnectionHandler> connectedHandlers) {
-        this(checkNotNull(connection), key);
+        this(connection, key, connectedHandlers, DirectBufferPool.SHARED);
+    }
+
+    @VisibleForTesting
+    ConnectionHandler(StreamConnection connection, SelectionKey key, Set<ConnectionHandler> connectedHandlers,
+                      DirectBufferPool bufferPool) {
+        this(checkNotNull(connection), key, bufferPool);
 
         // closeConnection() may have already happened because we invoked the other c'tor above, which called
-        // connection.setWriteTarget which might have re-entered already. In this case we shouldn't add ourselves
-        // to the connectedHandlers set.
-        lock.lock();
-        try {
-            this.connectedHandlers = connectedHandlers;
-            if (!closeCalled)
-                checkState(this.connectedHandlers.add(this));
-        } finally {
-            lock.unlock();
+        // connection.setWriteTarget which might have re-entered already, or may happen concurrently on another thread.
+        // Publish the set before checking closeCalled, and connectionClosed() does the opposite, so that one of us
+        // always sees the other and we never stay in the set after closing.
+        this.connectedHandlers = connectedHandlers;
+        if (!closeCalled.get()) {
+            checkState(connectedHandlers.add(this));
+            if (closeCalled.get())
+                connectedHandlers.remove(this);
         }
     }
 
-    @GuardedBy("lock")
-    private void setWriteOps() {
-        // Make sure we are registered to get updated when writing is available again
-        key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
-        // Refresh the selector to make sure it gets the new interestOps
-        key.selector().wakeup();
+    private boolean inEventLoop() {
+        return Thread.currentThread() == owner;
     }
 
-    // Tries to write any outstanding write bytes, runs in any thread (possibly unlocked)
+    // Writes as much of the outstanding bytes as the channel takes, runs in the owner thread only
     private void tryWriteBytes() throws IOException {
-        lock.lock();
-        try {
-            // Iterate through the outbound ByteBuff queue, pushing as much as possible into the OS' network buffer.
+        // Allow writers to schedule another wakeup before we look at their queue, so that nothing is left behind.
+        writeScheduled.set(false);
+        List<ByteBuffer> message;
+        while ((message = pendingWrites.poll()) != null)
+            bytesToWrite.addAll(message);
+        // Push as much of the outbound ByteBuff queue as possible into the OS' network buffer, handing up to
+        // MAX_GATHERED_BUFFERS buffers to the channel at once.
+        while (!bytesToWrite.isEmpty()) {
+            int count = 0;
             Iterator<ByteBuffer> bytesIterator = bytesToWrite.iterator();
-            while (bytesIterator.hasNext()) {
-                ByteBuffer buff = bytesIterator.next();
-                bytesToWriteRemaining -= channel.write(buff);
-                if (!buff.hasRemaining())
-                    bytesIterator.remove();
-                else {
-                    setWriteOps();
-                    break;
-                }
+            while (count < gatherArray.length && bytesIterator.hasNext())
+                gatherArray[count++] = bytesIterator.next();
+            bytesToWriteRemaining.addAndGet(-channel.write(gatherArray, 0, count));
+            boolean full = gatherArray[count - 1].hasRemaining();
+            for (int i = 0; i < count; i++)
+                gatherArray[i] = null;
+            while (!bytesToWrite.isEmpty() && !bytesToWrite.peekFirst().hasRemaining())
+                bufferPool.release(bytesToWrite.pollFirst());
+            if (full) {
+                // The OS buffer is full, wait until we are writable again.
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                return;
             }
-            // If we are done writing, clear the OP_WRITE interestOps
-            if (bytesToWrite.isEmpty())
-                key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
-            // Don't bother waking up the selector here, since we're just removing an op, not adding
-        } finally {
-            lock.unlock();
         }
+        // We are done writing, so clear the OP_WRITE interestOps. A writer may have queued a message after we drained
+        // the queue, and its OP_WRITE may have been set before we cleared it, so look again afterwards.
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+        if (!pendingWrites.isEmpty())
+            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        // Don't bother waking up the selector here, since we're running on it
     }
 
     @Override
     public void writeBytes(byte[] message) throws IOException {
-        boolean andUnlock = true;
-        lock.lock();
+        DirectBufferPool.Output out = bufferPool.new Output();
+        out.write(message, 0, message.length);
+        enqueue(out);
+    }
+
+    @Override
+    public void writeMessage(MessageSerializer serializer, Message message) throws IOException {
+        DirectBufferPool.Output out = bufferPool.new Output();
         try {
-            // Network buffers are not unlimited (and are often smaller than some messages we may wish to send), and
-            // thus we have to buffer outbound messages sometimes. To do this, we use a queue of ByteBuffers and just
-            // append to it when we want to send a message. We then let tryWriteBytes() either send the message or
-            // register our SelectionKey to wakeup when we have free outbound buffer space available.
+            serializer.serialize(message, out);
+        } catch (IOException | RuntimeException e) {
+            out.release();
+            throw e;
+        }
+        enqueue(out);
+    }
 
-            if (bytesToWriteRemaining + message.length > OUTBOUND_BUFFER_BYTE_COUNT)
+    private void enqueue(DirectBufferPool.Output out) throws IOException {
+        // Network buffers are not unlimited (and are often smaller than some messages we may wish to send), and thus
+        // we have to buffer outbound messages sometimes. To do this, we hand the message's buffers to the owner thread
+        // and let it either send them right away or wait until the channel has free outbound buffer space available.
+        try {
+            if (closeCalled.get()) {
+                out.release();
+                // Like a write to a channel whose key was cancelled.
+                throw new CancelledKeyException();
+            }
+            long size = out.size();
+            if (bytesToWriteRemaining.addAndGet(size) > OUTBOUND_BUFFER_BYTE_COUNT) {
+                bytesToWriteRemaining.addAndGet(-size);
+                out.release();
                 throw new IOException("Outbound buffer overflowed");
-            // Just dump the message onto the write buffer and call tryWriteBytes
-            // TODO: Kill the needless message duplication when the write completes right away
-            bytesToWrite.offer(ByteBuffer.wrap(Arrays.copyOf(message, message.length)));
-            bytesToWriteRemaining += message.length;
-            setWriteOps();
+            }
+            pendingWrites.add(out.finish());
+            if (closeCalled.get()) {
+                // We raced with a close that may have drained the queue before we added to it, so drain it again.
+                releasePendingWrites();
+                throw new CancelledKeyException();
+            }
+            if (writeScheduled.compareAndSet(false, true)) {
+                // Make sure we are registered to get updated when writing is available again
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                // Refresh the selector to make sure it gets the new interestOps, unless we are running on it
+                if (!inEventLoop())
+                    key.selector().wakeup();
+            }
         } catch (IOException e) {
-            lock.unlock();
-            andUnlock = false;
             log.warn("Error writing message to connection, closing connection", e);
             closeConnection();
             throw e;
         } catch (CancelledKeyException e) {
-            lock.unlock();
-            andUnlock = false;
             log.warn("Error writing message to connection, closing connection", e);
             closeConnection();
             throw new IOException(e);
-        } finally {
-            if (andUnlock)
-                lock.unlock();
         }
     }
 
-    // May NOT be called with lock held
     @Override
     public void closeConnection() {
-        checkState(!lock.isHeldByCurrentThread());
         try {
             channel.close();
         } catch (IOException e) {
@@ -181,23 +232,35 @@ class ConnectionHandler implements MessageWriteTarget {
     }
 
     private void connectionClosed() {
-        boolean callClosed = false;
-        lock.lock();
-        try {
-            callClosed = !closeCalled;
-            closeCalled = true;
-        } finally {
-            lock.unlock();
+        boolean first = closeCalled.compareAndSet(false, true);
+        // Nothing more will be written, so give the buffers back. The queued messages can be taken by any thread, but
+        // only the owner thread may release the ones it took, as it could be writing from them right now. It does so
+        // when it sees the close, which it does unless the key was cancelled before it got to them; then they are
+        // left to the garbage collector.
+        if (inEventLoop()) {
+            for (ByteBuffer buff : bytesToWrite)
+                bufferPool.release(buff);
+            bytesToWrite.clear();
         }
-        if (callClosed) {
-            checkState(connectedHandlers == null || connectedHandlers.remove(this));
-            connection.connectionClosed();
+        releasePendingWrites();
+        if (!first)
+            return;
+        Set<ConnectionHandler> handlers = connectedHandlers;
+        if (handlers != null)
+            handlers.remove(this);
+        connection.connectionClosed();
+    }
+
+    private void releasePendingWrites() {
+        List<ByteBuffer> message;
+        while ((message = pendingWrites.poll()) != null) {
+            for (ByteBuffer buff : message)
+                bufferPool.release(buff);
         }
     }
 
     // Handle a SelectionKey which was selected
-    // Runs unlocked as the caller is single-threaded (or if not, should enforce that handleKey is only called
-    // atomically for a given ConnectionHandler)
+    // Must run on the selector thread that created the handler
     public static void handleKey(SelectionKey key) {
         ConnectionHandler handler = ((ConnectionHandler)key.attachment());
         try {
@@ -225,8 +288,11 @@ class ConnectionHandler implements MessageWriteTarget {
                 // Now drop the bytes which were read by compacting readBuff (resetting limit and keeping relative
                 // position)
                 handler.readBuff.compact();
+                // Send any replies right away instead of waiting for the next select
+                if (key.isValid() && !handler.pendingWrites.isEmpty())
+                    handler.tryWriteBytes();
             }
-            if (key.isWritable())
+            if (key.isValid() && key.isWritable())
                 handler.tryWriteBytes();
         } catch (Exception e) {
             // This can happen eg if the channel closes while the thread is about to get killed
@@ -0,0 +1,134 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bitcoinj.net;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of fixed size direct {@link ByteBuffer}s for outbound network data. Writing a heap buffer to a channel makes
+ * the JDK copy it into a temporary direct buffer first, so serializing messages straight into pooled direct buffers
+ * saves that copy as well as the allocations. Only a bounded number of free buffers are retained; any more are left
+ * to the garbage collector.
+ */
+final class DirectBufferPool {
+    /** Size of each buffer. Large enough for most messages, small enough not to waste much on short ones. */
+    static final int BUFFER_SIZE = 16 * 1024;
+    /** The pool shared by all connections, retaining up to 4MB of free buffers. */
+    static final DirectBufferPool SHARED = new DirectBufferPool(BUFFER_SIZE, 256);
+
+    private final int bufferSize;
+    private final int maxRetained;
+    private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger freeCount = new AtomicInteger();
+    private final AtomicInteger allocatedCount = new AtomicInteger();
+
+    DirectBufferPool(int bufferSize, int maxRetained) {
+        this.bufferSize = bufferSize;
+        this.maxRetained = maxRetained;
+    }
+
+    /** Returns a cleared buffer, from the pool if possible. */
+    ByteBuffer acquire() {
+        ByteBuffer buffer = free.poll();
+        if (buffer == null) {
+            allocatedCount.incrementAndGet();
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        freeCount.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    /** Returns a buffer obtained from {@link #acquire()} to the pool. It must not be used afterwards. */
+    void release(ByteBuffer buffer) {
+        if (buffer.capacity() != bufferSize)
+            return;
+        if (freeCount.incrementAndGet() <= maxRetained)
+            free.offer(buffer);
+        else
+            freeCount.decrementAndGet();
+    }
+
+    /** Returns the number of free buffers currently retained. */
+    int getFreeCount() {
+        return freeCount.get();
+    }
+
+    /** Returns the number of buffers the pool allocated. If all were released and retained, it equals the free count. */
+    int getAllocatedCount() {
+        return allocatedCount.get();
+    }
+
+    /**
+     * An {@link OutputStream} that writes into buffers from the pool. {@link #finish()} hands the filled buffers over,
+     * ready for reading; {@link #release()} gives them back if they won't be used.
+     */
+    final class Output extends OutputStream {
+        private final List<ByteBuffer> buffers = new ArrayList<>();
+        private ByteBuffer current;
+        private long size;
+
+        @Override
+        public void write(int b) {
+            if (current == null || !current.hasRemaining())
+                next();
+            current.put((byte) b);
+            size++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            while (length > 0) {
+                if (current == null || !current.hasRemaining())
+                    next();
+                int chunk = Math.min(length, current.remaining());
+                current.put(bytes, offset, chunk);
+                offset += chunk;
+                length -= chunk;
+                size += chunk;
+            }
+        }
+
+        /** Number of bytes written so far. */
+        long size() {
+            return size;
+        }
+
+        /** Flips and returns the filled buffers. The stream must not be used afterwards. */
+        List<ByteBuffer> finish() {
+            for (ByteBuffer buffer : buffers)
+                buffer.flip();
+            return buffers;
+        }
+
+        /** Returns all buffers to the pool. The stream must not be used afterwards. */
+        void release() {
+            for (ByteBuffer buffer : buffers)
+                DirectBufferPool.this.release(buffer);
+            buffers.clear();
+            current = null;
+        }
+
+        private void next() {
+            current = acquire();
+            buffers.add(current);
+        }
+    }
+}
@@ -28,6 +28,7 @@ import java.nio.channels.*;
 import java.nio.channels.spi.SelectorProvider;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A class which manages a set of client connections. Uses Java NIO to select network events and processes them in a
@@ -37,6 +38,12 @@ public class NioClientManager extends AbstractExecutionThreadService implements
     private static final org.slf4j.Logger log = LoggerFactory.getLogger(NioClientManager.class);
 
     private final Selector selector;
+    private final String threadName;
+
+    // Load metrics, only written by the selector thread.
+    private volatile long selectCount;
+    private volatile long handledKeyCount;
+    private volatile long busyNanos;
 
     class PendingConnect {
         SocketChannel sc;
@@ -50,6 +57,8 @@ public class NioClientManager extends AbstractExecutionThreadService implements
 
     // Added to/removed from by the individual ConnectionHandler's, thus must by synchronized on its own.
     private final Set<ConnectionHandler> connectedHandlers = Collections.synchronizedSet(new HashSet<ConnectionHandler>());
+    // Connections that were requested but don't have a ConnectionHandler yet.
+    private final AtomicInteger pendingConnectCount = new AtomicInteger();
 
     // Handle a SelectionKey which was selected
     private void handleKey(SelectionKey key) throws IOException {
@@ -60,6 +69,7 @@ public class NioClientManager extends AbstractExecutionThreadService implements
             StreamConnection connection = data.connection;
             SocketChannel sc = (SocketChannel) key.channel();
             ConnectionHandler handler = new ConnectionHandler(connection, key, connectedHandlers);
+            pendingConnectCount.decrementAndGet();
             try {
                 if (sc.finishConnect()) {
                     log.info("Connected to {}", sc.socket().getRemoteSocketAddress());
@@ -91,6 +101,15 @@ public class NioClientManager extends AbstractExecutionThreadService implements
      * calls.
      */
     public NioClientManager() {
+        this("NioClientManager");
+    }
+
+    /**
+     * Creates a new client manager whose network thread has the given name. Used by {@link ShardedNioClientManager} to
+     * tell its event loops apart.
+     */
+    NioClientManager(String threadName) {
+        this.threadName = threadName;
         try {
             selector = SelectorProvider.provider().openSelector();
         } catch (IOException e) {
@@ -109,18 +128,25 @@ public class NioClientManager extends AbstractExecutionThreadService implements
                         SelectionKey key = conn.sc.register(selector, SelectionKey.OP_CONNECT);
                         key.attach(conn);
                     } catch (ClosedChannelException e) {
+                        pendingConnectCount.decrementAndGet();
                         log.warn("SocketChannel was closed before it could be registered");
                     }
                 }
 
                 selector.select();
 
+                long start = System.nanoTime();
+                int handled = 0;
                 Iterator<SelectionKey> keyIterator = selector.selectedKeys().iterator();
                 while (keyIterator.hasNext()) {
                     SelectionKey key = keyIterator.next();
                     keyIterator.remove();
                     handleKey(key);
+                    handled++;
                 }
+                selectCount++;
+                handledKeyCount += handled;
+                busyNanos += System.nanoTime() - start;
             }
         } catch (Exception e) {
             log.warn("Error trying to open/read from connection: ", e);
@@ -154,6 +180,7 @@ public class NioClientManager extends AbstractExecutionThreadService implements
             sc.configureBlocking(false);
             sc.connect(serverAddress);
             PendingConnect data = new PendingConnect(sc, connection, serverAddress);
+            pendingConnectCount.incrementAndGet();
             newConnectionChannels.offer(data);
             selector.wakeup();
             return data.future;
@@ -172,6 +199,30 @@ public class NioClientManager extends AbstractExecutionThreadService implements
         return connectedHandlers.size();
     }
 
+    /** Returns the number of connections that were requested but haven't connected or failed yet. */
+    public int getPendingConnectCount() {
+        return pendingConnectCount.get();
+    }
+
+    /** Returns how many times the network thread has returned from selecting. */
+    public long getSelectCount() {
+        return selectCount;
+    }
+
+    /** Returns how many selected keys the network thread has handled, i.e. connects, reads and writes. */
+    public long getHandledKeyCount() {
+        return handledKeyCount;
+    }
+
+    /**
+     * Returns the time in nanoseconds the network thread has spent handling selected keys, which includes parsing
+     * received messages and running whatever the connections do with them. Comparing how fast this grows with the wall
+     * clock tells how busy the thread is.
+     */
+    public long getBusyNanos() {
+        return busyNanos;
+    }
+
     @Override
     public void closeConnections(int n) {
         while (n-- > 0) {
@@ -189,7 +240,7 @@ public class NioClientManager extends AbstractExecutionThreadService implements
         return new Executor() {
             @Override
             public void execute(Runnable command) {
-                new ContextPropagatingThreadFactory("NioClientManager").newThread(command).start();
+                new ContextPropagatingThreadFactory(threadName).newThread(command).start();
             }
         };
     }
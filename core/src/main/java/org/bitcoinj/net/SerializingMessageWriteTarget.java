@@ -0,0 +1,31 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bitcoinj.net;
+
+import org.bitcoinj.core.Message;
+import org.bitcoinj.core.MessageSerializer;
+
+import java.io.IOException;
+
+/**
+ * A {@link MessageWriteTarget} that can serialize messages straight into its outbound buffers, saving the
+ * intermediate byte arrays of {@link #writeBytes(byte[])}.
+ */
+public interface SerializingMessageWriteTarget extends MessageWriteTarget {
+    /**
+     * Serializes the given message with the given serializer and writes it to the remote server.
+     */
+    void writeMessage(MessageSerializer serializer, Message message) throws IOException;
+}
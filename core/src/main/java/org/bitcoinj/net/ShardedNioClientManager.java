@@ -0,0 +1,150 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bitcoinj.net;
+
+import com.google.common.util.concurrent.AbstractIdleService;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.bitcoinj.utils.ContextPropagatingThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.SocketAddress;
+import java.util.concurrent.Executor;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+/**
+ * <p>A {@link ClientConnectionManager} that spreads its connections over several {@link NioClientManager}s, each with
+ * its own selector and network thread. As received messages are parsed and handled on the network thread of their
+ * connection, a single {@link NioClientManager} keeps at most one core busy no matter how many peers are connected;
+ * this class lets a large number of connections use several.</p>
+ *
+ * <p>New connections go to the event loop with the fewest connections, counting those still being opened. The load
+ * of each loop can be watched through {@link #getEventLoop(int)}, see for example
+ * {@link NioClientManager#getBusyNanos()}.</p>
+ */
+public class ShardedNioClientManager extends AbstractIdleService implements ClientConnectionManager {
+    private static final Logger log = LoggerFactory.getLogger(ShardedNioClientManager.class);
+
+    private final NioClientManager[] loops;
+
+    /** Creates a client manager with one event loop per available processor. */
+    public ShardedNioClientManager() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /** Creates a client manager with the given number of event loops. */
+    public ShardedNioClientManager(int eventLoops) {
+        checkArgument(eventLoops > 0, "eventLoops must be positive");
+        loops = new NioClientManager[eventLoops];
+        for (int i = 0; i < eventLoops; i++)
+            loops[i] = new NioClientManager("NioClientManager-" + i);
+    }
+
+    @Override
+    protected void startUp() throws Exception {
+        for (NioClientManager loop : loops)
+            loop.startAsync();
+        for (NioClientManager loop : loops)
+            loop.awaitRunning();
+    }
+
+    @Override
+    protected void shutDown() throws Exception {
+        for (NioClientManager loop : loops)
+            loop.stopAsync();
+        for (NioClientManager loop : loops)
+            loop.awaitTerminated();
+    }
+
+    @Override
+    public ListenableFuture<SocketAddress> openConnection(SocketAddress serverAddress, StreamConnection connection) {
+        if (!isRunning())
+            throw new IllegalStateException();
+        return leastLoaded().openConnection(serverAddress, connection);
+    }
+
+    @Override
+    public int getConnectedClientCount() {
+        int count = 0;
+        for (NioClientManager loop : loops)
+            count += loop.getConnectedClientCount();
+        return count;
+    }
+
+    /** Closes n peer connections, taking them from the busiest event loops first. */
+    @Override
+    public void closeConnections(int n) {
+        while (n-- > 0) {
+            NioClientManager busiest = null;
+            int most = 0;
+            for (NioClientManager loop : loops) {
+                int count = loop.getConnectedClientCount();
+                if (count > most) {
+                    busiest = loop;
+                    most = count;
+                }
+            }
+            if (busiest == null)
+                return;
+            try {
+                busiest.closeConnections(1);
+            } catch (RuntimeException e) {
+                // The connection we picked went away by itself in the meantime.
+                log.debug("Connection closed concurrently", e);
+            }
+        }
+    }
+
+    /** Returns the number of event loops, each of which runs on its own thread. */
+    public int getEventLoopCount() {
+        return loops.length;
+    }
+
+    /**
+     * Returns the event loop with the given index, for reading its load metrics. Connections should be opened through
+     * this manager rather than the returned loop.
+     */
+    public NioClientManager getEventLoop(int index) {
+        checkElementIndex(index, loops.length);
+        return loops[index];
+    }
+
+    @Override
+    protected Executor executor() {
+        // The event loops are started from our own service thread, so it has to pass on the context too.
+        return new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                new ContextPropagatingThreadFactory("ShardedNioClientManager").newThread(command).start();
+            }
+        };
+    }
+
+    // Two connections opened at the same time may go to the same loop, which evens out with the next ones.
+    private NioClientManager leastLoaded() {
+        NioClientManager best = loops[0];
+        int fewest = Integer.MAX_VALUE;
+        for (NioClientManager loop : loops) {
+            int load = loop.getConnectedClientCount() + loop.getPendingConnectCount();
+            if (load < fewest) {
+                best = loop;
+                fewest = load;
+            }
+        }
+        return best;
+    }
+}
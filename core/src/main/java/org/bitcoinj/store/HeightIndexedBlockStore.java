@@ -0,0 +1,46 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bitcoinj.store;
+
+import org.bitcoinj.core.StoredBlock;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * <p>A {@link BlockStore} that can also look up the blocks of its best chain, the chain ending in
+ * {@link #getChainHead()}, by height. This lets code that needs a run of consecutive blocks, like the median time
+ * past check or difficulty retargeting, read them in one go instead of following
+ * {@link StoredBlock#getPrev(BlockStore)} one hash lookup at a time. See
+ * {@link StoredBlock#getRecent(BlockStore, int)}.</p>
+ *
+ * <p>Stores may only index part of the best chain, for example its most recent blocks. Callers must be prepared for
+ * blocks to be missing, and as the best chain can change at any time, should check that what they got is linked up
+ * the way they expect.</p>
+ */
+public interface HeightIndexedBlockStore extends BlockStore {
+    /**
+     * Returns the block at the given height of the best chain, or null if there is no such block or the store doesn't
+     * index that height.
+     */
+    @Nullable
+    StoredBlock getByHeight(int height) throws BlockStoreException;
+
+    /**
+     * Returns the blocks of the best chain from {@code fromHeight} inclusive to {@code toHeight} exclusive, oldest
+     * first. The list ends early at the first height that isn't available, so it may be empty.
+     */
+    List<StoredBlock> getRange(int fromHeight, int toHeight) throws BlockStoreException;
+}
@@ -23,20 +23,31 @@ import org.iq80.leveldb.*;
 import javax.annotation.*;
 import java.io.*;
 import java.nio.*;
+import java.util.*;
 
 /**
  * An SPV block store that writes every header it sees to a <a href="https://github.com/fusesource/leveldbjni">LevelDB</a>.
  * This allows for fast lookup of block headers by block hash at the expense of more costly inserts and higher disk
  * usage than the {@link SPVBlockStore}. If all you want is a regular wallet you don't need this class: it exists for
  * specialised applications where you need to quickly verify a standalone SPV proof.
+ *
+ * <p>The best chain is also indexed by height, under keys made of {@link #HEIGHT_KEY_PREFIX} and the big endian height.
+ * Stores created before the index existed are indexed the next time the chain head is set, in batches of
+ * {@link #HEIGHT_INDEX_BATCH_SIZE} blocks so that this doesn't need memory for the whole chain.</p>
  */
-public class LevelDBBlockStore implements BlockStore {
+public class LevelDBBlockStore implements HeightIndexedBlockStore {
     private static final byte[] CHAIN_HEAD_KEY = "chainhead".getBytes();
+    /** Prefix of the height index keys. Their length of 5 bytes can't clash with block hashes or the chain head key. */
+    private static final byte HEIGHT_KEY_PREFIX = 'h';
+    /** How many height index entries are written at once when the index is updated. */
+    static final int HEIGHT_INDEX_BATCH_SIZE = 1000;
 
     private final Context context;
     private DB db;
     private final ByteBuffer buffer = ByteBuffer.allocate(StoredBlock.COMPACT_SERIALIZED_SIZE);
     private final File path;
+    // Height of the chain head, or -1 if not known yet.
+    private int chainHeadHeight = -1;
 
     /** Creates a LevelDB SPV block store using the JNI/C++ version of LevelDB. */
     public LevelDBBlockStore(Context context, File directory) throws BlockStoreException {
@@ -88,7 +99,7 @@ public class LevelDBBlockStore implements BlockStore {
         byte[] bits = db.get(hash.getBytes());
         if (bits == null)
             return null;
-        return StoredBlock.deserializeCompact(context.getParams(), ByteBuffer.wrap(bits));
+        return StoredBlock.deserializeCompact(context.getParams(), ByteBuffer.wrap(bits), hash);
     }
 
     @Override
@@ -98,7 +109,79 @@ public class LevelDBBlockStore implements BlockStore {
 
     @Override
     public synchronized void setChainHead(StoredBlock chainHead) throws BlockStoreException {
-        db.put(CHAIN_HEAD_KEY, chainHead.getHeader().getHash().getBytes());
+        // Walk back from the new head until we meet the previously indexed best chain, remembering the top of every
+        // batch on the way. This is a single step when the chain is extended by one block.
+        List<StoredBlock> batchTops = new ArrayList<>();
+        StoredBlock cursor = chainHead;
+        while (cursor != null && !isIndexed(cursor)) {
+            if ((chainHead.getHeight() - cursor.getHeight()) % HEIGHT_INDEX_BATCH_SIZE == 0)
+                batchTops.add(cursor);
+            cursor = cursor.getHeight() > 0 ? cursor.getPrev(this) : null;
+        }
+        // Index the new blocks from the bottom up, so that if this is interrupted the index is still right up to where
+        // the walk above will stop next time. The chain head goes with the last batch.
+        int bottom = cursor != null ? cursor.getHeight() + 1 : 0;
+        for (int i = batchTops.size() - 1; i >= 0; i--) {
+            StoredBlock top = batchTops.get(i);
+            indexHeights(top, bottom, i == 0 ? chainHead : null);
+            bottom = top.getHeight() + 1;
+        }
+        if (batchTops.isEmpty())
+            db.put(CHAIN_HEAD_KEY, chainHead.getHeader().getHash().getBytes());
+        chainHeadHeight = chainHead.getHeight();
+    }
+
+    private boolean isIndexed(StoredBlock block) {
+        return Arrays.equals(db.get(heightKey(block.getHeight())), block.getHeader().getHash().getBytes());
+    }
+
+    // Writes the height index entries from top down to the given height in one batch, together with the chain head.
+    private void indexHeights(StoredBlock top, int bottom, @Nullable StoredBlock chainHead) throws BlockStoreException {
+        WriteBatch batch = db.createWriteBatch();
+        try {
+            StoredBlock cursor = top;
+            while (true) {
+                batch.put(heightKey(cursor.getHeight()), cursor.getHeader().getHash().getBytes());
+                if (cursor.getHeight() <= bottom)
+                    break;
+                cursor = cursor.getPrev(this);
+            }
+            if (chainHead != null)
+                batch.put(CHAIN_HEAD_KEY, chainHead.getHeader().getHash().getBytes());
+            db.write(batch);
+        } finally {
+            try {
+                batch.close();
+            } catch (IOException e) {
+                throw new BlockStoreException(e);
+            }
+        }
+    }
+
+    @Override @Nullable
+    public synchronized StoredBlock getByHeight(int height) throws BlockStoreException {
+        if (chainHeadHeight < 0)
+            chainHeadHeight = getChainHead().getHeight();
+        if (height < 0 || height > chainHeadHeight)
+            return null;
+        byte[] hash = db.get(heightKey(height));
+        return hash != null ? get(Sha256Hash.wrap(hash)) : null;
+    }
+
+    @Override
+    public synchronized List<StoredBlock> getRange(int fromHeight, int toHeight) throws BlockStoreException {
+        List<StoredBlock> range = new ArrayList<>();
+        for (int height = Math.max(fromHeight, 0); height < toHeight; height++) {
+            StoredBlock block = getByHeight(height);
+            if (block == null)
+                break;
+            range.add(block);
+        }
+        return range;
+    }
+
+    private static byte[] heightKey(int height) {
+        return ByteBuffer.allocate(5).put(HEIGHT_KEY_PREFIX).putInt(height).array();
     }
 
     @Override
@@ -127,6 +210,7 @@ public class LevelDBBlockStore implements BlockStore {
             } finally {
                 batch.close();
             }
+            chainHeadHeight = -1;
             initStoreIfNeeded();
         } catch (IOException e) {
             throw new BlockStoreException(e);
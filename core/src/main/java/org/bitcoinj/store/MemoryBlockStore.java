@@ -18,13 +18,15 @@ package org.bitcoinj.store;
 
 import org.bitcoinj.core.*;
 
+import javax.annotation.Nullable;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Keeps {@link StoredBlock}s in memory. Used primarily for unit testing.
  */
-public class MemoryBlockStore implements BlockStore {
+public class MemoryBlockStore implements HeightIndexedBlockStore {
     private LinkedHashMap<Sha256Hash, StoredBlock> blockMap = new LinkedHashMap<Sha256Hash, StoredBlock>() {
         @Override
         protected boolean removeEldestEntry(Map.Entry<Sha256Hash, StoredBlock> eldest) {
@@ -33,6 +35,7 @@ public class MemoryBlockStore implements BlockStore {
     };
     private StoredBlock chainHead;
     private NetworkParameters params;
+    private final RecentHeightIndex heightIndex = new RecentHeightIndex(RecentHeightIndex.DEFAULT_CAPACITY);
 
     public MemoryBlockStore(NetworkParameters params) {
         // Insert the genesis block.
@@ -69,9 +72,23 @@ public class MemoryBlockStore implements BlockStore {
     }
 
     @Override
-    public final void setChainHead(StoredBlock chainHead) throws BlockStoreException {
+    public synchronized final void setChainHead(StoredBlock chainHead) throws BlockStoreException {
         if (blockMap == null) throw new BlockStoreException("MemoryBlockStore is closed");
         this.chainHead = chainHead;
+        heightIndex.setChainHead(chainHead, this);
+    }
+
+    @Override
+    @Nullable
+    public StoredBlock getByHeight(int height) throws BlockStoreException {
+        if (blockMap == null) throw new BlockStoreException("MemoryBlockStore is closed");
+        return heightIndex.get(height);
+    }
+
+    @Override
+    public List<StoredBlock> getRange(int fromHeight, int toHeight) throws BlockStoreException {
+        if (blockMap == null) throw new BlockStoreException("MemoryBlockStore is closed");
+        return heightIndex.getRange(fromHeight, toHeight);
     }
     
     @Override
@@ -0,0 +1,93 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bitcoinj.store;
+
+import org.bitcoinj.core.StoredBlock;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keeps the most recent blocks of a store's best chain in memory, indexed by height. Used by the stores that can't
+ * look blocks up by height on disk to implement {@link HeightIndexedBlockStore}.
+ *
+ * <p>Updates must be serialized by the store. Lookups may run concurrently with them and then see a mix of the old
+ * and new best chain, which {@link HeightIndexedBlockStore} callers have to cope with anyway.</p>
+ */
+final class RecentHeightIndex {
+    /** Slightly more than the difficulty transition period, like the block caches of the stores. */
+    static final int DEFAULT_CAPACITY = 2050;
+
+    private final AtomicReferenceArray<StoredBlock> blocks;
+    private final int capacity;
+    private volatile int headHeight = -1;
+
+    RecentHeightIndex(int capacity) {
+        this.capacity = capacity;
+        this.blocks = new AtomicReferenceArray<>(capacity);
+    }
+
+    /** Returns true once {@link #setChainHead(StoredBlock, BlockStore)} has been called. */
+    boolean isInitialized() {
+        return headHeight >= 0;
+    }
+
+    /**
+     * Makes the given block the top of the index, walking back through the store until it meets the previously indexed
+     * chain, runs out of capacity or finds a block missing from the store.
+     */
+    void setChainHead(StoredBlock head, BlockStore store) throws BlockStoreException {
+        int lowest = head.getHeight() - capacity + 1;
+        StoredBlock cursor = head;
+        while (cursor != null && cursor.getHeight() >= lowest) {
+            int slot = cursor.getHeight() % capacity;
+            StoredBlock existing = blocks.get(slot);
+            if (existing != null && existing.getHeight() == cursor.getHeight()
+                    && existing.getHeader().getHash().equals(cursor.getHeader().getHash()))
+                break;
+            blocks.set(slot, cursor);
+            cursor = cursor.getHeight() > 0 ? cursor.getPrev(store) : null;
+        }
+        headHeight = head.getHeight();
+    }
+
+    /** Forgets all blocks. */
+    void clear() {
+        headHeight = -1;
+        for (int i = 0; i < capacity; i++)
+            blocks.set(i, null);
+    }
+
+    @Nullable
+    StoredBlock get(int height) {
+        if (height < 0 || height > headHeight || height <= headHeight - capacity)
+            return null;
+        StoredBlock block = blocks.get(height % capacity);
+        return block != null && block.getHeight() == height ? block : null;
+    }
+
+    List<StoredBlock> getRange(int fromHeight, int toHeight) {
+        List<StoredBlock> range = new ArrayList<>(Math.max(0, Math.min(toHeight - fromHeight, capacity)));
+        for (int height = fromHeight; height < toHeight; height++) {
+            StoredBlock block = get(height);
+            if (block == null)
+                break;
+            range.add(block);
+        }
+        return range;
+    }
+}
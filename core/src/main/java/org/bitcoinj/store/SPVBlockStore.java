@@ -16,6 +16,8 @@
 
 package org.bitcoinj.store;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.bitcoinj.core.*;
 import org.bitcoinj.utils.*;
 import org.slf4j.*;
@@ -36,8 +38,20 @@ import static com.google.common.base.Preconditions.*;
  * An SPVBlockStore holds a limited number of block headers in a memory mapped ring buffer. With such a store, you
  * may not be able to process very deep re-orgs and could be disconnected from the chain (requiring a replay),
  * but as they are virtually unheard of this is not a significant risk.
+ *
+ * <p>Blocks are found in the ring through an {@link SPVBlockStoreIndex} kept in a sidecar file named after the store
+ * file with an {@code .idx} suffix, see {@link #getIndexFile(File)}. If that file is missing or out of date, for
+ * example for a store written by an older version, it is rebuilt when the store is opened.</p>
+ *
+ * <p>The most recent blocks of the best chain are also kept in memory by height, see {@link HeightIndexedBlockStore}.
+ * </p>
+ *
+ * <p>Writes are serialized by {@link #lock}, but {@link #get(Sha256Hash)} and {@link #getChainHead()} normally don't
+ * take it: lookups are answered from concurrent caches, or else through the index under the read lock of
+ * {@link #ringLock}, which writers hold the write lock of while they modify the ring and the index. This lets the
+ * chain, wallet and peer threads look up headers at the same time.</p>
  */
-public class SPVBlockStore implements BlockStore {
+public class SPVBlockStore implements HeightIndexedBlockStore {
     private static final Logger log = LoggerFactory.getLogger(SPVBlockStore.class);
     protected final ReentrantLock lock = Threading.lock(SPVBlockStore.class);
 
@@ -55,29 +69,32 @@ public class SPVBlockStore implements BlockStore {
     // the OpenJDK/Oracle JVM calls into the get() methods are compiled down to inlined native code on Android each
     // get() call is actually a full-blown JNI method under the hood, meaning it's unbelievably slow. The caches
     // below let us stay in the JIT-compiled Java world without expensive JNI transitions and make a 10x difference!
-    protected LinkedHashMap<Sha256Hash, StoredBlock> blockCache = new LinkedHashMap<Sha256Hash, StoredBlock>() {
-        @Override
-        protected boolean removeEldestEntry(Map.Entry<Sha256Hash, StoredBlock> entry) {
-            return size() > 2050;  // Slightly more than the difficulty transition period.
-        }
-    };
+    //
+    // Both caches are concurrent so that readers don't have to take the lock.
+    protected final Cache<Sha256Hash, StoredBlock> blockCache = CacheBuilder.newBuilder()
+            .maximumSize(2050)  // Slightly more than the difficulty transition period.
+            .build();
     // Use a separate cache to track get() misses. This is to efficiently handle the case of an unconnected block
     // during chain download. Each new block will do a get() on the unconnected block so if we haven't seen it yet we
     // must efficiently respond.
     //
-    // We don't care about the value in this cache. It is always notFoundMarker. Unfortunately LinkedHashSet does not
-    // provide the removeEldestEntry control.
+    // We don't care about the value in this cache. It is always NOT_FOUND_MARKER.
     private static final Object NOT_FOUND_MARKER = new Object();
-    protected LinkedHashMap<Sha256Hash, Object> notFoundCache = new LinkedHashMap<Sha256Hash, Object>() {
-        @Override
-        protected boolean removeEldestEntry(Map.Entry<Sha256Hash, Object> entry) {
-            return size() > 100;  // This was chosen arbitrarily.
-        }
-    };
+    private static final byte[] EMPTY_HASH = new byte[32];
+    protected final Cache<Sha256Hash, Object> notFoundCache = CacheBuilder.newBuilder()
+            .maximumSize(100)  // This was chosen arbitrarily.
+            .build();
+
+    // Guards the ring and the index against lookups while they are modified. It is only ever taken for writing with
+    // the lock held, so readers don't wait on writers that are busy with anything else.
+    protected final ReentrantReadWriteLock ringLock = Threading.readWriteLock("SPVBlockStore ring lock");
+
     // Used to stop other applications/processes from opening the store.
     protected FileLock fileLock = null;
     protected RandomAccessFile randomAccessFile = null;
     private int fileLength;
+    private SPVBlockStoreIndex index = null;
+    private final RecentHeightIndex heightIndex = new RecentHeightIndex(RecentHeightIndex.DEFAULT_CAPACITY);
 
     /**
      * Creates and initializes an SPV block store that can hold {@link #DEFAULT_CAPACITY} block headers. Will create the
@@ -144,11 +161,23 @@ public class SPVBlockStore implements BlockStore {
                 buffer.get(header);
                 if (!new String(header, StandardCharsets.US_ASCII).equals(HEADER_MAGIC))
                     throw new BlockStoreException("Header bytes do not equal " + HEADER_MAGIC);
+            }
+
+            index = new SPVBlockStoreIndex(getIndexFile(file), capacity, FILE_PROLOGUE_BYTES, RECORD_SIZE);
+            if (exists) {
+                int cursor = getRingCursor(buffer);
+                byte[] chainHeadHash = getChainHeadHash(buffer);
+                if (index.isFresh() || !index.isInSync(cursor, chainHeadHash)) {
+                    log.info("Rebuilding SPV block chain index " + getIndexFile(file));
+                    index.rebuild(buffer, cursor, chainHeadHash);
+                }
             } else {
+                index.clearTable();
                 initNewStore(params);
             }
         } catch (Exception e) {
             try {
+                if (index != null) index.close();
                 if (randomAccessFile != null) randomAccessFile.close();
             } catch (IOException e2) {
                 throw new BlockStoreException(e2);
@@ -174,6 +203,11 @@ public class SPVBlockStore implements BlockStore {
         setChainHead(storedGenesis);
     }
 
+    /** Returns the sidecar file holding the hash index for the store in the given file. */
+    public static File getIndexFile(File file) {
+        return new File(file.getPath() + ".idx");
+    }
+
     /** Returns the size in bytes of the file that is used to store the chain with the current parameters. */
     public static final int getFileSize(int capacity) {
         return RECORD_SIZE * capacity + FILE_PROLOGUE_BYTES /* extra kilobyte for stuff */;
@@ -186,79 +220,99 @@ public class SPVBlockStore implements BlockStore {
 
         lock.lock();
         try {
-            int cursor = getRingCursor(buffer);
-            if (cursor == fileLength) {
-                // Wrapped around.
-                cursor = FILE_PROLOGUE_BYTES;
+            beginWrite();
+            try {
+                int cursor = getRingCursor(buffer);
+                if (cursor == fileLength) {
+                    // Wrapped around.
+                    cursor = FILE_PROLOGUE_BYTES;
+                }
+                // Forget the record we are about to overwrite, if any.
+                byte[] overwritten = new byte[32];
+                buffer.position(cursor);
+                buffer.get(overwritten);
+                if (!Arrays.equals(overwritten, EMPTY_HASH))
+                    index.remove(overwritten, cursor);
+                buffer.position(cursor);
+                Sha256Hash hash = block.getHeader().getHash();
+                buffer.put(hash.getBytes());
+                block.serializeCompact(buffer);
+                index.put(buffer, hash.getBytes(), cursor);
+                setRingCursor(buffer, buffer.position());
+                blockCache.put(hash, block);
+                notFoundCache.invalidate(hash);
+            } finally {
+                endWrite();
             }
-            buffer.position(cursor);
-            Sha256Hash hash = block.getHeader().getHash();
-            notFoundCache.remove(hash);
-            buffer.put(hash.getBytes());
-            block.serializeCompact(buffer);
-            setRingCursor(buffer, buffer.position());
-            blockCache.put(hash, block);
         } finally { lock.unlock(); }
     }
 
+    private void beginWrite() {
+        checkState(lock.isHeldByCurrentThread());
+        ringLock.writeLock().lock();
+    }
+
+    private void endWrite() {
+        ringLock.writeLock().unlock();
+    }
+
     @Override
     @Nullable
     public StoredBlock get(Sha256Hash hash) throws BlockStoreException {
         final MappedByteBuffer buffer = this.buffer;
         if (buffer == null) throw new BlockStoreException("Store closed");
 
-        lock.lock();
+        StoredBlock cacheHit = blockCache.getIfPresent(hash);
+        if (cacheHit != null)
+            return cacheHit;
+        if (notFoundCache.getIfPresent(hash) != null)
+            return null;
+
+        ringLock.readLock().lock();
         try {
-            StoredBlock cacheHit = blockCache.get(hash);
-            if (cacheHit != null)
-                return cacheHit;
-            if (notFoundCache.get(hash) != null)
-                return null;
-
-            // Starting from the current tip of the ring work backwards until we have either found the block or
-            // wrapped around.
-            int cursor = getRingCursor(buffer);
-            final int startingPoint = cursor;
-            final byte[] targetHashBytes = hash.getBytes();
-            byte[] scratch = new byte[32];
-            do {
-                cursor -= RECORD_SIZE;
-                if (cursor < FILE_PROLOGUE_BYTES) {
-                    // We hit the start, so wrap around.
-                    cursor = fileLength - RECORD_SIZE;
-                }
-                // Cursor is now at the start of the next record to check, so read the hash and compare it.
-                buffer.position(cursor);
-                buffer.get(scratch);
-                if (Arrays.equals(scratch, targetHashBytes)) {
-                    // Found the target.
-                    StoredBlock storedBlock = StoredBlock.deserializeCompact(params, buffer);
-                    blockCache.put(hash, storedBlock);
-                    return storedBlock;
-                }
-            } while (cursor != startingPoint);
-            // Not found.
-            notFoundCache.put(hash, NOT_FOUND_MARKER);
+            StoredBlock storedBlock = lookup(buffer, hash);
+            // Still under the read lock, so a put() of a missing block can't clear the not found cache before the
+            // miss is added to it.
+            if (storedBlock != null)
+                blockCache.put(hash, storedBlock);
+            else
+                notFoundCache.put(hash, NOT_FOUND_MARKER);
+            return storedBlock;
+        } finally { ringLock.readLock().unlock(); }
+    }
+
+    /**
+     * Finds the block through the index and reads it from the ring. Reads through a duplicate of the buffer, so
+     * concurrent readers don't disturb each other's or a writer's position.
+     */
+    @Nullable
+    private StoredBlock lookup(MappedByteBuffer buffer, Sha256Hash hash) {
+        int offset = index.find(buffer, hash.getBytes());
+        if (offset < 0)
             return null;
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset + 32);
+        try {
+            return StoredBlock.deserializeCompact(params, view, hash);
         } catch (ProtocolException e) {
             throw new RuntimeException(e);  // Cannot happen.
-        } finally { lock.unlock(); }
+        }
     }
 
-    protected StoredBlock lastChainHead = null;
+    protected volatile StoredBlock lastChainHead = null;
 
     @Override
     public StoredBlock getChainHead() throws BlockStoreException {
         final MappedByteBuffer buffer = this.buffer;
         if (buffer == null) throw new BlockStoreException("Store closed");
 
+        StoredBlock chainHead = lastChainHead;
+        if (chainHead != null)
+            return chainHead;
         lock.lock();
         try {
             if (lastChainHead == null) {
-                byte[] headHash = new byte[32];
-                buffer.position(8);
-                buffer.get(headHash);
-                Sha256Hash hash = Sha256Hash.wrap(headHash);
+                Sha256Hash hash = Sha256Hash.wrap(getChainHeadHash(buffer));
                 StoredBlock block = get(hash);
                 if (block == null)
                     throw new BlockStoreException("Corrupted block store: could not find chain head: " + hash);
@@ -279,6 +333,32 @@ public class SPVBlockStore implements BlockStore {
             byte[] headHash = chainHead.getHeader().getHash().getBytes();
             buffer.position(8);
             buffer.put(headHash);
+            index.setChainHead(headHash);
+            heightIndex.setChainHead(chainHead, this);
+        } finally { lock.unlock(); }
+    }
+
+    @Override
+    @Nullable
+    public StoredBlock getByHeight(int height) throws BlockStoreException {
+        initHeightIndex();
+        return heightIndex.get(height);
+    }
+
+    @Override
+    public List<StoredBlock> getRange(int fromHeight, int toHeight) throws BlockStoreException {
+        initHeightIndex();
+        return heightIndex.getRange(fromHeight, toHeight);
+    }
+
+    /** Fills the height index from the stored chain head, if that hasn't happened yet. */
+    private void initHeightIndex() throws BlockStoreException {
+        if (heightIndex.isInitialized())
+            return;
+        lock.lock();
+        try {
+            if (!heightIndex.isInitialized())
+                heightIndex.setChainHead(getChainHead(), this);
         } finally { lock.unlock(); }
     }
 
@@ -289,7 +369,8 @@ public class SPVBlockStore implements BlockStore {
             buffer = null;  // Allow it to be GCd and the underlying file mapping to go away.
             fileLock.release();
             randomAccessFile.close();
-            blockCache.clear();
+            index.close();
+            blockCache.invalidateAll();
         } catch (IOException e) {
             throw new BlockStoreException(e);
         }
@@ -324,22 +405,38 @@ public class SPVBlockStore implements BlockStore {
     private void setRingCursor(ByteBuffer buffer, int newCursor) {
         checkArgument(newCursor >= 0);
         buffer.putInt(4, newCursor);
+        index.setRingCursor(newCursor);
+    }
+
+    private static byte[] getChainHeadHash(ByteBuffer buffer) {
+        byte[] headHash = new byte[32];
+        for (int i = 0; i < headHash.length; i++)
+            headHash[i] = buffer.get(8 + i);
+        return headHash;
     }
 
     public void clear() throws Exception {
         lock.lock();
         try {
-            // Clear caches
-            blockCache.clear();
-            notFoundCache.clear();
-            // Clear file content
-            buffer.position(0);
-            long fileLength = randomAccessFile.length();
-            for (int i = 0; i < fileLength; i++) {
-                buffer.put((byte)0);
+            beginWrite();
+            try {
+                // Clear caches
+                blockCache.invalidateAll();
+                notFoundCache.invalidateAll();
+                heightIndex.clear();
+                lastChainHead = null;
+                // Clear file content
+                buffer.position(0);
+                long fileLength = randomAccessFile.length();
+                for (int i = 0; i < fileLength; i++) {
+                    buffer.put((byte)0);
+                }
+                index.clearTable();
+                // Initialize store again
+                buffer.position(0);
+            } finally {
+                endWrite();
             }
-            // Initialize store again
-            buffer.position(0);
             initNewStore(params);
         } finally { lock.unlock(); }
     }
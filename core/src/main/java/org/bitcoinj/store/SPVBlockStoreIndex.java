@@ -0,0 +1,276 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bitcoinj.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * <p>A memory mapped open addressing hash table that maps block hashes to records in the ring buffer of an
+ * {@link SPVBlockStore}, so that looking up a block that isn't cached takes constant time rather than a scan of the
+ * whole ring. It lives in a sidecar file next to the store, which keeps the store's own file format unchanged.</p>
+ *
+ * <p>Each slot holds 4 bytes of the block hash and the record's position in the ring. Hits are confirmed against the
+ * full hash stored in the ring, so the index never returns a wrong record. Collisions are resolved by linear probing
+ * and entries of overwritten records are removed by shifting later entries back, so no tombstones build up.</p>
+ *
+ * <p>The header remembers the ring cursor and chain head of the store it was last updated with. If they don't match
+ * when the store is opened, for example because the store was written by a version that didn't maintain an index, the
+ * index is rebuilt from the ring.</p>
+ *
+ * <p>Lookups only use absolute reads and may run concurrently with each other. Modifications must be serialized by the
+ * caller, and lookups running concurrently with a modification may return garbage that must be discarded.</p>
+ */
+final class SPVBlockStoreIndex {
+    static final String HEADER_MAGIC = "SPVI";
+    static final int VERSION = 1;
+
+    // File format:
+    //   4 header bytes = "SPVI"
+    //   4 bytes version
+    //   4 bytes capacity of the ring, in records
+    //   4 bytes ring cursor of the store when the index was last updated
+    //   32 bytes chain head of the store when the index was last updated
+    //   padding up to HEADER_BYTES
+    //
+    // For each slot (8 bytes)
+    //   4 bytes of the block hash, used to compute the home slot and to skip most non-matching records
+    //   4 bytes record number in the ring plus one, or zero if the slot is empty
+    private static final int HEADER_BYTES = 64;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int CURSOR_OFFSET = 12;
+    private static final int CHAIN_HEAD_OFFSET = 16;
+    private static final int SLOT_SIZE = 8;
+    private static final int HASH_LENGTH = 32;
+
+    private final int capacity;
+    private final int firstRecordOffset;
+    private final int recordSize;
+    private final int mask;
+    private final int shift;
+    private final RandomAccessFile randomAccessFile;
+    private final MappedByteBuffer buffer;
+    private final boolean fresh;
+
+    /**
+     * Opens or creates the index file for a ring of {@code capacity} records of {@code recordSize} bytes, the first of
+     * which starts at {@code firstRecordOffset}. An existing index of a different capacity or version is discarded.
+     */
+    SPVBlockStoreIndex(File file, int capacity, int firstRecordOffset, int recordSize) throws IOException {
+        this.capacity = capacity;
+        this.firstRecordOffset = firstRecordOffset;
+        this.recordSize = recordSize;
+        int slots = Integer.highestOneBit(Math.max(capacity, 1) * 2 - 1) << 1; // At most half full.
+        this.mask = slots - 1;
+        this.shift = 32 - Integer.numberOfTrailingZeros(slots);
+        long length = HEADER_BYTES + (long) slots * SLOT_SIZE;
+
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            boolean valid = randomAccessFile.length() == length;
+            randomAccessFile.setLength(length);
+            buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+            if (valid) {
+                byte[] magic = new byte[4];
+                for (int i = 0; i < magic.length; i++)
+                    magic[i] = buffer.get(i);
+                valid = new String(magic, StandardCharsets.US_ASCII).equals(HEADER_MAGIC)
+                        && buffer.getInt(4) == VERSION && buffer.getInt(CAPACITY_OFFSET) == capacity;
+            }
+            fresh = !valid;
+            if (fresh) {
+                clearTable();
+                byte[] magic = HEADER_MAGIC.getBytes(StandardCharsets.US_ASCII);
+                for (int i = 0; i < magic.length; i++)
+                    buffer.put(i, magic[i]);
+                buffer.putInt(4, VERSION);
+                buffer.putInt(CAPACITY_OFFSET, capacity);
+                buffer.putInt(CURSOR_OFFSET, 0);
+            }
+        } catch (IOException | RuntimeException e) {
+            randomAccessFile.close();
+            throw e;
+        }
+    }
+
+    /** Returns true if the index was created or discarded when it was opened, and so has to be rebuilt. */
+    boolean isFresh() {
+        return fresh;
+    }
+
+    /** Returns true if the index was last updated for a store with the given ring cursor and chain head. */
+    boolean isInSync(int ringCursor, byte[] chainHeadHash) {
+        if (buffer.getInt(CURSOR_OFFSET) != ringCursor)
+            return false;
+        for (int i = 0; i < HASH_LENGTH; i++)
+            if (buffer.get(CHAIN_HEAD_OFFSET + i) != chainHeadHash[i])
+                return false;
+        return true;
+    }
+
+    void setRingCursor(int ringCursor) {
+        buffer.putInt(CURSOR_OFFSET, ringCursor);
+    }
+
+    void setChainHead(byte[] chainHeadHash) {
+        for (int i = 0; i < HASH_LENGTH; i++)
+            buffer.put(CHAIN_HEAD_OFFSET + i, chainHeadHash[i]);
+    }
+
+    /**
+     * Returns the offset in {@code ring} of the record holding the given hash, or -1 if there is none. The returned
+     * offset points at the start of the record, i.e. at the hash.
+     */
+    int find(ByteBuffer ring, byte[] hash) {
+        int fragment = fragment(hash);
+        for (int slot = home(fragment); ; slot = (slot + 1) & mask) {
+            int record = recordAt(slot);
+            if (record == 0)
+                return -1;
+            if (fragmentAt(slot) == fragment) {
+                int offset = offsetOf(record - 1);
+                if (hashEquals(ring, offset, hash))
+                    return offset;
+            }
+        }
+    }
+
+    /**
+     * Records that the record at {@code offset} holds the given hash. If the hash was already indexed, the entry is
+     * moved to the new record, which is always the more recent one.
+     */
+    void put(ByteBuffer ring, byte[] hash, int offset) {
+        int fragment = fragment(hash);
+        int record = recordOf(offset) + 1;
+        int slot = home(fragment);
+        for (; ; slot = (slot + 1) & mask) {
+            int existing = recordAt(slot);
+            if (existing == 0)
+                break;
+            if (fragmentAt(slot) == fragment && hashEquals(ring, offsetOf(existing - 1), hash))
+                break;
+        }
+        setSlot(slot, fragment, record);
+    }
+
+    /** Removes the entry for the given hash if it points at the record at {@code offset}. */
+    void remove(byte[] hash, int offset) {
+        int fragment = fragment(hash);
+        int record = recordOf(offset) + 1;
+        for (int slot = home(fragment); ; slot = (slot + 1) & mask) {
+            int existing = recordAt(slot);
+            if (existing == 0)
+                return;
+            if (existing == record && fragmentAt(slot) == fragment) {
+                delete(slot);
+                return;
+            }
+        }
+    }
+
+    /** Discards all entries and indexes every non-empty record of the ring, oldest first. */
+    void rebuild(ByteBuffer ring, int ringCursor, byte[] chainHeadHash) {
+        clearTable();
+        byte[] hash = new byte[HASH_LENGTH];
+        byte[] empty = new byte[HASH_LENGTH];
+        int cursor = ringCursor;
+        for (int i = 0; i < capacity; i++) {
+            if (cursor >= firstRecordOffset + capacity * recordSize)
+                cursor = firstRecordOffset;
+            for (int j = 0; j < HASH_LENGTH; j++)
+                hash[j] = ring.get(cursor + j);
+            if (!Arrays.equals(hash, empty))
+                put(ring, hash, cursor);
+            cursor += recordSize;
+        }
+        setRingCursor(ringCursor);
+        setChainHead(chainHeadHash);
+    }
+
+    /** Removes all entries. */
+    void clearTable() {
+        for (int slot = 0; slot <= mask; slot++)
+            setSlot(slot, 0, 0);
+    }
+
+    void close() throws IOException {
+        buffer.force();
+        randomAccessFile.close();
+    }
+
+    /** Removes the entry in the given slot, shifting back later entries of the same cluster that can move closer. */
+    private void delete(int hole) {
+        int slot = hole;
+        while (true) {
+            slot = (slot + 1) & mask;
+            int record = recordAt(slot);
+            if (record == 0)
+                break;
+            int fragment = fragmentAt(slot);
+            int home = home(fragment);
+            // The entry may fill the hole unless its home lies cyclically in (hole, slot].
+            boolean stays = hole <= slot ? (hole < home && home <= slot) : (hole < home || home <= slot);
+            if (!stays) {
+                setSlot(hole, fragment, record);
+                hole = slot;
+            }
+        }
+        setSlot(hole, 0, 0);
+    }
+
+    private boolean hashEquals(ByteBuffer ring, int offset, byte[] hash) {
+        for (int i = HASH_LENGTH - 1; i >= 0; i--)
+            if (ring.get(offset + i) != hash[i])
+                return false;
+        return true;
+    }
+
+    private static int fragment(byte[] hash) {
+        // Block hashes start with zeros, so take the other end.
+        return (hash[28] & 0xff) << 24 | (hash[29] & 0xff) << 16 | (hash[30] & 0xff) << 8 | (hash[31] & 0xff);
+    }
+
+    private int home(int fragment) {
+        // Fibonacci hashing, taking the well mixed high bits.
+        return (int) ((fragment * 0x9E3779B9L & 0xffffffffL) >>> shift) & mask;
+    }
+
+    private int offsetOf(int record) {
+        return firstRecordOffset + record * recordSize;
+    }
+
+    private int recordOf(int offset) {
+        return (offset - firstRecordOffset) / recordSize;
+    }
+
+    private int fragmentAt(int slot) {
+        return buffer.getInt(HEADER_BYTES + slot * SLOT_SIZE);
+    }
+
+    private int recordAt(int slot) {
+        return buffer.getInt(HEADER_BYTES + slot * SLOT_SIZE + 4);
+    }
+
+    private void setSlot(int slot, int fragment, int record) {
+        buffer.putInt(HEADER_BYTES + slot * SLOT_SIZE, fragment);
+        buffer.putInt(HEADER_BYTES + slot * SLOT_SIZE + 4, record);
+    }
+}
@@ -0,0 +1,507 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bitcoinj.store;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.bitcoinj.core.*;
+import org.bitcoinj.utils.*;
+import org.slf4j.*;
+
+import javax.annotation.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.locks.*;
+
+import static com.google.common.base.Preconditions.*;
+
+/**
+ * <p>A block store that keeps every header it is given, so unlike the {@link SPVBlockStore} ring it never forgets old
+ * headers and can handle re-orgs of any depth. Headers are appended to memory mapped segment files of a fixed number
+ * of records in a directory, and a new segment is added whenever the last one is full. Each record takes the same 128
+ * bytes as in the {@link SPVBlockStore}, plus 16 bytes in the segment's hash index and 4 bytes in the height index.</p>
+ *
+ * <p>Every segment has its own {@link SPVBlockStoreIndex}, so looking up a block by hash takes one constant time probe
+ * per segment, newest segment first. The height index maps each height of the best chain to its record and is
+ * updated by {@link #setChainHead(StoredBlock)}, so {@link #getByHeight(int)} runs in constant time.</p>
+ *
+ * <p>The directory contains:</p>
+ * <ul>
+ *     <li>{@code heights.dat}: the chain head and the height index. It is also locked to stop other
+ *     applications/processes from opening the store.</li>
+ *     <li>{@code segment-NNNNN.dat}: the records, and next to each one its hash index.</li>
+ * </ul>
+ *
+ * <p>As with the {@link SPVBlockStore}, writes are serialized by {@link #lock} while reads normally don't take it.
+ * Records are never overwritten and are only published once complete, so readers need no further validation.</p>
+ */
+public class SegmentedBlockStore implements HeightIndexedBlockStore {
+    private static final Logger log = LoggerFactory.getLogger(SegmentedBlockStore.class);
+    protected final ReentrantLock lock = Threading.lock(SegmentedBlockStore.class);
+
+    /** The default number of headers per segment file. */
+    public static final int DEFAULT_SEGMENT_CAPACITY = 1 << 16;
+    public static final String HEADER_MAGIC = "SPVH";
+    public static final String SEGMENT_MAGIC = "SPVS";
+    private static final int VERSION = 1;
+
+    static final String HEIGHTS_FILE_NAME = "heights.dat";
+
+    // Heights file format:
+    //   4 header bytes = "SPVH"
+    //   4 bytes version
+    //   4 bytes segment capacity
+    //   4 bytes height of the chain head
+    //   32 bytes hash of the chain head
+    //   padding up to HEIGHTS_PROLOGUE_BYTES
+    //
+    // For each height of the best chain (4 bytes)
+    //   record number plus one, or zero if unknown
+    private static final int HEIGHTS_PROLOGUE_BYTES = 64;
+    private static final int HEIGHTS_PER_CHUNK = 1 << 20;
+
+    // Segment file format:
+    //   4 header bytes = "SPVS"
+    //   4 bytes version
+    //   4 bytes number of records in this segment
+    //   padding up to SEGMENT_PROLOGUE_BYTES
+    //
+    // For each record (128 bytes), the same as in the SPVBlockStore
+    //   32 bytes hash of the header
+    //   12 bytes of chain work
+    //    4 bytes of height
+    //   80 bytes of block header data
+    private static final int SEGMENT_PROLOGUE_BYTES = 64;
+    private static final int RECORD_SIZE = SPVBlockStore.RECORD_SIZE;
+
+    private final NetworkParameters params;
+    private final File directory;
+    private final int segmentCapacity;
+
+    private RandomAccessFile heightsFile;
+    private FileLock fileLock;
+    private MappedByteBuffer heightsPrologue;
+    // Chunks of the height index, mapped as the chain grows. Replaced, never modified, so readers can use a snapshot.
+    private volatile MappedByteBuffer[] heightChunks = new MappedByteBuffer[0];
+    // Replaced, never modified, so readers can use a snapshot.
+    private volatile Segment[] segments = new Segment[0];
+    // Writers publish a record by incrementing this after it has been written and indexed. Readers ignore records at
+    // or above it.
+    private volatile int recordCount;
+    private volatile StoredBlock chainHead;
+    private volatile boolean closed;
+
+    private final Cache<Sha256Hash, StoredBlock> blockCache = CacheBuilder.newBuilder()
+            .maximumSize(2050)  // Slightly more than the difficulty transition period.
+            .build();
+
+    /**
+     * Opens the store in the given directory, creating it with {@link #DEFAULT_SEGMENT_CAPACITY} headers per segment
+     * if it's missing. This operation will block on disk.
+     * @param directory directory to keep the store files in
+     * @throws BlockStoreException if something goes wrong
+     */
+    public SegmentedBlockStore(NetworkParameters params, File directory) throws BlockStoreException {
+        this(params, directory, DEFAULT_SEGMENT_CAPACITY);
+    }
+
+    /**
+     * Opens the store in the given directory, creating it if it's missing. This operation will block on disk.
+     * @param directory directory to keep the store files in
+     * @param segmentCapacity number of headers per segment file, must match the capacity the store was created with
+     * @throws BlockStoreException if something goes wrong
+     */
+    public SegmentedBlockStore(NetworkParameters params, File directory, int segmentCapacity)
+            throws BlockStoreException {
+        this.params = checkNotNull(params);
+        this.directory = checkNotNull(directory);
+        checkArgument(segmentCapacity > 0);
+        this.segmentCapacity = segmentCapacity;
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs())
+                throw new BlockStoreException("Could not create directory " + directory);
+            File file = new File(directory, HEIGHTS_FILE_NAME);
+            boolean exists = file.exists();
+            heightsFile = new RandomAccessFile(file, "rw");
+            fileLock = heightsFile.getChannel().tryLock();
+            if (fileLock == null)
+                throw new ChainFileLockedException("Store file is already locked by another process");
+            heightsPrologue = heightsFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEIGHTS_PROLOGUE_BYTES);
+
+            if (exists) {
+                checkMagic(heightsPrologue, HEADER_MAGIC);
+                int storedCapacity = heightsPrologue.getInt(8);
+                if (storedCapacity != segmentCapacity)
+                    throw new BlockStoreException("Segment capacity on disk does not match: " + storedCapacity
+                            + " vs " + segmentCapacity);
+                openSegments();
+                mapHeightChunks(heightsPrologue.getInt(12));
+                Sha256Hash headHash = Sha256Hash.wrap(getBytes(heightsPrologue, 16, 32));
+                StoredBlock head = get(headHash);
+                if (head == null)
+                    throw new BlockStoreException("Corrupted block store: could not find chain head: " + headHash);
+                // Repairs the height index in case we were interrupted while updating it.
+                setChainHead(head);
+            } else {
+                log.info("Creating new segmented block store in " + directory);
+                putMagic(heightsPrologue, HEADER_MAGIC);
+                heightsPrologue.putInt(4, VERSION);
+                heightsPrologue.putInt(8, segmentCapacity);
+                Block genesis = params.getGenesisBlock().cloneAsHeader();
+                StoredBlock storedGenesis = new StoredBlock(genesis, genesis.getWork(), 0);
+                put(storedGenesis);
+                setChainHead(storedGenesis);
+            }
+        } catch (Exception e) {
+            closeQuietly();
+            if (e instanceof BlockStoreException)
+                throw (BlockStoreException) e;
+            throw new BlockStoreException(e);
+        }
+    }
+
+    /** Returns the file of the segment with the given number. */
+    File getSegmentFile(int number) {
+        return new File(directory, String.format(Locale.US, "segment-%05d.dat", number));
+    }
+
+    private void openSegments() throws IOException, BlockStoreException {
+        int count = 0;
+        for (int number = 0; getSegmentFile(number).exists(); number++) {
+            Segment segment = new Segment(number, false);
+            addSegment(segment);
+            int records = segment.getRecordCount();
+            if (records < segmentCapacity && getSegmentFile(number + 1).exists())
+                throw new BlockStoreException("Corrupted block store: segment " + number + " is not full");
+            count += records;
+        }
+        recordCount = count;
+    }
+
+    private void addSegment(Segment segment) {
+        Segment[] grown = Arrays.copyOf(segments, segments.length + 1);
+        grown[segment.number] = segment;
+        segments = grown;
+    }
+
+    @Override
+    public void put(StoredBlock block) throws BlockStoreException {
+        checkOpen();
+        Sha256Hash hash = block.getHeader().getHash();
+        lock.lock();
+        try {
+            // Blocks are never forgotten, so there's no point in storing one twice.
+            if (find(hash.getBytes()) >= 0)
+                return;
+            int record = recordCount;
+            int number = record / segmentCapacity;
+            if (number == segments.length)
+                addSegment(new Segment(number, true));
+            segments[number].write(record % segmentCapacity, hash, block);
+            recordCount = record + 1;
+            blockCache.put(hash, block);
+        } catch (IOException e) {
+            throw new BlockStoreException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    @Nullable
+    public StoredBlock get(Sha256Hash hash) throws BlockStoreException {
+        checkOpen();
+        StoredBlock cacheHit = blockCache.getIfPresent(hash);
+        if (cacheHit != null)
+            return cacheHit;
+        int record = find(hash.getBytes());
+        if (record < 0)
+            return null;
+        StoredBlock storedBlock = read(record);
+        blockCache.put(hash, storedBlock);
+        return storedBlock;
+    }
+
+    @Override
+    @Nullable
+    public StoredBlock getByHeight(int height) throws BlockStoreException {
+        checkOpen();
+        StoredBlock head = chainHead;
+        if (height < 0 || head == null || height > head.getHeight())
+            return null;
+        if (height == head.getHeight())
+            return head;
+        int record = getHeightEntry(height) - 1;
+        if (record < 0 || record >= recordCount)
+            return null;
+        return read(record);
+    }
+
+    @Override
+    public List<StoredBlock> getRange(int fromHeight, int toHeight) throws BlockStoreException {
+        List<StoredBlock> range = new ArrayList<>(Math.max(0, Math.min(toHeight - fromHeight, 1024)));
+        for (int height = Math.max(fromHeight, 0); height < toHeight; height++) {
+            StoredBlock block = getByHeight(height);
+            if (block == null)
+                break;
+            range.add(block);
+        }
+        return range;
+    }
+
+    @Override
+    public StoredBlock getChainHead() throws BlockStoreException {
+        checkOpen();
+        return chainHead;
+    }
+
+    /**
+     * Sets the chain head and brings the height index in line with it, walking back from the new head until it
+     * meets the previous best chain. This is a single step when the chain is extended by one block.
+     */
+    @Override
+    public void setChainHead(StoredBlock chainHead) throws BlockStoreException {
+        checkOpen();
+        lock.lock();
+        try {
+            Sha256Hash headHash = chainHead.getHeader().getHash();
+            StoredBlock cursor = chainHead;
+            while (cursor != null) {
+                int record = find(cursor.getHeader().getHash().getBytes());
+                if (record < 0)
+                    throw new BlockStoreException("Block is not in the store: " + cursor.getHeader().getHash());
+                int height = cursor.getHeight();
+                if (getHeightEntry(height) == record + 1)
+                    break;
+                setHeightEntry(height, record + 1);
+                cursor = height > 0 ? get(cursor.getHeader().getPrevBlockHash()) : null;
+            }
+            heightsPrologue.putInt(12, chainHead.getHeight());
+            byte[] headHashBytes = headHash.getBytes();
+            for (int i = 0; i < headHashBytes.length; i++)
+                heightsPrologue.put(16 + i, headHashBytes[i]);
+            this.chainHead = chainHead;
+        } catch (IOException e) {
+            throw new BlockStoreException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws BlockStoreException {
+        lock.lock();
+        try {
+            if (closed)
+                return;
+            closed = true;
+            heightsPrologue.force();
+            for (MappedByteBuffer chunk : heightChunks)
+                chunk.force();
+            for (Segment segment : segments)
+                segment.close();
+            fileLock.release();
+            heightsFile.close();
+            blockCache.invalidateAll();
+        } catch (IOException e) {
+            throw new BlockStoreException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public NetworkParameters getParams() {
+        return params;
+    }
+
+    /** Returns the number of headers held by the store, including those not on the best chain. */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /** Returns the number of segment files. */
+    public int getSegmentCount() {
+        return segments.length;
+    }
+
+    private void checkOpen() throws BlockStoreException {
+        if (closed) throw new BlockStoreException("Store closed");
+    }
+
+    /** Returns the number of the published record holding the given hash, or -1 if there is none. */
+    private int find(byte[] hash) {
+        int count = recordCount;
+        Segment[] segments = this.segments;
+        for (int number = segments.length - 1; number >= 0; number--) {
+            Segment segment = segments[number];
+            int offset = segment.index.find(segment.buffer, hash);
+            if (offset >= 0) {
+                int record = number * segmentCapacity + (offset - SEGMENT_PROLOGUE_BYTES) / RECORD_SIZE;
+                return record < count ? record : -1;
+            }
+        }
+        return -1;
+    }
+
+    private StoredBlock read(int record) {
+        Segment segment = segments[record / segmentCapacity];
+        ByteBuffer view = segment.buffer.duplicate();
+        view.position(SEGMENT_PROLOGUE_BYTES + (record % segmentCapacity) * RECORD_SIZE);
+        byte[] hash = new byte[32];
+        view.get(hash);
+        try {
+            return StoredBlock.deserializeCompact(params, view, Sha256Hash.wrap(hash));
+        } catch (ProtocolException e) {
+            throw new RuntimeException(e);  // Cannot happen.
+        }
+    }
+
+    private int getHeightEntry(int height) {
+        MappedByteBuffer[] chunks = heightChunks;
+        int chunk = height / HEIGHTS_PER_CHUNK;
+        if (chunk >= chunks.length)
+            return 0;
+        return chunks[chunk].getInt((height % HEIGHTS_PER_CHUNK) * 4);
+    }
+
+    private void setHeightEntry(int height, int value) throws IOException {
+        mapHeightChunks(height);
+        heightChunks[height / HEIGHTS_PER_CHUNK].putInt((height % HEIGHTS_PER_CHUNK) * 4, value);
+    }
+
+    /** Maps the chunks of the height index up to the one holding the given height, growing the file if needed. */
+    private void mapHeightChunks(int height) throws IOException {
+        int chunk = height / HEIGHTS_PER_CHUNK;
+        MappedByteBuffer[] chunks = heightChunks;
+        if (chunk < chunks.length)
+            return;
+        chunks = Arrays.copyOf(chunks, chunk + 1);
+        for (int i = heightChunks.length; i <= chunk; i++) {
+            long position = HEIGHTS_PROLOGUE_BYTES + (long) i * HEIGHTS_PER_CHUNK * 4;
+            chunks[i] = heightsFile.getChannel().map(FileChannel.MapMode.READ_WRITE, position, HEIGHTS_PER_CHUNK * 4);
+        }
+        heightChunks = chunks;
+    }
+
+    private void closeQuietly() {
+        closed = true;
+        for (Segment segment : segments) {
+            try {
+                segment.close();
+            } catch (IOException x) {
+                log.info("Closing segment failed: " + x.getMessage());
+            }
+        }
+        try {
+            if (heightsFile != null) heightsFile.close();
+        } catch (IOException x) {
+            log.info("Closing heights file failed: " + x.getMessage());
+        }
+    }
+
+    private static void checkMagic(ByteBuffer buffer, String magic) throws BlockStoreException {
+        if (!new String(getBytes(buffer, 0, 4), StandardCharsets.US_ASCII).equals(magic))
+            throw new BlockStoreException("Header bytes do not equal " + magic);
+    }
+
+    private static void putMagic(ByteBuffer buffer, String magic) {
+        byte[] bytes = magic.getBytes(StandardCharsets.US_ASCII);
+        for (int i = 0; i < bytes.length; i++)
+            buffer.put(i, bytes[i]);
+    }
+
+    private static byte[] getBytes(ByteBuffer buffer, int offset, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++)
+            bytes[i] = buffer.get(offset + i);
+        return bytes;
+    }
+
+    /** One segment file and its hash index. The hash index never wraps, so entries are only ever added. */
+    private class Segment {
+        final int number;
+        final RandomAccessFile file;
+        final MappedByteBuffer buffer;
+        final SPVBlockStoreIndex index;
+
+        Segment(int number, boolean create) throws IOException, BlockStoreException {
+            this.number = number;
+            File segmentFile = getSegmentFile(number);
+            long length = SEGMENT_PROLOGUE_BYTES + (long) segmentCapacity * RECORD_SIZE;
+            file = new RandomAccessFile(segmentFile, "rw");
+            try {
+                if (create) {
+                    file.setLength(length);
+                } else if (file.length() != length) {
+                    throw new BlockStoreException("File size on disk does not match expected size: " + file.length()
+                            + " vs " + length);
+                }
+                buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+                if (create) {
+                    putMagic(buffer, SEGMENT_MAGIC);
+                    buffer.putInt(4, VERSION);
+                    buffer.putInt(8, 0);
+                } else {
+                    checkMagic(buffer, SEGMENT_MAGIC);
+                }
+                index = new SPVBlockStoreIndex(SPVBlockStore.getIndexFile(segmentFile), segmentCapacity,
+                        SEGMENT_PROLOGUE_BYTES, RECORD_SIZE);
+            } catch (IOException | BlockStoreException | RuntimeException e) {
+                file.close();
+                throw e;
+            }
+            // The index is stamped with the end of the records it covers, which has to match the segment.
+            int end = endOffset(getRecordCount());
+            if (create) {
+                index.clearTable();
+                index.setRingCursor(end);
+            } else if (index.isFresh() || !index.isInSync(end, new byte[32])) {
+                log.info("Rebuilding index of segment " + segmentFile);
+                index.rebuild(buffer, SEGMENT_PROLOGUE_BYTES, new byte[32]);
+                index.setRingCursor(end);
+            }
+        }
+
+        int getRecordCount() {
+            return buffer.getInt(8);
+        }
+
+        void write(int slot, Sha256Hash hash, StoredBlock block) {
+            checkState(slot == getRecordCount());
+            ByteBuffer view = buffer.duplicate();
+            int offset = SEGMENT_PROLOGUE_BYTES + slot * RECORD_SIZE;
+            view.position(offset);
+            view.put(hash.getBytes());
+            block.serializeCompact(view);
+            index.put(buffer, hash.getBytes(), offset);
+            buffer.putInt(8, slot + 1);
+            index.setRingCursor(endOffset(slot + 1));
+        }
+
+        void close() throws IOException {
+            buffer.force();
+            file.close();
+            index.close();
+        }
+
+        private int endOffset(int records) {
+            return SEGMENT_PROLOGUE_BYTES + records * RECORD_SIZE;
+        }
+    }
+}
@@ -28,6 +28,7 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.concurrent.*;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Various threading related utilities. Provides a wrapper around explicit lock creation that lets you control whether
@@ -161,6 +162,17 @@ public class Threading {
             return factory.newReentrantLock(name);
     }
 
+    public static ReentrantReadWriteLock readWriteLock(Class clazz) {
+        return readWriteLock(clazz.getSimpleName() + " read/write lock");
+    }
+
+    public static ReentrantReadWriteLock readWriteLock(String name) {
+        if (Utils.isAndroidRuntime())
+            return new ReentrantReadWriteLock(true);
+        else
+            return factory.newReentrantReadWriteLock(name);
+    }
+
     public static void warnOnLockCycles() {
         setPolicy(CycleDetectingLockFactory.Policies.WARN);
     }
@@ -200,4 +212,17 @@ public class Threading {
                 }
             })
     );
+
+    /////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    //
+    // Block header hashing pool.
+    //
+    /////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * A fork-join pool used to X13 hash batches of block headers in parallel, see
+     * {@link org.bitcoinj.core.BlockHeaderHasher}. Its workers are daemon threads. Replace it before starting network
+     * traffic if you want to bound the number of cores used for hashing.
+     */
+    public static ForkJoinPool HASHING_POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
 }
@@ -0,0 +1,278 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bitcoinj.wallet;
+
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionOutput;
+import com.google.common.annotations.VisibleForTesting;
+
+import java.util.*;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * <p>A {@link CoinSelector} that tries to avoid change, which saves the fee for the change output and for spending it
+ * later. It first searches, with branch and bound, for a set of outputs whose value is at least the target and at
+ * most {@link #getCostOfChange()} above it, the excess of which can just go to the fee. If there is none it falls back
+ * to a knapsack solver that finds the set of outputs closest to the target plus a change of at least
+ * {@link #getMinChange()}, or the single smallest output that covers it if that is better.</p>
+ *
+ * <p>Which outputs may be used is decided like in the {@link DefaultCoinSelector}, and can be customized the same way
+ * by overriding {@link #shouldSelect(Transaction)}. The {@link Wallet} passes its candidates ordered by decreasing
+ * value, which is the order the search needs, so they are only sorted if they come in another order. The search is
+ * bounded by {@link #MAX_TRIES} steps, so its cost doesn't grow with the number of outputs in the wallet.</p>
+ */
+public class BranchAndBoundCoinSelector extends DefaultCoinSelector {
+    /** The maximum number of steps of the branch and bound search, before it settles for the best set found. */
+    public static final int MAX_TRIES = 100000;
+    /** How many random sets of outputs the knapsack solver tries. */
+    public static final int KNAPSACK_ITERATIONS = 1000;
+
+    private final Coin costOfChange;
+    private final Coin minChange;
+    private final Random random = new Random();
+
+    /**
+     * Creates a selector that avoids change if it would be dust, and otherwise aims for a change of at least
+     * {@link Coin#CENT}.
+     */
+    public BranchAndBoundCoinSelector() {
+        this(Transaction.MIN_NONDUST_OUTPUT, Coin.CENT);
+    }
+
+    /**
+     * @param costOfChange How much value above the target is acceptable to avoid a change output, usually what the
+     *                     change output and spending it would cost in fees.
+     * @param minChange The smallest change to aim for if change can't be avoided.
+     */
+    public BranchAndBoundCoinSelector(Coin costOfChange, Coin minChange) {
+        checkArgument(costOfChange.signum() >= 0, "costOfChange must not be negative");
+        checkArgument(minChange.signum() >= 0, "minChange must not be negative");
+        this.costOfChange = costOfChange;
+        this.minChange = minChange;
+    }
+
+    /** Returns how much value above the target is accepted to avoid a change output. */
+    public Coin getCostOfChange() {
+        return costOfChange;
+    }
+
+    /** Returns the smallest change aimed for if change can't be avoided. */
+    public Coin getMinChange() {
+        return minChange;
+    }
+
+    @Override
+    public CoinSelection select(Coin target, List<TransactionOutput> candidates) {
+        ArrayList<TransactionOutput> outputs = new ArrayList<>(candidates.size());
+        long total = 0;
+        for (TransactionOutput output : candidates) {
+            if (!shouldSelect(output.getParentTransaction())) continue;
+            outputs.add(output);
+            total += output.getValue().value;
+        }
+        // Not enough, or asked for everything: there is nothing to choose.
+        if (total <= target.value)
+            return new CoinSelection(Coin.valueOf(total), outputs);
+        if (!isSortedByValue(outputs))
+            sortOutputsByValue(outputs);
+        long[] values = new long[outputs.size()];
+        for (int i = 0; i < values.length; i++)
+            values[i] = outputs.get(i).getValue().value;
+
+        boolean[] selection = selectBranchAndBound(values, total, target.value, costOfChange.value);
+        if (selection == null)
+            selection = selectKnapsack(values, target.value);
+        List<TransactionOutput> selected = new ArrayList<>();
+        long gathered = 0;
+        for (int i = 0; i < selection.length; i++) {
+            if (selection[i]) {
+                selected.add(outputs.get(i));
+                gathered += values[i];
+            }
+        }
+        return new CoinSelection(Coin.valueOf(gathered), selected);
+    }
+
+    /** Sorts the outputs by decreasing value. Outputs of the same value keep their order. */
+    @VisibleForTesting static void sortOutputsByValue(List<TransactionOutput> outputs) {
+        Collections.sort(outputs, new Comparator<TransactionOutput>() {
+            @Override
+            public int compare(TransactionOutput a, TransactionOutput b) {
+                return b.getValue().compareTo(a.getValue());
+            }
+        });
+    }
+
+    private static boolean isSortedByValue(List<TransactionOutput> outputs) {
+        for (int i = 1; i < outputs.size(); i++) {
+            if (outputs.get(i - 1).getValue().value < outputs.get(i).getValue().value)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Searches the sets of the given values, sorted in decreasing order, for one that adds up to between target and
+     * target + costOfChange, the closer to target and the fewer values the better. The search goes depth first,
+     * trying to include each value before leaving it out, and cuts branches that can't reach the target or went past
+     * it. Returns which values to include, or null if there is no such set or none was found in {@link #MAX_TRIES}
+     * steps.
+     */
+    @VisibleForTesting static boolean[] selectBranchAndBound(long[] values, long total, long target, long costOfChange) {
+        int n = values.length;
+        boolean[] included = new boolean[n];
+        boolean[] best = null;
+        long bestExcess = Long.MAX_VALUE;
+        int bestCount = Integer.MAX_VALUE;
+        long value = 0;         // Of the values included so far.
+        long available = total; // Of the values not decided on yet.
+        int count = 0;
+        int depth = 0;
+        for (int tries = 0; tries < MAX_TRIES; tries++) {
+            boolean backtrack = false;
+            if (value + available < target || value > target + costOfChange) {
+                backtrack = true;
+            } else if (value >= target) {
+                long excess = value - target;
+                if (excess < bestExcess || (excess == bestExcess && count < bestCount)) {
+                    best = Arrays.copyOf(included, n);
+                    bestExcess = excess;
+                    bestCount = count;
+                }
+                backtrack = true;
+            }
+            if (backtrack) {
+                // Walk back to the last value that was included, and try leaving it out instead.
+                while (depth > 0 && !included[depth - 1]) {
+                    depth--;
+                    available += values[depth];
+                }
+                if (depth == 0)
+                    break;  // Everything was tried.
+                included[depth - 1] = false;
+                value -= values[depth - 1];
+                count--;
+            } else {
+                available -= values[depth];
+                // If the previous value is the same and was left out, including this one leads to sets that were
+                // already tried.
+                if (depth == 0 || included[depth - 1] || values[depth] != values[depth - 1]) {
+                    included[depth] = true;
+                    value += values[depth];
+                    count++;
+                }
+                depth++;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Selects from the given values, sorted in decreasing order, the set closest to target if that leaves no change,
+     * or else to target + minChange, or the smallest single value that covers that if it's closer. The values must
+     * add up to more than target.
+     */
+    private boolean[] selectKnapsack(long[] values, long target) {
+        int n = values.length;
+        boolean[] selection = new boolean[n];
+        // The values are sorted, so those below target + minChange are the ones from the first below it on, and the
+        // smallest one that covers it is just before.
+        int firstSmaller = 0;
+        while (firstSmaller < n && values[firstSmaller] >= target + minChange.value) {
+            if (values[firstSmaller] == target) {
+                selection[firstSmaller] = true;
+                return selection;
+            }
+            firstSmaller++;
+        }
+        int lowestLarger = firstSmaller - 1;
+        long[] smaller = Arrays.copyOfRange(values, firstSmaller, n);
+        long smallerTotal = 0;
+        for (int i = 0; i < smaller.length; i++) {
+            if (smaller[i] == target) {
+                selection[firstSmaller + i] = true;
+                return selection;
+            }
+            smallerTotal += smaller[i];
+        }
+        if (smallerTotal == target) {
+            Arrays.fill(selection, firstSmaller, n, true);
+            return selection;
+        }
+        if (smallerTotal < target) {
+            // There has to be a larger value, as all values add up to more than target.
+            selection[lowestLarger] = true;
+            return selection;
+        }
+        boolean[] best = approximateBestSubset(smaller, smallerTotal, target);
+        long bestValue = sum(smaller, best);
+        if (bestValue != target && smallerTotal >= target + minChange.value) {
+            best = approximateBestSubset(smaller, smallerTotal, target + minChange.value);
+            bestValue = sum(smaller, best);
+        }
+        if (lowestLarger >= 0 && ((bestValue != target && bestValue < target + minChange.value)
+                || values[lowestLarger] <= bestValue)) {
+            selection[lowestLarger] = true;
+        } else {
+            System.arraycopy(best, 0, selection, firstSmaller, best.length);
+        }
+        return selection;
+    }
+
+    // Tries random sets of the values, each time adding values until target is reached, and returns the set that came
+    // closest to it.
+    private boolean[] approximateBestSubset(long[] values, long total, long target) {
+        int n = values.length;
+        boolean[] best = new boolean[n];
+        Arrays.fill(best, true);
+        long bestValue = total;
+        boolean[] included = new boolean[n];
+        for (int rep = 0; rep < KNAPSACK_ITERATIONS && bestValue != target; rep++) {
+            Arrays.fill(included, false);
+            long value = 0;
+            boolean reachedTarget = false;
+            // The first pass includes values at random, the second all that are left until the target is reached.
+            for (int pass = 0; pass < 2 && !reachedTarget; pass++) {
+                for (int i = 0; i < n; i++) {
+                    if (pass == 0 ? !random.nextBoolean() : included[i])
+                        continue;
+                    value += values[i];
+                    included[i] = true;
+                    if (value >= target) {
+                        reachedTarget = true;
+                        if (value < bestValue) {
+                            bestValue = value;
+                            best = Arrays.copyOf(included, n);
+                        }
+                        value -= values[i];
+                        included[i] = false;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private static long sum(long[] values, boolean[] selection) {
+        long sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (selection[i])
+                sum += values[i];
+        }
+        return sum;
+    }
+}
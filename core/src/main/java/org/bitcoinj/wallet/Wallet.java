@@ -30,6 +30,7 @@ import org.bitcoinj.core.BlockChain;
 import org.bitcoinj.core.BloomFilter;
 import org.bitcoinj.core.Coin;
 import org.bitcoinj.core.Context;
+import org.bitcoinj.core.DepthTracker;
 import org.bitcoinj.core.ECKey;
 import org.bitcoinj.core.FilteredBlock;
 import org.bitcoinj.core.InsufficientMoneyException;
@@ -158,9 +159,79 @@ public class Wallet extends BaseTaggableObject
     // All transactions together.
     protected final Map<Sha256Hash, Transaction> transactions;
 
+    // Bumped whenever one of the pools above or myUnspents changes, so that a PoolSnapshot can tell if it's current.
+    // Only written with the lock held.
+    private volatile long poolsVersion;
+    // The pools as they were after the last change that was published, for queries from threads that don't hold the
+    // lock. See getPoolSnapshot().
+    @Nullable private volatile PoolSnapshot poolSnapshot;
+
+    // The transactions above that spend each outpoint, so that double spends can be found without looking at every
+    // input of every transaction. Kept in step with the transactions map; which pool a spender is in is looked up when
+    // needed, so moving a transaction between pools doesn't touch it.
+    private final Map<TransactionOutPoint, Set<Transaction>> spendingTransactions;
+
+    // The outputs in myUnspents ordered by decreasing value, so that spend candidates come out in the order coin
+    // selection wants them. Kept in step with myUnspents.
+    private final TreeSet<TransactionOutput> myUnspentsByValue = new TreeSet<>(new Comparator<TransactionOutput>() {
+        @Override
+        public int compare(TransactionOutput a, TransactionOutput b) {
+            int c = b.getValue().compareTo(a.getValue());
+            if (c != 0) return c;
+            c = a.getParentTransactionHash().compareTo(b.getParentTransactionHash());
+            if (c != 0) return c;
+            return Integer.compare(a.getIndex(), b.getIndex());
+        }
+    });
+
     // All the TransactionOutput objects that we could spend (ignoring whether we have the private key or not).
-    // Used to speed up various calculations.
-    protected final HashSet<TransactionOutput> myUnspents = Sets.newHashSet();
+    // Used to speed up various calculations. Changes are passed on to the balance totals and myUnspentsByValue.
+    protected final HashSet<TransactionOutput> myUnspents = new HashSet<TransactionOutput>() {
+        @Override
+        public boolean add(TransactionOutput output) {
+            if (!super.add(output))
+                return false;
+            myUnspentsByValue.add(output);
+            poolsVersion++;
+            balanceChanged(output.getParentTransaction());
+            return true;
+        }
+
+        @Override
+        public boolean remove(Object output) {
+            if (!super.remove(output))
+                return false;
+            myUnspentsByValue.remove(output);
+            poolsVersion++;
+            balanceChanged(((TransactionOutput) output).getParentTransaction());
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            super.clear();
+            myUnspentsByValue.clear();
+            poolsVersion++;
+            balanceTotalsInvalid = true;
+        }
+    };
+
+    // Running totals of the balance types, indexed by ordinal, so that getBalance(BalanceType) doesn't have to go
+    // through all of myUnspents. What each transaction contributes is kept too. Transactions whose unspent outputs,
+    // confidence or maturity changed are remembered and their contribution is redone on the next read. The totals
+    // array is replaced rather than updated, so that it can be read without the lock.
+    @GuardedBy("lock") private final Map<Transaction, long[]> balanceContributions = new HashMap<>();
+    @GuardedBy("lock") private final Set<Transaction> balanceChangedTransactions = new HashSet<>();
+    private volatile long[] balanceTotals = new long[BalanceType.values().length];
+    // The transactions not in the best chain that have unspent outputs, with whether they were selectable when their
+    // contribution was done. Whether they are depends on the number of peers that announced them and their source,
+    // which can change without the wallet being told, so they are checked on every read.
+    @GuardedBy("lock") private final Map<Transaction, Boolean> balanceUnconfirmed = new HashMap<>();
+    private volatile Map<Transaction, Boolean> vBalanceUnconfirmed = ImmutableMap.of();
+    private volatile boolean balanceTotalsDirty;
+    // Set when the contributions of all transactions may have changed, e.g. because keys were added.
+    private volatile boolean balanceTotalsInvalid = true;
+    private volatile boolean vBalanceVerification;
 
     // Transactions that were dropped by the risk analysis system. These are not in any pools and not serialized
     // to disk. We have to keep them around because if we ignore a tx because we think it will never confirm, but
@@ -211,6 +282,13 @@ public class Wallet extends BaseTaggableObject
     // in receive() via Transaction.setBlockAppearance(). As the BlockChain always calls notifyNewBestBlock even if
     // it sent transactions to the wallet, without this we'd double count.
     private HashSet<Sha256Hash> ignoreNextNewBlock;
+    // Counts the blocks of the best chain, the confidences of our transactions derive their depth from it.
+    private DepthTracker depthTracker;
+    // Transactions that have the clearing of their seen peers, or the maturing of their coinbase, queued with the depth
+    // tracker, so that adding them to the pools again, e.g. in a re-org, doesn't queue it again. Each maps to the task
+    // that removes it once the tracker runs or drops what was queued, see runAtDepthOnce.
+    @GuardedBy("lock") private final Map<Sha256Hash, Runnable> broadcastByClearQueued = new HashMap<>();
+    @GuardedBy("lock") private final Map<Sha256Hash, Runnable> coinbaseMaturityQueued = new HashMap<>();
     // Whether or not to ignore pending transactions that are considered risky by the configured risk analyzer.
     private boolean acceptRiskyTransactions;
     // Object that performs risk analysis of pending transactions. We might reject transactions that seem like
@@ -461,14 +539,30 @@ public class Wallet extends BaseTaggableObject
         this.params = checkNotNull(context.getParams());
         this.keyChainGroup = checkNotNull(keyChainGroup);
         watchedScripts = Sets.newHashSet();
-        unspent = new HashMap<>();
-        spent = new HashMap<>();
-        pending = new HashMap<>();
-        dead = new HashMap<>();
-        transactions = new HashMap<>();
+        unspent = new PoolMap();
+        spent = new PoolMap();
+        pending = new PoolMap();
+        dead = new PoolMap();
+        transactions = new PoolMap();
+        spendingTransactions = new HashMap<>();
         extensions = new HashMap<>();
-        // Use a linked hash map to ensure ordering of event listeners is correct.
-        confidenceChanged = new LinkedHashMap<>();
+        // Use a linked hash map to ensure ordering of event listeners is correct. Every confidence change we make is
+        // recorded here, so it's also where the balance totals learn about them.
+        confidenceChanged = new LinkedHashMap<Transaction, TransactionConfidence.Listener.ChangeReason>() {
+            @Override
+            public TransactionConfidence.Listener.ChangeReason put(Transaction tx,
+                    TransactionConfidence.Listener.ChangeReason reason) {
+                balanceChanged(tx);
+                return super.put(tx, reason);
+            }
+        };
+        // New keys may let us sign for outputs we could only watch before.
+        keyChainGroup.addEventListener(new KeyChainEventListener() {
+            @Override
+            public void onKeysAdded(List<ECKey> keys) {
+                balanceTotalsInvalid = true;
+            }
+        }, Threading.SAME_THREAD);
         signers = new ArrayList<>();
         addTransactionSigner(new LocalTransactionSigner());
         createTransientState();
@@ -476,6 +570,7 @@ public class Wallet extends BaseTaggableObject
 
     private void createTransientState() {
         ignoreNextNewBlock = new HashSet<>();
+        depthTracker = new DepthTracker();
         txConfidenceListener = new TransactionConfidence.Listener() {
             @Override
             public void onConfidenceChanged(TransactionConfidence confidence, TransactionConfidence.Listener.ChangeReason reason) {
@@ -488,6 +583,8 @@ public class Wallet extends BaseTaggableObject
                 if (reason == ChangeReason.SEEN_PEERS) {
                     lock.lock();
                     try {
+                        // Our own pending transactions become available once they were seen by the network.
+                        balanceChanged(getTransaction(confidence.getTransactionHash()));
                         checkBalanceFuturesLocked(null);
                         Transaction tx = getTransaction(confidence.getTransactionHash());
                         queueOnTransactionConfidenceChanged(tx);
@@ -803,7 +900,11 @@ public class Wallet extends BaseTaggableObject
     public boolean removeKey(ECKey key) {
         keyChainGroupLock.lock();
         try {
-            return keyChainGroup.removeImportedKey(key);
+            boolean removed = keyChainGroup.removeImportedKey(key);
+            // Only once the key is gone, so that totals calculated with it in the meantime are recalculated.
+            if (removed)
+                balanceTotalsInvalid = true;
+            return removed;
         } finally {
             keyChainGroupLock.unlock();
         }
@@ -2015,29 +2116,55 @@ public class Wallet extends BaseTaggableObject
     private Set<Transaction> findDoubleSpendsAgainst(Transaction tx, Map<Sha256Hash, Transaction> candidates) {
         checkState(lock.isHeldByCurrentThread());
         if (tx.isCoinBase()) return Sets.newHashSet();
-        // Compile a set of outpoints that are spent by tx.
-        HashSet<TransactionOutPoint> outpoints = new HashSet<>();
-        for (TransactionInput input : tx.getInputs()) {
-            outpoints.add(input.getOutpoint());
-        }
-        // Now for each pending transaction, see if it shares any outpoints with this tx.
+        // For each outpoint spent by tx, see which of the candidates spend it too. This relies on the fact that
+        // TransactionOutPoint equality is defined at the protocol not object level - outpoints from two different
+        // inputs that point to the same output compare the same.
         Set<Transaction> doubleSpendTxns = Sets.newHashSet();
-        for (Transaction p : candidates.values()) {
-            if (p.equals(tx))
+        for (TransactionInput input : tx.getInputs()) {
+            Set<Transaction> spenders = spendingTransactions.get(input.getOutpoint());
+            if (spenders == null)
                 continue;
-            for (TransactionInput input : p.getInputs()) {
-                // This relies on the fact that TransactionOutPoint equality is defined at the protocol not object
-                // level - outpoints from two different inputs that point to the same output compare the same.
-                TransactionOutPoint outpoint = input.getOutpoint();
-                if (outpoints.contains(outpoint)) {
+            for (Transaction spender : spenders) {
+                if (spender.equals(tx))
+                    continue;
+                Transaction candidate = candidates.get(spender.getTxId());
+                if (candidate != null) {
                     // It does, it's a double spend against the candidates, which makes it relevant.
-                    doubleSpendTxns.add(p);
+                    doubleSpendTxns.add(candidate);
                 }
             }
         }
         return doubleSpendTxns;
     }
 
+    // Adds the outpoints spent by the given transaction to spendingTransactions.
+    private void indexSpends(Transaction tx) {
+        if (tx.isCoinBase())
+            return;
+        for (TransactionInput input : tx.getInputs()) {
+            TransactionOutPoint outpoint = input.getOutpoint();
+            Set<Transaction> spenders = spendingTransactions.get(outpoint);
+            if (spenders == null) {
+                // Almost always there is just the one.
+                spenders = new HashSet<>(2);
+                spendingTransactions.put(outpoint, spenders);
+            }
+            spenders.add(tx);
+        }
+    }
+
+    // Removes the outpoints spent by the given transaction from spendingTransactions.
+    private void unindexSpends(Transaction tx) {
+        if (tx.isCoinBase())
+            return;
+        for (TransactionInput input : tx.getInputs()) {
+            TransactionOutPoint outpoint = input.getOutpoint();
+            Set<Transaction> spenders = spendingTransactions.get(outpoint);
+            if (spenders != null && spenders.remove(tx) && spenders.isEmpty())
+                spendingTransactions.remove(outpoint);
+        }
+    }
+
     /**
      * Adds to txSet all the txns in txPool spending outputs of txns in txSet,
      * and all txns spending the outputs of those txns, recursively.
@@ -2317,30 +2444,17 @@ public class Wallet extends BaseTaggableObject
             setLastBlockSeenHash(newBlockHash);
             setLastBlockSeenHeight(block.getHeight());
             setLastBlockSeenTimeSecs(block.getHeader().getTimeSeconds());
-            // Notify all the BUILDING transactions of the new block.
-            // This is so that they can update their depth.
-            Set<Transaction> transactions = getTransactions(true);
-            for (Transaction tx : transactions) {
-                if (ignoreNextNewBlock.contains(tx.getTxId())) {
-                    // tx was already processed in receive() due to it appearing in this block, so we don't want to
-                    // increment the tx confidence depth twice, it'd result in miscounting.
-                    ignoreNextNewBlock.remove(tx.getTxId());
-                } else {
-                    TransactionConfidence confidence = tx.getConfidence();
-                    if (confidence.getConfidenceType() == ConfidenceType.BUILDING) {
-                        // Erase the set of seen peers once the tx is so deep that it seems unlikely to ever go
-                        // pending again. We could clear this data the moment a tx is seen in the block chain, but
-                        // in cases where the chain re-orgs, this would mean that wallets would perceive a newly
-                        // pending tx has zero confidence at all, which would not be right: we expect it to be
-                        // included once again. We could have a separate was-in-chain-and-now-isn't confidence type
-                        // but this way is backwards compatible with existing software, and the new state probably
-                        // wouldn't mean anything different to just remembering peers anyway.
-                        if (confidence.incrementDepthInBlocks() > context.getEventHorizon())
-                            confidence.clearBroadcastBy();
-                        confidenceChanged.put(tx, TransactionConfidence.Listener.ChangeReason.DEPTH);
-                    }
-                }
+            // The transactions that appeared in this block already got their depth of one in receive(), so take
+            // back the block the tracker is about to add for them, otherwise we'd double count.
+            for (Sha256Hash hash : ignoreNextNewBlock) {
+                Transaction tx = transactions.get(hash);
+                if (tx != null && tx.getConfidence().getConfidenceType() == ConfidenceType.BUILDING)
+                    tx.getConfidence().setDepthInBlocks(tx.getConfidence().getDepthInBlocks() - 1);
             }
+            ignoreNextNewBlock.clear();
+            // All the BUILDING transactions derive their depth from the tracker, so this is all that's needed to
+            // update them. It also runs whatever was waiting for a transaction to get buried deep enough.
+            depthTracker.addBlock();
 
             informConfidenceListenersIfNotReorganizing();
             maybeQueueOnWalletChanged();
@@ -2957,6 +3071,7 @@ public class Wallet extends BaseTaggableObject
         checkState(lock.isHeldByCurrentThread());
         checkState(onWalletChangedSuppressions >= 0);
         if (onWalletChangedSuppressions > 0) return;
+        maybePublishBalanceTotals();
         for (final ListenerRegistration<WalletChangeEventListener> registration : changeListeners) {
             registration.executor.execute(new Runnable() {
                 @Override
@@ -2969,6 +3084,7 @@ public class Wallet extends BaseTaggableObject
 
     protected void queueOnCoinsReceived(final Transaction tx, final Coin balance, final Coin newBalance) {
         checkState(lock.isHeldByCurrentThread());
+        maybePublishBalanceTotals();
         for (final ListenerRegistration<WalletCoinsReceivedEventListener> registration : coinsReceivedListeners) {
             registration.executor.execute(new Runnable() {
                 @Override
@@ -2981,6 +3097,7 @@ public class Wallet extends BaseTaggableObject
 
     protected void queueOnCoinsSent(final Transaction tx, final Coin prevBalance, final Coin newBalance) {
         checkState(lock.isHeldByCurrentThread());
+        maybePublishBalanceTotals();
         for (final ListenerRegistration<WalletCoinsSentEventListener> registration : coinsSentListeners) {
             registration.executor.execute(new Runnable() {
                 @Override
@@ -3021,40 +3138,148 @@ public class Wallet extends BaseTaggableObject
 
     //region Vending transactions and other internal state
 
+    // A transaction pool that bumps poolsVersion when it changes.
+    private class PoolMap extends HashMap<Sha256Hash, Transaction> {
+        @Override
+        public Transaction put(Sha256Hash hash, Transaction tx) {
+            poolsVersion++;
+            return super.put(hash, tx);
+        }
+
+        @Override
+        public void putAll(Map<? extends Sha256Hash, ? extends Transaction> m) {
+            poolsVersion++;
+            super.putAll(m);
+        }
+
+        @Override
+        public Transaction remove(Object hash) {
+            Transaction tx = super.remove(hash);
+            if (tx != null)
+                poolsVersion++;
+            return tx;
+        }
+
+        @Override
+        public void clear() {
+            poolsVersion++;
+            super.clear();
+        }
+    }
+
     /**
-     * Returns a set of all transactions in the wallet.
-     * @param includeDead     If true, transactions that were overridden by a double spend are included.
+     * The transaction pools and unspent outputs of the wallet at one point in time. Either an immutable copy, or a
+     * view of the live state for a thread that holds the lock. The transactions themselves are not copied, so their
+     * confidence is always current.
      */
-    public Set<Transaction> getTransactions(boolean includeDead) {
-        lock.lock();
+    private static class PoolSnapshot {
+        final long version;
+        final Map<Sha256Hash, Transaction> unspent, spent, pending, dead, transactions;
+        // Ordered by decreasing value.
+        final Collection<TransactionOutput> myUnspents;
+
+        PoolSnapshot(long version, Map<Sha256Hash, Transaction> unspent, Map<Sha256Hash, Transaction> spent,
+                     Map<Sha256Hash, Transaction> pending, Map<Sha256Hash, Transaction> dead,
+                     Map<Sha256Hash, Transaction> transactions, Collection<TransactionOutput> myUnspents) {
+            this.version = version;
+            this.unspent = unspent;
+            this.spent = spent;
+            this.pending = pending;
+            this.dead = dead;
+            this.transactions = transactions;
+            this.myUnspents = myUnspents;
+        }
+
+        Map<Sha256Hash, Transaction> getPool(Pool pool) {
+            switch (pool) {
+                case UNSPENT:
+                    return unspent;
+                case SPENT:
+                    return spent;
+                case PENDING:
+                    return pending;
+                case DEAD:
+                    return dead;
+                default:
+                    throw new RuntimeException("Unknown wallet transaction type " + pool);
+            }
+        }
+    }
+
+    /**
+     * <p>Returns the pools for a query. A thread that holds the lock gets a view of the live state. Other threads get
+     * an immutable copy, so that they don't have to wait while another thread holds the lock, e.g. to process a block
+     * or to save the wallet: if the copy is out of date and the lock is free it is renewed, otherwise the last one is
+     * used. Copies are only made here, so that changing the wallet never costs more than the change itself; the first
+     * query waits for the lock.</p>
+     */
+    private PoolSnapshot getPoolSnapshot() {
+        if (lock.isHeldByCurrentThread())
+            return new PoolSnapshot(poolsVersion, unspent, spent, pending, dead, transactions, myUnspentsByValue);
+        PoolSnapshot snapshot = poolSnapshot;
+        if (snapshot != null && snapshot.version == poolsVersion)
+            return snapshot;
+        if (snapshot == null)
+            lock.lock();
+        else if (!lock.tryLock())
+            return snapshot;
         try {
-            Set<Transaction> all = new HashSet<>();
-            all.addAll(unspent.values());
-            all.addAll(spent.values());
-            all.addAll(pending.values());
-            if (includeDead)
-                all.addAll(dead.values());
-            return all;
+            return publishPoolSnapshot();
         } finally {
             lock.unlock();
         }
     }
 
+    // Renews the immutable copy of the pools, if it's out of date.
+    private PoolSnapshot publishPoolSnapshot() {
+        checkState(lock.isHeldByCurrentThread());
+        PoolSnapshot snapshot = poolSnapshot;
+        if (snapshot == null || snapshot.version != poolsVersion) {
+            snapshot = new PoolSnapshot(poolsVersion, ImmutableMap.copyOf(unspent), ImmutableMap.copyOf(spent),
+                    ImmutableMap.copyOf(pending), ImmutableMap.copyOf(dead), ImmutableMap.copyOf(transactions),
+                    ImmutableList.copyOf(myUnspentsByValue));
+            poolSnapshot = snapshot;
+        }
+        return snapshot;
+    }
+
+    // Brings the balance totals, which getBalance falls back to while the lock is held elsewhere, up to date before
+    // events are queued and futures completed, unless in the middle of a change. This only costs as much as the
+    // change did.
+    private void maybePublishBalanceTotals() {
+        if (onWalletChangedSuppressions > 0 || insideReorg)
+            return;
+        if (vUTXOProvider == null && (balanceTotalsDirty || balanceTotalsInvalid))
+            updateBalanceTotals();
+    }
+
+    /**
+     * Returns a set of all transactions in the wallet. This doesn't wait while another thread holds the wallet lock,
+     * the result is then as of the last query that found the lock free.
+     * @param includeDead     If true, transactions that were overridden by a double spend are included.
+     */
+    public Set<Transaction> getTransactions(boolean includeDead) {
+        PoolSnapshot snapshot = getPoolSnapshot();
+        Set<Transaction> all = new HashSet<>();
+        all.addAll(snapshot.unspent.values());
+        all.addAll(snapshot.spent.values());
+        all.addAll(snapshot.pending.values());
+        if (includeDead)
+            all.addAll(snapshot.dead.values());
+        return all;
+    }
+
     /**
      * Returns a set of all WalletTransactions in the wallet.
      */
     public Iterable<WalletTransaction> getWalletTransactions() {
-        lock.lock();
-        try {
-            Set<WalletTransaction> all = new HashSet<>();
-            addWalletTransactionsToSet(all, Pool.UNSPENT, unspent.values());
-            addWalletTransactionsToSet(all, Pool.SPENT, spent.values());
-            addWalletTransactionsToSet(all, Pool.DEAD, dead.values());
-            addWalletTransactionsToSet(all, Pool.PENDING, pending.values());
-            return all;
-        } finally {
-            lock.unlock();
-        }
+        PoolSnapshot snapshot = getPoolSnapshot();
+        Set<WalletTransaction> all = new HashSet<>();
+        addWalletTransactionsToSet(all, Pool.UNSPENT, snapshot.unspent.values());
+        addWalletTransactionsToSet(all, Pool.SPENT, snapshot.spent.values());
+        addWalletTransactionsToSet(all, Pool.DEAD, snapshot.dead.values());
+        addWalletTransactionsToSet(all, Pool.PENDING, snapshot.pending.values());
+        return all;
     }
 
     private static void addWalletTransactionsToSet(Set<WalletTransaction> txns,
@@ -3083,7 +3308,12 @@ public class Wallet extends BaseTaggableObject
      */
     private void addWalletTransaction(Pool pool, Transaction tx) {
         checkState(lock.isHeldByCurrentThread());
-        transactions.put(tx.getTxId(), tx);
+        Transaction previous = transactions.put(tx.getTxId(), tx);
+        if (previous != tx) {
+            if (previous != null)
+                unindexSpends(previous);
+            indexSpends(tx);
+        }
         switch (pool) {
         case UNSPENT:
             checkState(unspent.put(tx.getTxId(), tx) == null);
@@ -3108,7 +3338,67 @@ public class Wallet extends BaseTaggableObject
         }
         // This is safe even if the listener has been added before, as TransactionConfidence ignores duplicate
         // registration requests. That makes the code in the wallet simpler.
-        tx.getConfidence().addEventListener(Threading.SAME_THREAD, txConfidenceListener);
+        final TransactionConfidence confidence = tx.getConfidence();
+        confidence.addEventListener(Threading.SAME_THREAD, txConfidenceListener);
+        confidence.setDepthTracker(depthTracker);
+        if (pool == Pool.UNSPENT || pool == Pool.SPENT) {
+            // Erase the set of seen peers once the tx is so deep that it seems unlikely to ever go pending again. We
+            // could clear this data the moment a tx is seen in the block chain, but in cases where the chain re-orgs,
+            // this would mean that wallets would perceive a newly pending tx has zero confidence at all, which would
+            // not be right: we expect it to be included once again. We could have a separate
+            // was-in-chain-and-now-isn't confidence type but this way is backwards compatible with existing software,
+            // and the new state probably wouldn't mean anything different to just remembering peers anyway.
+            final Sha256Hash txId = tx.getTxId();
+            if (confidence.getConfidenceType() == ConfidenceType.BUILDING
+                    && confidence.getDepthInBlocks() > context.getEventHorizon()) {
+                // Already that deep, e.g. when loading a wallet, so there is nothing to wait for.
+                if (confidence.numBroadcastPeers() > 0)
+                    confidence.clearBroadcastBy();
+            } else {
+                runAtDepthOnce(broadcastByClearQueued, txId, confidence, context.getEventHorizon() + 1, new Runnable() {
+                    @Override
+                    public void run() {
+                        confidence.clearBroadcastBy();
+                    }
+                });
+            }
+        }
+        if (tx.isCoinBase()) {
+            // The outputs become available once the coinbase matures.
+            final Transaction coinbase = tx;
+            runAtDepthOnce(coinbaseMaturityQueued, tx.getTxId(), confidence, params.getSpendableCoinbaseDepth(),
+                    new Runnable() {
+                @Override
+                public void run() {
+                    balanceChanged(coinbase);
+                }
+            });
+        }
+    }
+
+    // Queues the action with the depth tracker, unless one is still queued for the transaction. The entry in queued
+    // is removed when the tracker runs or drops the action, which happens with the lock held as blocks are added.
+    private void runAtDepthOnce(final Map<Sha256Hash, Runnable> queued, final Sha256Hash txId,
+                                TransactionConfidence confidence, int depth, final Runnable action) {
+        checkState(lock.isHeldByCurrentThread());
+        if (queued.containsKey(txId))
+            return;
+        final Runnable done = new Runnable() {
+            @Override
+            public void run() {
+                // The entry may belong to a later task if the wallet was cleared in the meantime.
+                if (queued.get(txId) == this)
+                    queued.remove(txId);
+            }
+        };
+        queued.put(txId, done);
+        depthTracker.runAtDepth(confidence, depth, new Runnable() {
+            @Override
+            public void run() {
+                done.run();
+                action.run();
+            }
+        }, done);
     }
 
     /**
@@ -3126,25 +3416,19 @@ public class Wallet extends BaseTaggableObject
      * depending on how the wallet is implemented (eg if backed by a database).</p>
      */
     public List<Transaction> getRecentTransactions(int numTransactions, boolean includeDead) {
-        lock.lock();
-        try {
-            checkArgument(numTransactions >= 0);
-            // Firstly, put all transactions into an array.
-            int size = unspent.size() + spent.size() + pending.size();
-            if (numTransactions > size || numTransactions == 0) {
-                numTransactions = size;
-            }
-            ArrayList<Transaction> all = new ArrayList<>(getTransactions(includeDead));
-            // Order by update time.
-            Collections.sort(all, Transaction.SORT_TX_BY_UPDATE_TIME);
-            if (numTransactions == all.size()) {
-                return all;
-            } else {
-                all.subList(numTransactions, all.size()).clear();
-                return all;
-            }
-        } finally {
-            lock.unlock();
+        checkArgument(numTransactions >= 0);
+        // Firstly, put all transactions into an array.
+        ArrayList<Transaction> all = new ArrayList<>(getTransactions(includeDead));
+        if (numTransactions > all.size() || numTransactions == 0) {
+            numTransactions = all.size();
+        }
+        // Order by update time.
+        Collections.sort(all, Transaction.SORT_TX_BY_UPDATE_TIME);
+        if (numTransactions == all.size()) {
+            return all;
+        } else {
+            all.subList(numTransactions, all.size()).clear();
+            return all;
         }
     }
 
@@ -3153,12 +3437,7 @@ public class Wallet extends BaseTaggableObject
      */
     @Nullable
     public Transaction getTransaction(Sha256Hash hash) {
-        lock.lock();
-        try {
-            return transactions.get(hash);
-        } finally {
-            lock.unlock();
-        }
+        return getPoolSnapshot().transactions.get(hash);
     }
 
     @Override
@@ -3226,7 +3505,10 @@ public class Wallet extends BaseTaggableObject
         pending.clear();
         dead.clear();
         transactions.clear();
+        spendingTransactions.clear();
         myUnspents.clear();
+        broadcastByClearQueued.clear();
+        coinbaseMaturityQueued.clear();
     }
 
     /**
@@ -3285,6 +3567,7 @@ public class Wallet extends BaseTaggableObject
 
                         i.remove();
                         transactions.remove(tx.getTxId());
+                        unindexSpends(tx);
                         dirty = true;
                         log.info("Removed transaction {} from pending pool during cleanup.", tx.getTxId());
                     } else {
@@ -3330,52 +3613,17 @@ public class Wallet extends BaseTaggableObject
 
     @VisibleForTesting
     public int getPoolSize(WalletTransaction.Pool pool) {
-        lock.lock();
-        try {
-            switch (pool) {
-                case UNSPENT:
-                    return unspent.size();
-                case SPENT:
-                    return spent.size();
-                case PENDING:
-                    return pending.size();
-                case DEAD:
-                    return dead.size();
-            }
-            throw new RuntimeException("Unreachable");
-        } finally {
-            lock.unlock();
-        }
+        return getPoolSnapshot().getPool(pool).size();
     }
 
     @VisibleForTesting
     public boolean poolContainsTxHash(final WalletTransaction.Pool pool, final Sha256Hash txHash) {
-        lock.lock();
-        try {
-            switch (pool) {
-                case UNSPENT:
-                    return unspent.containsKey(txHash);
-                case SPENT:
-                    return spent.containsKey(txHash);
-                case PENDING:
-                    return pending.containsKey(txHash);
-                case DEAD:
-                    return dead.containsKey(txHash);
-            }
-            throw new RuntimeException("Unreachable");
-        } finally {
-            lock.unlock();
-        }
+        return getPoolSnapshot().getPool(pool).containsKey(txHash);
     }
 
     /** Returns a copy of the internal unspent outputs list */
     public List<TransactionOutput> getUnspents() {
-        lock.lock();
-        try {
-            return new ArrayList<>(myUnspents);
-        } finally {
-            lock.unlock();
-        }
+        return new ArrayList<>(getPoolSnapshot().myUnspents);
     }
 
     @Override
@@ -3519,12 +3767,7 @@ public class Wallet extends BaseTaggableObject
      * Returns an immutable view of the transactions currently waiting for network confirmations.
      */
     public Collection<Transaction> getPendingTransactions() {
-        lock.lock();
-        try {
-            return Collections.unmodifiableCollection(pending.values());
-        } finally {
-            lock.unlock();
-        }
+        return Collections.unmodifiableCollection(getPoolSnapshot().pending.values());
     }
 
     /**
@@ -3717,9 +3960,48 @@ public class Wallet extends BaseTaggableObject
     }
 
     /**
-     * Returns the balance of this wallet as calculated by the provided balanceType.
+     * Returns the balance of this wallet as calculated by the provided balanceType. The balances are kept up to date as
+     * the wallet changes, so this is cheap and usually doesn't wait for the wallet lock. While another thread holds
+     * the lock, the totals as of the last change that was reported to listeners are returned.
      */
     public Coin getBalance(BalanceType balanceType) {
+        // The totals are kept up to date, so usually they can be returned without taking the lock.
+        if (!balanceTotalsInvalid && !vBalanceVerification && vUTXOProvider == null) {
+            if (!balanceTotalsDirty && !anyUnconfirmedBalanceChanged())
+                return Coin.valueOf(balanceTotals[balanceType.ordinal()]);
+            // Like the other queries, don't wait for another thread holding the lock.
+            if (!lock.tryLock())
+                return Coin.valueOf(balanceTotals[balanceType.ordinal()]);
+        } else {
+            lock.lock();
+        }
+        try {
+            if (vUTXOProvider != null)
+                return calculateBalance(balanceType);
+            Coin balance = Coin.valueOf(updateBalanceTotals()[balanceType.ordinal()]);
+            if (vBalanceVerification) {
+                Coin expected = calculateBalance(balanceType);
+                if (!balance.equals(expected))
+                    throw new IllegalStateException(balanceType + " balance is " + balance.toFriendlyString()
+                            + " but should be " + expected.toFriendlyString());
+            }
+            return balance;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * If set, every call to {@link #getBalance(BalanceType)} also calculates the balance from scratch, like it was done
+     * before the totals were kept, and throws an {@link IllegalStateException} if the two differ. This is slow and
+     * meant for testing.
+     */
+    public void setBalanceVerification(boolean verify) {
+        vBalanceVerification = verify;
+    }
+
+    // Calculates the balance from all candidate outputs.
+    private Coin calculateBalance(BalanceType balanceType) {
         lock.lock();
         try {
             if (balanceType == BalanceType.AVAILABLE || balanceType == BalanceType.AVAILABLE_SPENDABLE) {
@@ -3739,6 +4021,99 @@ public class Wallet extends BaseTaggableObject
         }
     }
 
+    // Remembers that the contribution of the given transaction to the balance totals has to be redone.
+    private void balanceChanged(@Nullable Transaction tx) {
+        if (tx == null)
+            return;
+        lock.lock();
+        try {
+            balanceChangedTransactions.add(tx);
+            balanceTotalsDirty = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Returns true if one of the unconfirmed transactions became selectable or stopped being so since the totals were
+    // updated.
+    private boolean anyUnconfirmedBalanceChanged() {
+        for (Map.Entry<Transaction, Boolean> entry : vBalanceUnconfirmed.entrySet()) {
+            if (DefaultCoinSelector.isSelectable(entry.getKey()) != entry.getValue())
+                return true;
+        }
+        return false;
+    }
+
+    // Brings the balance totals up to date and returns them.
+    @GuardedBy("lock")
+    private long[] updateBalanceTotals() {
+        checkState(lock.isHeldByCurrentThread());
+        if (anyUnconfirmedBalanceChanged()) {
+            balanceChangedTransactions.addAll(balanceUnconfirmed.keySet());
+            balanceTotalsDirty = true;
+        }
+        long[] totals;
+        if (balanceTotalsInvalid) {
+            balanceTotalsInvalid = false;
+            balanceContributions.clear();
+            balanceUnconfirmed.clear();
+            for (TransactionOutput output : myUnspents)
+                balanceChangedTransactions.add(output.getParentTransaction());
+            totals = new long[BalanceType.values().length];
+        } else if (balanceTotalsDirty) {
+            totals = balanceTotals.clone();
+        } else {
+            return balanceTotals;
+        }
+        for (Transaction tx : balanceChangedTransactions) {
+            long[] old = balanceContributions.remove(tx);
+            if (old != null) {
+                for (int i = 0; i < totals.length; i++)
+                    totals[i] -= old[i];
+            }
+            boolean selectable = DefaultCoinSelector.isSelectable(tx);
+            long[] contribution = calculateBalanceContribution(tx, selectable);
+            if (contribution != null) {
+                balanceContributions.put(tx, contribution);
+                for (int i = 0; i < totals.length; i++)
+                    totals[i] += contribution[i];
+            }
+            if (contribution != null && tx.getConfidence().getConfidenceType() != ConfidenceType.BUILDING)
+                balanceUnconfirmed.put(tx, selectable);
+            else
+                balanceUnconfirmed.remove(tx);
+        }
+        balanceChangedTransactions.clear();
+        vBalanceUnconfirmed = ImmutableMap.copyOf(balanceUnconfirmed);
+        balanceTotals = totals;
+        balanceTotalsDirty = false;
+        return totals;
+    }
+
+    // Returns what the unspent outputs of the given transaction add to each balance type, or null if it has none. This
+    // has to give the same result as calculateBalance(), whose coin selector picks the selectable transactions.
+    @Nullable
+    private long[] calculateBalanceContribution(Transaction tx, boolean selectable) {
+        long[] contribution = null;
+        boolean available = tx.isMature() && selectable;
+        for (TransactionOutput output : tx.getOutputs()) {
+            if (!myUnspents.contains(output))
+                continue;
+            if (contribution == null)
+                contribution = new long[BalanceType.values().length];
+            long value = output.getValue().value;
+            boolean spendable = canSignFor(output.getScriptPubKey());
+            contribution[BalanceType.ESTIMATED.ordinal()] += value;
+            if (spendable)
+                contribution[BalanceType.ESTIMATED_SPENDABLE.ordinal()] += value;
+            if (available)
+                contribution[BalanceType.AVAILABLE.ordinal()] += value;
+            if (available && spendable)
+                contribution[BalanceType.AVAILABLE_SPENDABLE.ordinal()] += value;
+        }
+        return contribution;
+    }
+
     /**
      * Returns the balance that would be considered spendable by the given coin selector, including watched outputs
      * (i.e. balance includes outputs we don't have the private keys for). Just asks it to select as many coins as
@@ -3805,6 +4180,7 @@ public class Wallet extends BaseTaggableObject
     @SuppressWarnings("FieldAccessNotGuarded")
     private void checkBalanceFuturesLocked(@Nullable Coin avail) {
         checkState(lock.isHeldByCurrentThread());
+        maybePublishBalanceTotals();
         final ListIterator<BalanceFutureRequest> it = balanceFutureRequests.listIterator();
         while (it.hasNext()) {
             final BalanceFutureRequest req = it.next();
@@ -4413,31 +4789,31 @@ public class Wallet extends BaseTaggableObject
     /**
      * Returns a list of all outputs that are being tracked by this wallet either from the {@link UTXOProvider}
      * (in this case the existence or not of private keys is ignored), or the wallets internal storage (the default)
-     * taking into account the flags.
+     * taking into account the flags. Outputs from the internal storage are ordered by decreasing value.
      *
      * @param excludeImmatureCoinbases Whether to ignore coinbase outputs that we will be able to spend in future once they mature.
      * @param excludeUnsignable Whether to ignore outputs that we are tracking but don't have the keys to sign for.
      */
     public List<TransactionOutput> calculateAllSpendCandidates(boolean excludeImmatureCoinbases, boolean excludeUnsignable) {
-        lock.lock();
-        try {
-            List<TransactionOutput> candidates;
-            if (vUTXOProvider == null) {
-                candidates = new ArrayList<>(myUnspents.size());
-                for (TransactionOutput output : myUnspents) {
-                    if (excludeUnsignable && !canSignFor(output.getScriptPubKey())) continue;
-                    Transaction transaction = checkNotNull(output.getParentTransaction());
-                    if (excludeImmatureCoinbases && !transaction.isMature())
-                        continue;
-                    candidates.add(output);
-                }
-            } else {
-                candidates = calculateAllSpendCandidatesFromUTXOProvider(excludeImmatureCoinbases);
+        if (vUTXOProvider != null) {
+            lock.lock();
+            try {
+                return calculateAllSpendCandidatesFromUTXOProvider(excludeImmatureCoinbases);
+            } finally {
+                lock.unlock();
             }
-            return candidates;
-        } finally {
-            lock.unlock();
         }
+        // Neither the keys nor the maturity of a transaction need the lock, so the snapshot is all we need it for.
+        Collection<TransactionOutput> unspents = getPoolSnapshot().myUnspents;
+        List<TransactionOutput> candidates = new ArrayList<>(unspents.size());
+        for (TransactionOutput output : unspents) {
+            if (excludeUnsignable && !canSignFor(output.getScriptPubKey())) continue;
+            Transaction transaction = checkNotNull(output.getParentTransaction());
+            if (excludeImmatureCoinbases && !transaction.isMature())
+                continue;
+            candidates.add(output);
+        }
+        return candidates;
     }
 
     /**
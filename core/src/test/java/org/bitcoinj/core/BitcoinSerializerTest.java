@@ -18,6 +18,7 @@
 package org.bitcoinj.core;
 
 import org.bitcoinj.params.MainNetParams;
+import org.bitcoinj.params.UnitTestParams;
 import org.junit.Ignore;
 import org.junit.Test;
 
@@ -239,4 +240,71 @@ public class BitcoinSerializerTest {
         ByteArrayOutputStream bos = new ByteArrayOutputStream(ADDRESS_MESSAGE_BYTES.length);
         serializer.serialize(unknownMessage, bos);
     }
+
+    @Test
+    public void testDeserializePayloadFromLongerArray() throws Exception {
+        NetworkParameters unitTest = UnitTestParams.get();
+        Context.propagate(new Context(unitTest));
+        MessageSerializer serializer = unitTest.getDefaultSerializer();
+        Address to = LegacyAddress.fromKey(unitTest, new ECKey());
+        Block block = unitTest.getGenesisBlock().createNextBlock(to);
+        for (Block expected : Arrays.asList(block, block.cloneAsHeader())) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            serializer.serialize(expected, bos);
+            ByteBuffer in = ByteBuffer.wrap(bos.toByteArray());
+            serializer.seekPastMagicBytes(in);
+            BitcoinSerializer.BitcoinPacketHeader header = serializer.deserializeHeader(in);
+
+            // Leave garbage after the payload, as a pooled array would.
+            byte[] payload = new byte[header.size + 100];
+            Arrays.fill(payload, (byte) 0xff);
+            in.get(payload, 0, header.size);
+            Block parsed = (Block) serializer.deserializePayload(header, payload);
+            assertEquals(expected, parsed);
+            assertEquals(expected.getTransactions(), parsed.getTransactions());
+            assertArrayEquals(expected.bitcoinSerialize(), parsed.bitcoinSerialize());
+        }
+    }
+
+    @Test(expected = ProtocolException.class)
+    public void testDeserializeTruncatedBlockFromLongerArray() throws Exception {
+        NetworkParameters unitTest = UnitTestParams.get();
+        Context.propagate(new Context(unitTest));
+        MessageSerializer serializer = unitTest.getDefaultSerializer();
+        Block block = unitTest.getGenesisBlock().createNextBlock(LegacyAddress.fromKey(unitTest, new ECKey()));
+        byte[] blockBytes = block.bitcoinSerialize();
+
+        // Cut off half of the lock time of the last transaction, the rest comes from garbage after the payload.
+        int size = blockBytes.length - 2;
+        byte[] headerBytes = new byte[BitcoinSerializer.BitcoinPacketHeader.HEADER_LENGTH];
+        byte[] command = "block".getBytes("US-ASCII");
+        System.arraycopy(command, 0, headerBytes, 0, command.length);
+        Utils.uint32ToByteArrayLE(size, headerBytes, headerBytes.length - 8);
+        System.arraycopy(Sha256Hash.hashTwice(blockBytes, 0, size), 0, headerBytes, headerBytes.length - 4, 4);
+        BitcoinSerializer.BitcoinPacketHeader header = serializer.deserializeHeader(ByteBuffer.wrap(headerBytes));
+        byte[] payload = new byte[size + 100];
+        Arrays.fill(payload, (byte) 0xff);
+        System.arraycopy(blockBytes, 0, payload, 0, size);
+        serializer.deserializePayload(header, payload);
+    }
+
+    @Test
+    public void testPayloadBufferPool() {
+        PayloadBufferPool pool = new PayloadBufferPool(1);
+        byte[] small = pool.acquire(1000);
+        assertEquals(PayloadBufferPool.MIN_POOLED_SIZE, small.length);
+        byte[] large = pool.acquire(PayloadBufferPool.MIN_POOLED_SIZE + 1);
+        assertEquals(2 * PayloadBufferPool.MIN_POOLED_SIZE, large.length);
+        pool.release(small);
+        pool.release(new byte[PayloadBufferPool.MIN_POOLED_SIZE]); // Only one is retained per size.
+        pool.release(new byte[12345]); // Not a pooled size.
+        assertEquals(1, pool.getFreeCount());
+        assertSame(small, pool.acquire(PayloadBufferPool.MIN_POOLED_SIZE));
+        assertEquals(0, pool.getFreeCount());
+
+        byte[] huge = pool.acquire(PayloadBufferPool.MAX_POOLED_SIZE + 1);
+        assertEquals(PayloadBufferPool.MAX_POOLED_SIZE + 1, huge.length);
+        pool.release(huge);
+        assertEquals(0, pool.getFreeCount());
+    }
 }
@@ -0,0 +1,76 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bitcoinj.core;
+
+import org.bitcoinj.crypto.X13;
+import org.bitcoinj.params.UnitTestParams;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
+public class BlockHeaderHasherTest {
+    private static final NetworkParameters UNITTEST = UnitTestParams.get();
+
+    @Before
+    public void setUp() {
+        Context.propagate(new Context(UNITTEST, 100, Coin.ZERO, false));
+    }
+
+    @Test
+    public void hashesBatchInOrder() throws Exception {
+        int count = 500;
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        bos.write(new VarInt(count).encode());
+        byte[][] rawHeaders = new byte[count][];
+        Block header = UNITTEST.getGenesisBlock().cloneAsHeader();
+        for (int i = 0; i < count; i++) {
+            header.setNonce(i);
+            rawHeaders[i] = Arrays.copyOf(header.bitcoinSerialize(), Block.HEADER_SIZE);
+            bos.write(rawHeaders[i]);
+            // Empty transaction count and empty block signature.
+            bos.write(0);
+            bos.write(0);
+        }
+        HeadersMessage message = new HeadersMessage(UNITTEST, bos.toByteArray());
+        List<Block> headers = message.getBlockHeaders();
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            BlockHeaderHasher.hashAll(headers, pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(count, headers.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, headers.get(i).getNonce());
+            assertEquals(Sha256Hash.wrapReversed(X13.x13Digest(rawHeaders[i])), headers.get(i).getHash());
+        }
+    }
+
+    @Test
+    public void smallBatchOnCallingThread() {
+        Block genesis = UNITTEST.getGenesisBlock();
+        Block reparsed = UNITTEST.getDefaultSerializer().makeBlock(genesis.bitcoinSerialize());
+        BlockHeaderHasher.hashAll(Arrays.asList(reparsed));
+        assertEquals(genesis.getHash(), reparsed.getHash());
+    }
+}
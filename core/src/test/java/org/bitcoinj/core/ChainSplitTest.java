@@ -63,6 +63,7 @@ public class ChainSplitTest {
         Context.propagate(new Context(UNITTEST, 100, Coin.ZERO, false));
         MemoryBlockStore blockStore = new MemoryBlockStore(UNITTEST);
         wallet = Wallet.createDeterministic(UNITTEST, Script.ScriptType.P2PKH);
+        wallet.setBalanceVerification(true);
         ECKey key1 = wallet.freshReceiveKey();
         ECKey key2 = wallet.freshReceiveKey();
         chain = new BlockChain(UNITTEST, wallet, blockStore);
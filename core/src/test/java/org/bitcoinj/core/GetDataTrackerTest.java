@@ -0,0 +1,134 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bitcoinj.core;
+
+import com.google.common.util.concurrent.SettableFuture;
+import org.bitcoinj.params.UnitTestParams;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.*;
+
+public class GetDataTrackerTest {
+    private static final NetworkParameters UNITTEST = UnitTestParams.get();
+
+    private GetDataTracker tracker;
+    private Transaction tx1, tx2;
+
+    @Before
+    public void setUp() {
+        Context.propagate(new Context(UNITTEST));
+        Utils.setMockClock();
+        tracker = new GetDataTracker(60 * 1000);
+        tx1 = new Transaction(UNITTEST);
+        tx1.addOutput(Coin.COIN, new ECKey());
+        tx2 = new Transaction(UNITTEST);
+        tx2.addOutput(Coin.CENT, new ECKey());
+    }
+
+    @Test
+    public void completesAllRequestsForHash() throws Exception {
+        SettableFuture<Transaction> first = SettableFuture.create();
+        SettableFuture<Transaction> second = SettableFuture.create();
+        SettableFuture<Transaction> other = SettableFuture.create();
+        tracker.add(tx1.getTxId(), first);
+        tracker.add(tx1.getTxId(), second);
+        tracker.add(tx2.getTxId(), other);
+        assertEquals(3, tracker.size());
+
+        assertTrue(tracker.complete(tx1));
+        assertSame(tx1, first.get());
+        assertSame(tx1, second.get());
+        assertFalse(other.isDone());
+        assertEquals(1, tracker.size());
+        // Nobody asked for it anymore.
+        assertFalse(tracker.complete(tx1));
+    }
+
+    @Test
+    public void cancelsNotFound() {
+        SettableFuture<Transaction> first = SettableFuture.create();
+        SettableFuture<Transaction> other = SettableFuture.create();
+        tracker.add(tx1.getTxId(), first);
+        tracker.add(tx2.getTxId(), other);
+
+        Sha256Hash unknown = Sha256Hash.of(new byte[] { 1 });
+        assertEquals(Collections.singletonList(tx1.getTxId()), tracker.cancel(Arrays.asList(tx1.getTxId(), unknown)));
+        assertTrue(first.isCancelled());
+        assertFalse(other.isDone());
+        assertEquals(1, tracker.size());
+    }
+
+    @Test
+    public void timesOutOldRequests() throws Exception {
+        SettableFuture<Transaction> old = SettableFuture.create();
+        SettableFuture<Transaction> answered = SettableFuture.create();
+        tracker.add(tx1.getTxId(), old);
+        tracker.add(tx2.getTxId(), answered);
+        tracker.complete(tx2);
+        Utils.rollMockClock(30);
+        SettableFuture<Transaction> recent = SettableFuture.create();
+        tracker.add(Sha256Hash.of(new byte[] { 1 }), recent);
+
+        Utils.rollMockClock(31);
+        tracker.expire();
+        try {
+            old.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertFalse(recent.isDone());
+        assertEquals(1, tracker.size());
+        // An answer after the timeout isn't taken anymore.
+        assertFalse(tracker.complete(tx1));
+    }
+
+    @Test
+    public void recordsPerformance() throws Exception {
+        PeerPerformance performance = new PeerPerformance();
+        tracker = new GetDataTracker(60 * 1000, performance);
+        SettableFuture<Transaction> answered = SettableFuture.create();
+        SettableFuture<Transaction> unanswered = SettableFuture.create();
+        tracker.add(tx1.getTxId(), answered);
+        tracker.add(tx2.getTxId(), unanswered);
+        Utils.rollMockClock(2);
+        tracker.complete(tx1);
+        assertEquals(1, performance.getGetDataResponseCount());
+        assertEquals(2000, performance.getGetDataLatencyPercentile(50));
+
+        Utils.rollMockClock(60);
+        tracker.expire();
+        assertTrue(unanswered.isDone());
+        assertEquals(1, performance.getStallCount());
+    }
+
+    @Test
+    public void failsAllOnClose() throws Exception {
+        SettableFuture<Transaction> first = SettableFuture.create();
+        SettableFuture<Transaction> other = SettableFuture.create();
+        tracker.add(tx1.getTxId(), first);
+        tracker.add(tx2.getTxId(), other);
+        tracker.failAll(new PeerException("Connection closed"));
+        assertTrue(first.isDone());
+        assertTrue(other.isDone());
+        assertEquals(0, tracker.size());
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bitcoinj.core;
+
+import org.bitcoinj.core.listeners.DownloadProgressTracker;
+import org.bitcoinj.testing.FakeTxBuilder;
+import org.bitcoinj.testing.InboundMessageQueuer;
+import org.bitcoinj.testing.TestWithPeerGroup;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(value = Parameterized.class)
+public class ParallelChainDownloadTest extends TestWithPeerGroup {
+    private static final int CHAIN_LENGTH = 60;
+    // Blocks up to this height are old enough that only their headers are downloaded.
+    private static final int FAST_CATCHUP_HEIGHT = 20;
+
+    private List<Block> blocks;
+    private Map<Sha256Hash, Block> blocksByHash;
+
+    @Parameterized.Parameters
+    public static Collection<ClientType[]> parameters() {
+        return Arrays.asList(new ClientType[] {ClientType.NIO_CLIENT_MANAGER},
+                             new ClientType[] {ClientType.BLOCKING_CLIENT_MANAGER});
+    }
+
+    public ParallelChainDownloadTest(ClientType clientType) {
+        super(clientType);
+    }
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        blocks = new ArrayList<>();
+        blocksByHash = new HashMap<>();
+        Block prev = blockChain.getChainHead().getHeader();
+        for (int i = 0; i < CHAIN_LENGTH; i++) {
+            prev = FakeTxBuilder.makeSolvedTestBlock(prev);
+            blocks.add(prev);
+            blocksByHash.put(prev.getHash(), prev);
+        }
+        peerGroup.setMaxDownloadPeers(2);
+    }
+
+    @Override
+    @After
+    public void tearDown() {
+        super.tearDown();
+    }
+
+    @Test
+    public void downloadsFromTwoPeers() throws Exception {
+        peerGroup.start();
+        peerGroup.setFastCatchupTimeSecs(blocks.get(FAST_CATCHUP_HEIGHT).getTimeSeconds());
+        // The peer with the longest chain is asked for the headers.
+        InboundMessageQueuer p1 = connectPeer(1, versionWithHeight(CHAIN_LENGTH));
+        InboundMessageQueuer p2 = connectPeer(2, versionWithHeight(CHAIN_LENGTH - 1));
+        DownloadProgressTracker tracker = new DownloadProgressTracker();
+        peerGroup.startBlockChainDownload(tracker);
+
+        assertTrue(waitForOutbound(p1) instanceof GetHeadersMessage);
+        inbound(p1, headers());
+
+        // The blocks after the fast catchup time are spread over both peers, three ranges in all.
+        List<Sha256Hash> requested1 = requestedBlocks(p1);
+        requested1.addAll(requestedBlocks(p1));
+        List<Sha256Hash> requested2 = requestedBlocks(p2);
+        assertEquals(2 * ParallelChainDownload.RANGE_SIZE, requested1.size());
+        assertEquals(CHAIN_LENGTH - FAST_CATCHUP_HEIGHT - 2 * ParallelChainDownload.RANGE_SIZE, requested2.size());
+        assertEquals(blocks.get(FAST_CATCHUP_HEIGHT).getHash(), requested1.get(0));
+
+        // The later blocks arriving first are held back until the earlier ones are in.
+        deliver(p2, requested2);
+        pingAndWait(p2);
+        deliver(p1, requested1);
+        tracker.await();
+        assertEquals(CHAIN_LENGTH, blockChain.getBestChainHeight());
+    }
+
+    @Test
+    public void stalledRangeGoesToAnotherPeer() throws Exception {
+        Utils.setMockClock();
+        peerGroup.start();
+        peerGroup.setFastCatchupTimeSecs(blocks.get(FAST_CATCHUP_HEIGHT).getTimeSeconds());
+        InboundMessageQueuer p1 = connectPeer(1, versionWithHeight(CHAIN_LENGTH));
+        InboundMessageQueuer p2 = connectPeer(2, versionWithHeight(CHAIN_LENGTH - 1));
+        DownloadProgressTracker tracker = new DownloadProgressTracker();
+        peerGroup.startBlockChainDownload(tracker);
+
+        assertTrue(waitForOutbound(p1) instanceof GetHeadersMessage);
+        inbound(p1, headers());
+        List<Sha256Hash> requested1 = requestedBlocks(p1);
+        requested1.addAll(requestedBlocks(p1));
+        List<Sha256Hash> requested2 = requestedBlocks(p2);
+
+        // The second peer never answers, so once the first is done its range is asked from the first.
+        deliver(p1, requested1);
+        pingAndWait(p1);
+        Utils.rollMockClockMillis(ParallelChainDownload.STALL_TIMEOUT_MILLIS + 1000);
+        assertEquals(requested2, requestedBlocks(p1));
+        deliver(p1, requested2);
+        tracker.await();
+        assertEquals(CHAIN_LENGTH, blockChain.getBestChainHeight());
+    }
+
+    @Test
+    public void headersFirst() throws Exception {
+        peerGroup.setHeadersFirst(true);
+        peerGroup.setMaxDownloadPeers(1);
+        peerGroup.start();
+        peerGroup.setFastCatchupTimeSecs(blocks.get(FAST_CATCHUP_HEIGHT).getTimeSeconds());
+        InboundMessageQueuer p1 = connectPeer(1, versionWithHeight(CHAIN_LENGTH));
+        DownloadProgressTracker tracker = new DownloadProgressTracker();
+        peerGroup.startBlockChainDownload(tracker);
+
+        assertTrue(waitForOutbound(p1) instanceof GetHeadersMessage);
+        inbound(p1, headers());
+        List<Sha256Hash> requested = requestedBlocks(p1);
+        requested.addAll(requestedBlocks(p1));
+
+        // All headers are checked and stored before any block arrives, the old blocks are already in the chain.
+        List<StoredBlock> stored = new ArrayList<>();
+        for (Block block : blocks) {
+            assertTrue(blockStore.get(block.getHash()) != null);
+            stored.add(blockStore.get(block.getHash()));
+        }
+        assertEquals(FAST_CATCHUP_HEIGHT, blockChain.getBestChainHeight());
+        assertEquals(blocks.get(FAST_CATCHUP_HEIGHT).getHash(), requested.get(0));
+
+        deliver(p1, requested);
+        requested = requestedBlocks(p1);
+        deliver(p1, requested);
+        tracker.await();
+        assertEquals(CHAIN_LENGTH, blockChain.getBestChainHeight());
+        // Adding the blocks didn't store their headers again.
+        for (int i = 0; i < CHAIN_LENGTH; i++)
+            assertSame(stored.get(i), blockStore.get(blocks.get(i).getHash()));
+        assertTrue(peerGroup.getHeaderDownloadRate() > 0);
+        assertTrue(peerGroup.getBlockDownloadRate() > 0);
+    }
+
+    private VersionMessage versionWithHeight(int height) {
+        // Without Bloom filtering support, so that full blocks are requested.
+        VersionMessage ver = remoteVersionMessage.duplicate();
+        ver.clientVersion = UNITTEST.getProtocolVersionNum(NetworkParameters.ProtocolVersion.BLOOM_FILTER_BIP111);
+        ver.bestHeight = height;
+        return ver;
+    }
+
+    private HeadersMessage headers() {
+        List<Block> headers = new ArrayList<>();
+        for (Block block : blocks)
+            headers.add(block.cloneAsHeader());
+        return new HeadersMessage(UNITTEST, headers);
+    }
+
+    private List<Sha256Hash> requestedBlocks(InboundMessageQueuer p) throws Exception {
+        Message m = waitForOutbound(p);
+        assertTrue(m instanceof GetDataMessage);
+        List<Sha256Hash> hashes = new ArrayList<>();
+        for (InventoryItem item : ((GetDataMessage) m).getItems()) {
+            assertEquals(InventoryItem.Type.BLOCK, item.type);
+            hashes.add(item.hash);
+        }
+        return hashes;
+    }
+
+    private void deliver(InboundMessageQueuer p, List<Sha256Hash> hashes) {
+        for (Sha256Hash hash : hashes)
+            inbound(p, blocksByHash.get(hash));
+    }
+}
@@ -508,6 +508,65 @@ public class PeerGroupTest extends TestWithPeerGroup {
         assertEquals(d.peer, peerGroup.getDownloadPeer());*/
     }
 
+    @Test
+    public void downloadPeerSelectionPrefersFastPeers() throws Exception {
+        peerGroup.start();
+        VersionMessage ver = new VersionMessage(UNITTEST, 2);
+        ver.clientVersion = NetworkParameters.ProtocolVersion.BLOOM_FILTER.getBitcoinProtocolVersion();
+        ver.localServices = VersionMessage.NODE_NETWORK;
+        Peer p1 = connectPeer(1, ver).peer;
+        Peer p2 = connectPeer(2, ver).peer;
+        Peer p3 = connectPeer(3, ver).peer;
+        p1.getPerformance().recordGetDataLatency(1000);
+        p2.getPerformance().recordGetDataLatency(100);
+        p3.getPerformance().recordGetDataLatency(1000);
+        for (int i = 0; i < 10; i++)
+            assertEquals(p2, peerGroup.selectDownloadPeer(peerGroup.getConnectedPeers()));
+
+        // Each stall doubles the cost, so after four the fast peer isn't preferred anymore.
+        for (int i = 0; i < 4; i++)
+            p2.getPerformance().recordStall();
+        assertNotEquals(p2, peerGroup.selectDownloadPeer(peerGroup.getConnectedPeers()));
+    }
+
+    @Test
+    public void racesConnectionAttempts() throws Exception {
+        // The attempts after the first wait out the group backoff, which never ends with a frozen mock clock.
+        Utils.resetMocking();
+        final InetSocketAddress[] addresses = new InetSocketAddress[3];
+        for (int i = 0; i < addresses.length; i++)
+            addresses[i] = new InetSocketAddress(InetAddress.getLoopbackAddress(), 2000 + i);
+        peerGroup.addPeerDiscovery(new PeerDiscovery() {
+            @Override
+            public InetSocketAddress[] getPeers(long services, long timeoutValue, TimeUnit timeoutUnit) {
+                return addresses;
+            }
+
+            @Override
+            public void shutdown() {
+            }
+        });
+        peerGroup.setMaxConnections(1);
+        peerGroup.setConnectRace(8, 2);
+        peerGroup.addConnectedEventListener(connectedListener);
+        peerGroup.addDisconnectedEventListener(disconnectedListener);
+        peerGroup.start();
+
+        // All three addresses are tried at once. The first to complete the handshake wins and the others are closed.
+        InboundMessageQueuer winner = newPeerWriteTargetQueue.take();
+        newPeerWriteTargetQueue.take();
+        newPeerWriteTargetQueue.take();
+        winner.sendMessage(remoteVersionMessage);
+        winner.sendMessage(new VersionAck());
+        Peer peer = connectedPeers.take();
+        assertNotEquals(peer, disconnectedPeers.take());
+        assertNotEquals(peer, disconnectedPeers.take());
+        assertEquals(Collections.singletonList(peer), peerGroup.getConnectedPeers());
+        assertTrue(peerGroup.getPendingPeers().isEmpty());
+        assertTrue(peerGroup.getTimeToFirstPeerMillis() >= 0);
+        assertEquals(peerGroup.getTimeToFirstPeerMillis(), peerGroup.getTimeToFullPeersMillis());
+    }
+
     @Test
     public void peerTimeoutTest() throws Exception {
         final int timeout = 100;
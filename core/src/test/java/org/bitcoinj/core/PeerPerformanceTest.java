@@ -0,0 +1,74 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bitcoinj.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PeerPerformanceTest {
+    private PeerPerformance performance;
+
+    @Before
+    public void setUp() {
+        Utils.setMockClock();
+        performance = new PeerPerformance();
+    }
+
+    @Test
+    public void ratesApproachSteadyState() {
+        assertEquals(0, performance.getBytesPerSecond(), 0);
+        // A thousand bytes in ten messages per second, for a few time constants.
+        for (int i = 0; i < 5 * PeerPerformance.RATE_TIME_CONSTANT_SECS; i++) {
+            for (int j = 0; j < 10; j++)
+                performance.recordMessage(100);
+            Utils.rollMockClock(1);
+        }
+        assertEquals(1000, performance.getBytesPerSecond(), 10);
+        assertEquals(10, performance.getMessagesPerSecond(), 0.1);
+        assertEquals(50 * 1000, performance.getTotalBytes());
+        assertEquals(500, performance.getTotalMessages());
+
+        // Once the peer goes quiet, the rates decay.
+        Utils.rollMockClock(PeerPerformance.RATE_TIME_CONSTANT_SECS);
+        assertTrue(performance.getBytesPerSecond() < 400);
+    }
+
+    @Test
+    public void latencyPercentiles() {
+        assertEquals(Long.MAX_VALUE, performance.getGetDataLatencyPercentile(50));
+        for (int i = 1; i <= 100; i++)
+            performance.recordGetDataLatency(i);
+        assertEquals(100, performance.getGetDataResponseCount());
+        assertEquals(1, performance.getGetDataLatencyPercentile(0));
+        assertEquals(50, performance.getGetDataLatencyPercentile(50));
+        assertEquals(90, performance.getGetDataLatencyPercentile(90));
+        assertEquals(100, performance.getGetDataLatencyPercentile(100));
+
+        // Only the most recent samples count.
+        for (int i = 0; i < PeerPerformance.LATENCY_SAMPLES; i++)
+            performance.recordGetDataLatency(1000);
+        assertEquals(1000, performance.getGetDataLatencyPercentile(0));
+    }
+
+    @Test
+    public void countsStalls() {
+        assertEquals(0, performance.getStallCount());
+        performance.recordStall();
+        performance.recordStall();
+        assertEquals(2, performance.getStallCount());
+    }
+}
@@ -51,6 +51,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -485,6 +486,71 @@ public class PeerTest extends TestWithNetworkConnections {
         closePeer(peer);
     }
 
+    @Test
+    public void headersGoWhereTheyWereAskedFor() throws Exception {
+        connect();
+        Utils.setMockClock();
+        Block b1 = createFakeBlock(blockStore, Block.BLOCK_HEIGHT_GENESIS).block;
+        blockChain.add(b1);
+        Block b2 = makeSolvedTestBlock(b1);
+        Block b3 = makeSolvedTestBlock(b2);
+
+        // The chain download asks for headers, then they are asked for explicitly before the answer arrives.
+        peer.setDownloadParameters(Utils.currentTimeSeconds() + 60 * 60, false);
+        peer.startBlockChainDownload();
+        assertTrue(outbound(writeTarget) instanceof GetHeadersMessage);
+        ListenableFuture<HeadersMessage> future =
+                peer.getBlockHeaders(new BlockLocator().add(b2.getHash()), Sha256Hash.ZERO_HASH);
+        assertTrue(outbound(writeTarget) instanceof GetHeadersMessage);
+
+        // The first answer goes to the chain download.
+        inbound(writeTarget, new HeadersMessage(UNITTEST, b2.cloneAsHeader()));
+        pingAndWait(writeTarget);
+        assertFalse(future.isDone());
+        assertEquals(b2.getHash(), blockChain.getChainHead().getHeader().getHash());
+
+        // The second one to the explicit request.
+        inbound(writeTarget, new HeadersMessage(UNITTEST, b3.cloneAsHeader()));
+        assertEquals(b3.getHash(), future.get().getBlockHeaders().get(0).getHash());
+        assertEquals(b2.getHash(), blockChain.getChainHead().getHeader().getHash());
+        closePeer(peer);
+    }
+
+    @Test
+    public void unansweredHeadersRequestsFail() throws Exception {
+        connect();
+        Utils.setMockClock();
+        Block b1 = createFakeBlock(blockStore, Block.BLOCK_HEIGHT_GENESIS).block;
+        blockChain.add(b1);
+        Block b2 = makeSolvedTestBlock(b1);
+        BlockLocator locator = new BlockLocator().add(b1.getHash());
+
+        // A getheaders the peer never answers is given up on, so the next answer goes to the request after it.
+        ListenableFuture<HeadersMessage> unanswered = peer.getBlockHeaders(locator, Sha256Hash.ZERO_HASH);
+        assertTrue(outbound(writeTarget) instanceof GetHeadersMessage);
+        Utils.rollMockClock((int) (Peer.GETHEADERS_TIMEOUT_MILLIS / 1000) + 1);
+        ListenableFuture<HeadersMessage> answered = peer.getBlockHeaders(locator, Sha256Hash.ZERO_HASH);
+        assertTrue(outbound(writeTarget) instanceof GetHeadersMessage);
+        try {
+            unanswered.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        inbound(writeTarget, new HeadersMessage(UNITTEST, b2.cloneAsHeader()));
+        assertEquals(b2.getHash(), answered.get().getBlockHeaders().get(0).getHash());
+
+        // Those still waiting for an answer fail when the connection closes.
+        ListenableFuture<HeadersMessage> pending = peer.getBlockHeaders(locator, Sha256Hash.ZERO_HASH);
+        closePeer(peer);
+        try {
+            pending.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof PeerException);
+        }
+    }
+
     @Test
     public void pingPong() throws Exception {
         connect();
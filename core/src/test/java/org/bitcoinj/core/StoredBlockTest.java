@@ -0,0 +1,104 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bitcoinj.core;
+
+import org.bitcoinj.params.UnitTestParams;
+import org.bitcoinj.store.BlockStore;
+import org.bitcoinj.store.BlockStoreException;
+import org.bitcoinj.store.MemoryBlockStore;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class StoredBlockTest {
+    private static final NetworkParameters UNITTEST = UnitTestParams.get();
+
+    @Before
+    public void setUp() {
+        Context.propagate(new Context(UNITTEST, 100, Coin.ZERO, false));
+    }
+
+    @Test
+    public void compactRoundTrip() throws Exception {
+        Block genesis = UNITTEST.getGenesisBlock().cloneAsHeader();
+        StoredBlock stored = new StoredBlock(genesis, genesis.getWork(), 0);
+        ByteBuffer buffer = ByteBuffer.allocate(StoredBlock.COMPACT_SERIALIZED_SIZE);
+        stored.serializeCompact(buffer);
+
+        buffer.rewind();
+        StoredBlock computed = StoredBlock.deserializeCompact(UNITTEST, buffer);
+        assertEquals(stored, computed);
+        assertEquals(genesis.getHash(), computed.getHeader().getHash());
+
+        buffer.rewind();
+        StoredBlock trusted = StoredBlock.deserializeCompact(UNITTEST, buffer, genesis.getHash());
+        assertEquals(stored, trusted);
+        assertEquals(genesis.getHash(), trusted.getHeader().getHash());
+    }
+
+    @Test
+    public void getRecent() throws Exception {
+        final MemoryBlockStore store = new MemoryBlockStore(UNITTEST);
+        // Hides the height index, so getRecent() has to walk back.
+        BlockStore plainStore = new BlockStore() {
+            @Override public void put(StoredBlock block) throws BlockStoreException { store.put(block); }
+            @Override public StoredBlock get(Sha256Hash hash) throws BlockStoreException { return store.get(hash); }
+            @Override public StoredBlock getChainHead() throws BlockStoreException { return store.getChainHead(); }
+            @Override public void setChainHead(StoredBlock head) throws BlockStoreException {
+                store.setChainHead(head);
+            }
+            @Override public void close() throws BlockStoreException { store.close(); }
+            @Override public NetworkParameters getParams() { return UNITTEST; }
+        };
+        Address to = LegacyAddress.fromKey(UNITTEST, new ECKey());
+        List<StoredBlock> chain = new ArrayList<>();
+        chain.add(store.getChainHead());
+        for (int i = 0; i < 20; i++) {
+            StoredBlock prev = chain.get(chain.size() - 1);
+            StoredBlock next = prev.build(prev.getHeader().createNextBlock(to).cloneAsHeader());
+            store.put(next);
+            store.setChainHead(next);
+            chain.add(next);
+        }
+        // A fork off the best chain is not in the height index.
+        StoredBlock forkBase = chain.get(15);
+        Block forkHeader = forkBase.getHeader().createNextBlock(to, Coin.valueOf(12345)).cloneAsHeader();
+        StoredBlock fork = forkBase.build(forkHeader);
+        store.put(fork);
+
+        assertEquals(chain.subList(10, 21), chain.get(20).getRecent(store, 11));
+        assertEquals(chain.subList(10, 21), chain.get(20).getRecent(plainStore, 11));
+        assertEquals(chain.subList(0, 4), chain.get(3).getRecent(store, 11));
+        assertEquals(chain.subList(0, 4), chain.get(3).getRecent(plainStore, 11));
+        List<StoredBlock> expectedFork = new ArrayList<>(chain.subList(11, 16));
+        expectedFork.add(fork);
+        assertEquals(expectedFork, fork.getRecent(store, 6));
+    }
+
+    @Test
+    public void trustedHashDroppedOnModification() throws Exception {
+        Block genesis = UNITTEST.getGenesisBlock().cloneAsHeader();
+        Block header = UNITTEST.getDefaultSerializer().makeBlock(genesis.bitcoinSerialize());
+        header.setTrustedHash(Sha256Hash.ZERO_HASH);
+        assertEquals(Sha256Hash.ZERO_HASH, header.getHash());
+        header.setNonce(genesis.getNonce());
+        assertEquals(genesis.getHash(), header.getHash());
+    }
+}
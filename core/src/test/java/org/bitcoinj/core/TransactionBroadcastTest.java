@@ -253,4 +253,34 @@ public class TransactionBroadcastTest extends TestWithPeerGroup {
         // Transaction announced to the first peer. No extra Bloom filter because no change address was needed.
         assertEquals(t3.getTxId(), outbound(p1).getHash());
     }
+
+    @Test
+    public void batchedAnnouncements() throws Exception {
+        peerGroup.setInventoryBatching(60 * 1000, 2);
+        InboundMessageQueuer p1 = connectPeer(1);
+        Transaction tx1 = FakeTxBuilder.createFakeTx(UNITTEST);
+        Transaction tx2 = FakeTxBuilder.createFakeTx(UNITTEST, CENT, address);
+        ListenableFuture<Transaction> future1 = peerGroup.broadcastTransaction(tx1, 1).future();
+        assertNull(outbound(p1));
+        ListenableFuture<Transaction> future2 = peerGroup.broadcastTransaction(tx2, 1).future();
+        future1.get();
+        future2.get();
+
+        // Both transactions are announced in one inv, in order, and sent when the peer asks for them.
+        InventoryMessage inv = (InventoryMessage) outbound(p1);
+        assertEquals(Arrays.asList(new InventoryItem(InventoryItem.Type.TRANSACTION, tx1.getTxId()),
+                new InventoryItem(InventoryItem.Type.TRANSACTION, tx2.getTxId())), inv.getItems());
+        GetDataMessage getdata = new GetDataMessage(UNITTEST);
+        getdata.addTransaction(tx1.getTxId(), false);
+        inbound(p1, getdata);
+        assertEquals(tx1, waitForOutbound(p1));
+
+        // Turning batching off sends what is still queued.
+        Transaction tx3 = FakeTxBuilder.createFakeTx(UNITTEST);
+        peerGroup.broadcastTransaction(tx3, 1).future().get();
+        assertNull(outbound(p1));
+        peerGroup.setInventoryBatching(0, 1);
+        inv = (InventoryMessage) outbound(p1);
+        assertEquals(tx3.getTxId(), inv.getItems().get(0).hash);
+    }
 }
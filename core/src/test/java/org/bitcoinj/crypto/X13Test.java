@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bitcoinj.crypto;
+
+import fr.cryptohash.BLAKE512;
+import fr.cryptohash.BMW512;
+import fr.cryptohash.CubeHash512;
+import fr.cryptohash.Digest;
+import fr.cryptohash.ECHO512;
+import fr.cryptohash.Fugue512;
+import fr.cryptohash.Groestl512;
+import fr.cryptohash.Hamsi512;
+import fr.cryptohash.JH512;
+import fr.cryptohash.Keccak512;
+import fr.cryptohash.Luffa512;
+import fr.cryptohash.SHAvite512;
+import fr.cryptohash.SIMD512;
+import fr.cryptohash.Skein512;
+import org.bitcoinj.core.Block;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Utils;
+import org.bitcoinj.params.MainNetParams;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class X13Test {
+    private static final byte[] GENESIS_HEADER = Arrays.copyOf(
+            MainNetParams.get().getGenesisBlock().bitcoinSerialize(), Block.HEADER_SIZE);
+    private static final String GENESIS_HASH = "000004e29458ef4f2e0abab544737b07344e6ff13718f7c2d12926166db07b5e";
+
+    @Test
+    public void genesisHeader() {
+        assertEquals(GENESIS_HASH, Sha256Hash.wrapReversed(new X13Hasher().digest(GENESIS_HEADER, 0,
+                GENESIS_HEADER.length)).toString());
+        assertEquals(GENESIS_HASH, Sha256Hash.wrapReversed(X13.x13Digest(GENESIS_HEADER)).toString());
+    }
+
+    @Test
+    public void hasherIsReusable() {
+        X13Hasher hasher = new X13Hasher();
+        byte[] other = new byte[Block.HEADER_SIZE];
+        byte[] first = hasher.digest(GENESIS_HEADER, 0, GENESIS_HEADER.length);
+        byte[] otherHash = hasher.digest(other, 0, other.length);
+        assertArrayEquals(first, hasher.digest(GENESIS_HEADER, 0, GENESIS_HEADER.length));
+        assertArrayEquals(otherHash, new X13Hasher().digest(other, 0, other.length));
+    }
+
+    @Test
+    public void offsetAndReversed() {
+        byte[] padded = new byte[GENESIS_HEADER.length + 20];
+        System.arraycopy(GENESIS_HEADER, 0, padded, 7, GENESIS_HEADER.length);
+        byte[] expected = X13.x13Digest(GENESIS_HEADER);
+        assertArrayEquals(expected, X13.x13Digest(padded, 7, GENESIS_HEADER.length));
+        assertArrayEquals(Utils.reverseBytes(expected), X13.x13DigestReversed(padded, 7, GENESIS_HEADER.length));
+
+        byte[] out = new byte[40];
+        new X13Hasher().digestReversed(padded, 7, GENESIS_HEADER.length, out, 3);
+        assertArrayEquals(Utils.reverseBytes(expected), Arrays.copyOfRange(out, 3, 3 + X13Hasher.HASH_LENGTH));
+    }
+
+    @Test
+    public void specializedStagesMatchGenericCores() {
+        X13Hasher generic = new X13Hasher(new Digest[] {
+                new BLAKE512(), new BMW512(), new Groestl512(), new Skein512(), new JH512(), new Keccak512(),
+                new Luffa512(), new CubeHash512(), new SHAvite512(), new SIMD512(), new ECHO512(), new Hamsi512(),
+                new Fugue512()
+        });
+        X13Hasher specialized = new X13Hasher();
+        Random random = new Random(1);
+        for (int length : new int[] { 0, 1, 64, 80, 127, 128, 129, 300 }) {
+            byte[] input = new byte[length];
+            random.nextBytes(input);
+            assertArrayEquals(generic.digest(input, 0, length), specialized.digest(input, 0, length));
+        }
+    }
+
+    @Test
+    public void batchMatchesSingleHashes() {
+        int stride = Block.HEADER_SIZE + 2, count = 5;
+        byte[] input = new byte[3 + stride * count];
+        new Random(2).nextBytes(input);
+        byte[] output = new byte[count * X13Hasher.HASH_LENGTH];
+        byte[] reversedOutput = new byte[count * X13Hasher.HASH_LENGTH];
+        X13.x13DigestBatch(input, 3, Block.HEADER_SIZE, stride, count, output, false);
+        X13.x13DigestBatch(input, 3, Block.HEADER_SIZE, stride, count, reversedOutput, true);
+        for (int i = 0; i < count; i++) {
+            byte[] expected = X13.x13Digest(input, 3 + i * stride, Block.HEADER_SIZE);
+            int from = i * X13Hasher.HASH_LENGTH, to = from + X13Hasher.HASH_LENGTH;
+            assertArrayEquals(expected, Arrays.copyOfRange(output, from, to));
+            assertArrayEquals(Utils.reverseBytes(expected), Arrays.copyOfRange(reversedOutput, from, to));
+        }
+    }
+
+    @Test
+    public void countsHashes() {
+        long before = X13.getNativeHashCount() + X13.getJavaHashCount();
+        X13.x13Digest(GENESIS_HEADER);
+        X13.x13DigestBatch(GENESIS_HEADER, 0, GENESIS_HEADER.length, GENESIS_HEADER.length, 1,
+                new byte[X13Hasher.HASH_LENGTH], false);
+        assertEquals(before + 2, X13.getNativeHashCount() + X13.getJavaHashCount());
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bitcoinj.net;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ConnectionHandlerTest {
+    private static final int WRITERS = 4;
+    private static final int MESSAGES = 500;
+    private static final int MESSAGE_SIZE = 100;
+
+    private ServerSocketChannel server;
+    private SocketChannel remote;
+    private Selector selector;
+    private SelectionKey key;
+    private DirectBufferPool pool;
+    private Set<ConnectionHandler> connectedHandlers;
+    private ConnectionHandler handler;
+    private final CountDownLatch closed = new CountDownLatch(1);
+    private final AtomicInteger closeCount = new AtomicInteger();
+
+    private class Connection implements StreamConnection {
+        @Override
+        public void connectionClosed() {
+            closeCount.incrementAndGet();
+            closed.countDown();
+        }
+
+        @Override
+        public void connectionOpened() {
+        }
+
+        @Override
+        public int receiveBytes(ByteBuffer buff) {
+            int read = buff.remaining();
+            buff.position(buff.limit());
+            return read;
+        }
+
+        @Override
+        public void setWriteTarget(MessageWriteTarget writeTarget) {
+        }
+
+        @Override
+        public int getMaxMessageSize() {
+            return 1024;
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        server = ServerSocketChannel.open();
+        server.socket().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        SocketChannel local = SocketChannel.open(server.socket().getLocalSocketAddress());
+        remote = server.accept();
+        local.configureBlocking(false);
+        selector = Selector.open();
+        key = local.register(selector, SelectionKey.OP_READ);
+        pool = new DirectBufferPool(DirectBufferPool.BUFFER_SIZE, 10000);
+        connectedHandlers = Collections.synchronizedSet(new HashSet<ConnectionHandler>());
+        // The test thread is the selector thread that owns the handler.
+        handler = new ConnectionHandler(new Connection(), key, connectedHandlers, pool);
+        key.attach(handler);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        handler.closeConnection();
+        remote.close();
+        server.close();
+        selector.close();
+    }
+
+    // Runs the selector on the test thread until the given latch is released.
+    private void runSelector(CountDownLatch until) throws Exception {
+        while (until.getCount() > 0) {
+            selector.select(10);
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey selected = keys.next();
+                keys.remove();
+                ConnectionHandler.handleKey(selected);
+            }
+        }
+    }
+
+    private static byte[] message(int writer, int seq) {
+        byte[] message = new byte[MESSAGE_SIZE];
+        message[0] = (byte) writer;
+        message[1] = (byte) (seq >> 8);
+        message[2] = (byte) seq;
+        for (int i = 3; i < MESSAGE_SIZE; i++)
+            message[i] = (byte) writer;
+        return message;
+    }
+
+    // Reads from the remote end until the given number of bytes arrived or it's closed.
+    private Thread startReader(final ByteBuffer received, final CountDownLatch done) {
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    while (received.hasRemaining() && remote.read(received) >= 0) ;
+                } catch (IOException e) {
+                    // Closed.
+                }
+                done.countDown();
+            }
+        };
+        reader.start();
+        return reader;
+    }
+
+    @Test
+    public void concurrentWritesKeepMessagesInOrder() throws Exception {
+        ByteBuffer received = ByteBuffer.allocate(WRITERS * MESSAGES * MESSAGE_SIZE);
+        CountDownLatch done = new CountDownLatch(1);
+        Thread reader = startReader(received, done);
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            final int writer = w;
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int seq = 0; seq < MESSAGES; seq++)
+                            handler.writeBytes(message(writer, seq));
+                    } catch (Throwable t) {
+                        errors.add(t);
+                    }
+                }
+            };
+            writers.add(thread);
+            thread.start();
+        }
+        runSelector(done);
+        for (Thread thread : writers)
+            thread.join();
+        reader.join();
+        assertTrue(errors.toString(), errors.isEmpty());
+
+        // Each message arrived whole, and the messages of each writer in the order they were written.
+        int[] next = new int[WRITERS];
+        received.flip();
+        byte[] message = new byte[MESSAGE_SIZE];
+        while (received.hasRemaining()) {
+            received.get(message);
+            int writer = message[0];
+            int seq = ((message[1] & 0xff) << 8) | (message[2] & 0xff);
+            assertEquals(next[writer]++, seq);
+            for (int i = 3; i < MESSAGE_SIZE; i++)
+                assertEquals(writer, message[i]);
+        }
+        for (int w = 0; w < WRITERS; w++)
+            assertEquals(MESSAGES, next[w]);
+        // Written buffers went back to the pool.
+        assertEquals(pool.getAllocatedCount(), pool.getFreeCount());
+    }
+
+    @Test
+    public void writesRacingClose() throws Exception {
+        ByteBuffer received = ByteBuffer.allocate(64 * 1024 * 1024);
+        Thread reader = startReader(received, new CountDownLatch(1));
+        final CountDownLatch writing = new CountDownLatch(WRITERS);
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            final int writer = w;
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int seq = 0; ; seq++) {
+                            handler.writeBytes(message(writer, seq));
+                            if (seq == 10)
+                                writing.countDown();
+                        }
+                    } catch (IOException e) {
+                        // Writes after the close fail like they always did.
+                        if (!(e.getCause() instanceof CancelledKeyException))
+                            errors.add(e);
+                    } catch (Throwable t) {
+                        errors.add(t);
+                    }
+                    writing.countDown();
+                }
+            };
+            writers.add(thread);
+            thread.start();
+        }
+        runSelector(writing);
+        handler.closeConnection();
+        for (Thread thread : writers)
+            thread.join();
+        reader.join();
+        assertTrue(errors.toString(), errors.isEmpty());
+        assertEquals(0, closed.getCount());
+        assertEquals(1, closeCount.get());
+        assertFalse(connectedHandlers.contains(handler));
+        // Whatever was queued when the connection closed went back to the pool.
+        assertEquals(pool.getAllocatedCount(), pool.getFreeCount());
+    }
+
+    @Test
+    public void writeAfterClose() throws Exception {
+        handler.writeBytes(message(0, 0));
+        handler.closeConnection();
+        try {
+            handler.writeBytes(message(0, 1));
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getCause() instanceof CancelledKeyException);
+        }
+        assertEquals(1, closeCount.get());
+        assertEquals(pool.getAllocatedCount(), pool.getFreeCount());
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bitcoinj.net;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DirectBufferPoolTest {
+    @Test
+    public void outputSpansBuffers() {
+        DirectBufferPool pool = new DirectBufferPool(16, 10);
+        byte[] message = new byte[40];
+        new Random(1).nextBytes(message);
+        DirectBufferPool.Output out = pool.new Output();
+        out.write(message[0]);
+        out.write(message, 1, message.length - 1);
+        assertEquals(message.length, out.size());
+
+        List<ByteBuffer> buffers = out.finish();
+        assertEquals(3, buffers.size());
+        byte[] read = new byte[message.length];
+        int offset = 0;
+        for (ByteBuffer buffer : buffers) {
+            assertTrue(buffer.isDirect());
+            int length = buffer.remaining();
+            buffer.get(read, offset, length);
+            offset += length;
+        }
+        assertArrayEquals(message, read);
+    }
+
+    @Test
+    public void reusesAndBoundsFreeBuffers() {
+        DirectBufferPool pool = new DirectBufferPool(16, 2);
+        ByteBuffer a = pool.acquire(), b = pool.acquire(), c = pool.acquire();
+        a.put((byte) 1);
+        pool.release(a);
+        pool.release(b);
+        pool.release(c);
+        assertEquals(2, pool.getFreeCount());
+        ByteBuffer reused = pool.acquire();
+        assertSame(a, reused);
+        assertEquals(0, reused.position());
+        // Foreign buffers are not retained.
+        pool.release(ByteBuffer.allocateDirect(32));
+        assertEquals(1, pool.getFreeCount());
+    }
+}
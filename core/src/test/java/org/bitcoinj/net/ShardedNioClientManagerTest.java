@@ -0,0 +1,120 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bitcoinj.net;
+
+import org.bitcoinj.core.Context;
+import org.bitcoinj.params.UnitTestParams;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ShardedNioClientManagerTest {
+    private NioServer server;
+    private InetSocketAddress address;
+
+    private static class Connection implements StreamConnection {
+        private final CountDownLatch opened;
+        private final CountDownLatch closed;
+
+        Connection(CountDownLatch opened, CountDownLatch closed) {
+            this.opened = opened;
+            this.closed = closed;
+        }
+
+        @Override
+        public void connectionClosed() {
+            closed.countDown();
+        }
+
+        @Override
+        public void connectionOpened() {
+            opened.countDown();
+        }
+
+        @Override
+        public int receiveBytes(ByteBuffer buff) {
+            return buff.remaining();
+        }
+
+        @Override
+        public void setWriteTarget(MessageWriteTarget writeTarget) {
+        }
+
+        @Override
+        public int getMaxMessageSize() {
+            return 1024;
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        Context.propagate(new Context(UnitTestParams.get()));
+        final CountDownLatch ignored = new CountDownLatch(0);
+        address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 2222);
+        server = new NioServer(new StreamConnectionFactory() {
+            @Override
+            public StreamConnection getNewConnection(InetAddress inetAddress, int port) {
+                return new Connection(ignored, ignored);
+            }
+        }, address);
+        server.startAsync().awaitRunning();
+    }
+
+    @After
+    public void tearDown() {
+        server.stopAsync().awaitTerminated();
+    }
+
+    @Test
+    public void spreadsConnectionsOverLoops() throws Exception {
+        ShardedNioClientManager manager = new ShardedNioClientManager(3);
+        manager.startAsync().awaitRunning();
+        assertEquals(3, manager.getEventLoopCount());
+
+        CountDownLatch closed = new CountDownLatch(6);
+        for (int i = 0; i < 6; i++) {
+            CountDownLatch opened = new CountDownLatch(1);
+            manager.openConnection(address, new Connection(opened, closed));
+            assertTrue(opened.await(10, TimeUnit.SECONDS));
+        }
+        assertEquals(6, manager.getConnectedClientCount());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(2, manager.getEventLoop(i).getConnectedClientCount());
+            assertEquals(0, manager.getEventLoop(i).getPendingConnectCount());
+        }
+
+        // Closing takes from the busiest loops, keeping the rest balanced.
+        manager.closeConnections(3);
+        assertEquals(3, manager.getConnectedClientCount());
+        for (int i = 0; i < 3; i++)
+            assertEquals(1, manager.getEventLoop(i).getConnectedClientCount());
+
+        // Stopping closes everything that is left.
+        manager.stopAsync().awaitTerminated();
+        assertTrue(closed.await(10, TimeUnit.SECONDS));
+        assertEquals(0, manager.getConnectedClientCount());
+        for (int i = 0; i < 3; i++)
+            assertTrue(manager.getEventLoop(i).getHandledKeyCount() >= 2);
+    }
+}
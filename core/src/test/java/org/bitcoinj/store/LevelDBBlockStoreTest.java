@@ -17,6 +17,8 @@
 package org.bitcoinj.store;
 
 import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Block;
+import org.bitcoinj.core.Coin;
 import org.bitcoinj.core.Context;
 import org.bitcoinj.core.LegacyAddress;
 import org.bitcoinj.core.NetworkParameters;
@@ -25,8 +27,12 @@ import org.bitcoinj.params.*;
 import org.junit.*;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 public class LevelDBBlockStoreTest {
     private static final NetworkParameters UNITTEST = UnitTestParams.get();
@@ -65,4 +71,70 @@ public class LevelDBBlockStoreTest {
             store.destroy();
         }
     }
+
+    @Test
+    public void heightIndex() throws Exception {
+        File f = File.createTempFile("leveldbblockstore", null);
+        f.delete();
+
+        Context context = new Context(UNITTEST);
+        LevelDBBlockStore store = new LevelDBBlockStore(context, f);
+        try {
+            store.reset();
+            Address to = LegacyAddress.fromBase58(UNITTEST, "mrj2K6txjo2QBcSmuAzHj4nD1oXSEJE1Qo");
+            StoredBlock genesis = store.getChainHead();
+            StoredBlock b1 = genesis.build(genesis.getHeader().createNextBlock(to).cloneAsHeader());
+            StoredBlock b2 = b1.build(b1.getHeader().createNextBlock(to).cloneAsHeader());
+            StoredBlock fork2 = b1.build(b1.getHeader().createNextBlock(to, Coin.valueOf(12345)).cloneAsHeader());
+            store.put(b1);
+            store.put(b2);
+            store.put(fork2);
+            store.setChainHead(b2);
+            assertEquals(b1, store.getByHeight(1));
+            assertEquals(b2, store.getByHeight(2));
+            assertNull(store.getByHeight(3));
+
+            store.setChainHead(fork2);
+            assertEquals(fork2, store.getByHeight(2));
+            assertEquals(Arrays.asList(genesis, b1, fork2), store.getRange(0, 5));
+
+            // Back to the shorter chain: the index must not return blocks above the head.
+            store.setChainHead(b1);
+            assertNull(store.getByHeight(2));
+        } finally {
+            store.close();
+            store.destroy();
+        }
+    }
+
+    @Test
+    public void heightIndexInBatches() throws Exception {
+        File f = File.createTempFile("leveldbblockstore", null);
+        f.delete();
+
+        Context context = new Context(UNITTEST);
+        LevelDBBlockStore store = new LevelDBBlockStore(context, f);
+        try {
+            store.reset();
+            // Like a store from before the height index, the head moves over many blocks at once.
+            Address to = LegacyAddress.fromBase58(UNITTEST, "mrj2K6txjo2QBcSmuAzHj4nD1oXSEJE1Qo");
+            int height = 2 * LevelDBBlockStore.HEIGHT_INDEX_BATCH_SIZE + 10;
+            List<StoredBlock> chain = new ArrayList<>();
+            StoredBlock block = store.getChainHead();
+            chain.add(block);
+            for (int i = 1; i <= height; i++) {
+                Block header = block.getHeader();
+                block = block.build(header.createNextBlock(to, header.getVersion(), header.getTimeSeconds() + 1, i)
+                        .cloneAsHeader());
+                store.put(block);
+                chain.add(block);
+            }
+            store.setChainHead(block);
+            assertEquals(block, store.getChainHead());
+            assertEquals(chain, store.getRange(0, height + 1));
+        } finally {
+            store.close();
+            store.destroy();
+        }
+    }
 }
\ No newline at end of file
@@ -23,11 +23,21 @@ import static org.junit.Assert.assertNull;
 
 import java.io.File;
 import java.math.BigInteger;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import org.bitcoinj.core.Address;
 import org.bitcoinj.core.Block;
+import org.bitcoinj.core.Coin;
 import org.bitcoinj.core.ECKey;
 import org.bitcoinj.core.LegacyAddress;
 import org.bitcoinj.core.NetworkParameters;
@@ -49,6 +59,18 @@ public class SPVBlockStoreTest {
         blockStoreFile = File.createTempFile("spvblockstore", null);
         blockStoreFile.delete();
         blockStoreFile.deleteOnExit();
+        SPVBlockStore.getIndexFile(blockStoreFile).deleteOnExit();
+    }
+
+    private static List<StoredBlock> createBlocks(int count) {
+        List<StoredBlock> blocks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            // Using i as the nonce so that the block hashes are different.
+            Block block = new Block(UNITTEST, 0, Sha256Hash.ZERO_HASH, Sha256Hash.ZERO_HASH, 0, 0, i,
+                    Collections.<Transaction> emptyList());
+            blocks.add(new StoredBlock(block, BigInteger.valueOf(i), i));
+        }
+        return blocks;
     }
 
     @Test
@@ -148,6 +170,144 @@ public class SPVBlockStoreTest {
         store.close();
     }
 
+    @Test
+    public void concurrentReadsDuringWrites() throws Exception {
+        // A small ring, so that the writer keeps overwriting records the readers are scanning.
+        final SPVBlockStore store = new SPVBlockStore(UNITTEST, blockStoreFile, 50, false);
+        final int BLOCKS = 2000;
+        final List<StoredBlock> blocks = createBlocks(BLOCKS);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Void>> readers = new ArrayList<>();
+        for (int r = 0; r < 3; r++) {
+            readers.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    for (int i = 0; i < BLOCKS * 5; i++) {
+                        StoredBlock expected = blocks.get(i % BLOCKS);
+                        StoredBlock read = store.get(expected.getHeader().getHash());
+                        if (read != null)
+                            assertEquals(expected, read);
+                        store.getChainHead();
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (StoredBlock block : blocks) {
+            store.put(block);
+            store.setChainHead(block);
+        }
+        for (Future<Void> reader : readers)
+            reader.get();
+        executor.shutdown();
+        // Every block written last must be found, even if a reader cached a miss for it earlier.
+        for (StoredBlock block : blocks.subList(BLOCKS - 40, BLOCKS))
+            assertEquals(block, store.get(block.getHeader().getHash()));
+        store.close();
+    }
+
+    @Test
+    public void indexFollowsRing() throws Exception {
+        int capacity = 30;
+        SPVBlockStore store = new SPVBlockStore(UNITTEST, blockStoreFile, capacity, false);
+        List<StoredBlock> blocks = createBlocks(200);
+        List<StoredBlock> records = new ArrayList<>();
+        for (int i = 0; i < blocks.size(); i++) {
+            store.put(blocks.get(i));
+            records.add(blocks.get(i));
+            store.setChainHead(blocks.get(i));
+            // Putting a block again must not lose it when its older record is overwritten.
+            if (i % 7 == 0) {
+                store.put(blocks.get(i));
+                records.add(blocks.get(i));
+            }
+        }
+        store.close();
+
+        // Reopen to bypass the caches. Exactly the blocks of the last capacity records must be found.
+        Set<StoredBlock> expected = new HashSet<>(records.subList(records.size() - capacity, records.size()));
+        store = new SPVBlockStore(UNITTEST, blockStoreFile, capacity, false);
+        for (StoredBlock block : blocks) {
+            StoredBlock read = store.get(block.getHeader().getHash());
+            assertEquals(expected.contains(block) ? block : null, read);
+        }
+        store.close();
+    }
+
+    @Test
+    public void indexRebuiltWhenMissingOrStale() throws Exception {
+        SPVBlockStore store = new SPVBlockStore(UNITTEST, blockStoreFile, 20, true);
+        List<StoredBlock> blocks = createBlocks(10);
+        for (StoredBlock block : blocks)
+            store.put(block);
+        store.setChainHead(blocks.get(9));
+        store.close();
+
+        // A store written before the index existed.
+        File indexFile = SPVBlockStore.getIndexFile(blockStoreFile);
+        assertTrue(indexFile.delete());
+        store = new SPVBlockStore(UNITTEST, blockStoreFile, 20, true);
+        for (StoredBlock block : blocks)
+            assertEquals(block, store.get(block.getHeader().getHash()));
+        store.close();
+        assertTrue(indexFile.exists());
+
+        // An index that is out of date with respect to the store, e.g. because an older version wrote to it.
+        byte[] staleIndex = Files.readAllBytes(indexFile.toPath());
+        store = new SPVBlockStore(UNITTEST, blockStoreFile, 20, true);
+        StoredBlock extra = createBlocks(11).get(10);
+        store.put(extra);
+        store.setChainHead(extra);
+        store.close();
+        Files.write(indexFile.toPath(), staleIndex);
+        store = new SPVBlockStore(UNITTEST, blockStoreFile, 20, true);
+        assertEquals(extra, store.get(extra.getHeader().getHash()));
+        store.close();
+
+        // Growing the store discards the index of the old capacity.
+        store = new SPVBlockStore(UNITTEST, blockStoreFile, 40, true);
+        for (StoredBlock block : blocks)
+            assertEquals(block, store.get(block.getHeader().getHash()));
+        assertEquals(extra, store.getChainHead());
+        store.close();
+    }
+
+    @Test
+    public void heightIndex() throws Exception {
+        SPVBlockStore store = new SPVBlockStore(UNITTEST, blockStoreFile);
+        Address to = LegacyAddress.fromKey(UNITTEST, new ECKey());
+        List<StoredBlock> chain = new ArrayList<>();
+        chain.add(store.getChainHead());
+        for (int i = 0; i < 10; i++) {
+            StoredBlock prev = chain.get(chain.size() - 1);
+            StoredBlock next = prev.build(prev.getHeader().createNextBlock(to).cloneAsHeader());
+            store.put(next);
+            store.setChainHead(next);
+            chain.add(next);
+        }
+        assertEquals(chain.get(7), store.getByHeight(7));
+        assertEquals(chain.subList(3, 11), store.getRange(3, 20));
+        assertNull(store.getByHeight(11));
+
+        // Re-org onto a fork off block 5.
+        Block forkHeader = chain.get(5).getHeader().createNextBlock(to, Coin.valueOf(12345)).cloneAsHeader();
+        StoredBlock fork6 = chain.get(5).build(forkHeader);
+        StoredBlock fork7 = fork6.build(fork6.getHeader().createNextBlock(to).cloneAsHeader());
+        store.put(fork6);
+        store.put(fork7);
+        store.setChainHead(fork7);
+        assertEquals(fork6, store.getByHeight(6));
+        assertEquals(chain.get(5), store.getByHeight(5));
+        assertNull(store.getByHeight(8));
+        store.close();
+
+        // After reopening, the index is filled from the stored chain head.
+        store = new SPVBlockStore(UNITTEST, blockStoreFile);
+        assertEquals(fork7, store.getByHeight(7));
+        assertEquals(chain.get(1), store.getByHeight(1));
+        store.close();
+    }
+
     @Test
     public void clear() throws Exception {
         SPVBlockStore store = new SPVBlockStore(UNITTEST, blockStoreFile);
@@ -0,0 +1,166 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bitcoinj.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.LegacyAddress;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.StoredBlock;
+import org.bitcoinj.params.UnitTestParams;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SegmentedBlockStoreTest {
+    private static final NetworkParameters UNITTEST = UnitTestParams.get();
+    private static final int SEGMENT_CAPACITY = 16;
+    private File directory;
+    private Address to;
+
+    @Before
+    public void setup() throws Exception {
+        directory = Files.createTempDirectory("segmentedblockstore").toFile();
+        to = LegacyAddress.fromKey(UNITTEST, new ECKey());
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null)
+            for (File file : files)
+                file.delete();
+        directory.delete();
+    }
+
+    private List<StoredBlock> extend(SegmentedBlockStore store, StoredBlock from, int count) throws Exception {
+        List<StoredBlock> chain = new ArrayList<>();
+        StoredBlock prev = from;
+        for (int i = 0; i < count; i++) {
+            StoredBlock next = prev.build(prev.getHeader().createNextBlock(to).cloneAsHeader());
+            store.put(next);
+            chain.add(next);
+            prev = next;
+        }
+        return chain;
+    }
+
+    @Test
+    public void basics() throws Exception {
+        SegmentedBlockStore store = new SegmentedBlockStore(UNITTEST, directory, SEGMENT_CAPACITY);
+        StoredBlock genesis = store.getChainHead();
+        assertEquals(UNITTEST.getGenesisBlock(), genesis.getHeader());
+        assertEquals(0, genesis.getHeight());
+        assertEquals(genesis, store.getByHeight(0));
+
+        StoredBlock b1 = extend(store, genesis, 1).get(0);
+        store.setChainHead(b1);
+        store.close();
+
+        store = new SegmentedBlockStore(UNITTEST, directory, SEGMENT_CAPACITY);
+        assertEquals(b1, store.get(b1.getHeader().getHash()));
+        assertEquals(b1, store.getChainHead());
+        assertEquals(b1, store.getByHeight(1));
+        assertEquals(genesis, store.getByHeight(0));
+        assertNull(store.getByHeight(2));
+        store.close();
+    }
+
+    @Test
+    public void growsAndKeepsEverything() throws Exception {
+        SegmentedBlockStore store = new SegmentedBlockStore(UNITTEST, directory, SEGMENT_CAPACITY);
+        StoredBlock genesis = store.getChainHead();
+        List<StoredBlock> chain = extend(store, genesis, 5 * SEGMENT_CAPACITY);
+        store.setChainHead(chain.get(chain.size() - 1));
+        // Putting a block again doesn't use up another record.
+        store.put(chain.get(3));
+        assertEquals(chain.size() + 1, store.getRecordCount());
+        assertEquals(6, store.getSegmentCount());
+        store.close();
+
+        store = new SegmentedBlockStore(UNITTEST, directory, SEGMENT_CAPACITY);
+        for (StoredBlock block : chain) {
+            assertEquals(block, store.get(block.getHeader().getHash()));
+            assertEquals(block, store.getByHeight(block.getHeight()));
+        }
+        assertEquals(chain.size() + 1, store.getRecordCount());
+        store.close();
+    }
+
+    @Test
+    public void reorgUpdatesHeights() throws Exception {
+        SegmentedBlockStore store = new SegmentedBlockStore(UNITTEST, directory, SEGMENT_CAPACITY);
+        StoredBlock genesis = store.getChainHead();
+        List<StoredBlock> main = extend(store, genesis, 30);
+        store.setChainHead(main.get(29));
+        // A fork that is deeper than a whole segment.
+        List<StoredBlock> fork = extend(store, main.get(4), 40);
+        StoredBlock forkHead = fork.get(39);
+        store.setChainHead(forkHead);
+        assertEquals(forkHead, store.getChainHead());
+        assertEquals(main.get(4), store.getByHeight(5));
+        for (StoredBlock block : fork)
+            assertEquals(block, store.getByHeight(block.getHeight()));
+        assertNull(store.getByHeight(forkHead.getHeight() + 1));
+        // Blocks of the losing chain are still there.
+        assertEquals(main.get(29), store.get(main.get(29).getHeader().getHash()));
+
+        // And back again.
+        store.setChainHead(main.get(29));
+        assertEquals(main.get(10), store.getByHeight(11));
+        assertNull(store.getByHeight(31));
+        store.close();
+
+        store = new SegmentedBlockStore(UNITTEST, directory, SEGMENT_CAPACITY);
+        assertEquals(main.get(10), store.getByHeight(11));
+        store.close();
+    }
+
+    @Test
+    public void rebuildsMissingSegmentIndex() throws Exception {
+        SegmentedBlockStore store = new SegmentedBlockStore(UNITTEST, directory, SEGMENT_CAPACITY);
+        List<StoredBlock> chain = extend(store, store.getChainHead(), 2 * SEGMENT_CAPACITY);
+        store.setChainHead(chain.get(chain.size() - 1));
+        File indexFile = SPVBlockStore.getIndexFile(store.getSegmentFile(1));
+        store.close();
+
+        assertTrue(indexFile.delete());
+        store = new SegmentedBlockStore(UNITTEST, directory, SEGMENT_CAPACITY);
+        for (StoredBlock block : chain)
+            assertEquals(block, store.get(block.getHeader().getHash()));
+        store.close();
+    }
+
+    @Test(expected = BlockStoreException.class)
+    public void twoStores_inSameDirectory() throws Exception {
+        new SegmentedBlockStore(UNITTEST, directory, SEGMENT_CAPACITY);
+        new SegmentedBlockStore(UNITTEST, directory, SEGMENT_CAPACITY);
+    }
+
+    @Test(expected = BlockStoreException.class)
+    public void mismatchingSegmentCapacity() throws Exception {
+        new SegmentedBlockStore(UNITTEST, directory, SEGMENT_CAPACITY).close();
+        new SegmentedBlockStore(UNITTEST, directory, SEGMENT_CAPACITY * 2);
+    }
+}
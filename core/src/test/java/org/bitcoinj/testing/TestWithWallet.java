@@ -61,6 +61,7 @@ public class TestWithWallet {
         BriefLogFormatter.init();
         Context.propagate(new Context(UNITTEST, 100, Coin.ZERO, false));
         wallet = Wallet.createDeterministic(UNITTEST, Script.ScriptType.P2PKH);
+        wallet.setBalanceVerification(true);
         myKey = wallet.freshReceiveKey();
         myAddress = wallet.freshReceiveAddress(Script.ScriptType.P2PKH);
         blockStore = new MemoryBlockStore(UNITTEST);
@@ -0,0 +1,151 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bitcoinj.wallet;
+
+import org.bitcoinj.core.*;
+import org.bitcoinj.testing.*;
+import org.junit.*;
+
+import java.util.*;
+
+import static org.bitcoinj.core.Coin.*;
+import static org.junit.Assert.*;
+
+public class BranchAndBoundCoinSelectorTest extends TestWithWallet {
+    private BranchAndBoundCoinSelector selector;
+
+    @Before
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        selector = new BranchAndBoundCoinSelector(ZERO, CENT);
+    }
+
+    private TransactionOutput output(Coin value, TransactionConfidence.ConfidenceType type) {
+        Transaction tx = new Transaction(UNITTEST);
+        tx.addOutput(value, new ECKey());
+        tx.getConfidence().setConfidenceType(type);
+        return tx.getOutput(0);
+    }
+
+    private List<TransactionOutput> outputs(Coin... values) {
+        List<TransactionOutput> outputs = new ArrayList<>();
+        for (Coin value : values)
+            outputs.add(output(value, TransactionConfidence.ConfidenceType.BUILDING));
+        return outputs;
+    }
+
+    private static Set<Coin> values(CoinSelection selection) {
+        Set<Coin> values = new HashSet<>();
+        for (TransactionOutput output : selection.gathered)
+            values.add(output.getValue());
+        return values;
+    }
+
+    @Test
+    public void exactMatch() throws Exception {
+        // Comes in any order.
+        List<TransactionOutput> candidates = outputs(COIN, valueOf(5, 0), valueOf(3, 0), valueOf(2, 0));
+        CoinSelection selection = selector.select(valueOf(4, 0), candidates);
+        assertEquals(valueOf(4, 0), selection.valueGathered);
+        assertEquals(new HashSet<>(Arrays.asList(valueOf(3, 0), COIN)), values(selection));
+    }
+
+    @Test
+    public void fewestInputs() throws Exception {
+        CoinSelection selection = selector.select(valueOf(4, 0), outputs(valueOf(2, 0), valueOf(4, 0), valueOf(2, 0)));
+        assertEquals(1, selection.gathered.size());
+        assertEquals(valueOf(4, 0), selection.valueGathered);
+    }
+
+    @Test
+    public void excessWithinCostOfChange() throws Exception {
+        selector = new BranchAndBoundCoinSelector(MILLICOIN, CENT);
+        Coin almost = COIN.add(MILLICOIN.divide(2));
+        CoinSelection selection = selector.select(COIN, outputs(valueOf(0, 70), almost, valueOf(0, 40)));
+        assertEquals(almost, selection.valueGathered);
+        assertEquals(1, selection.gathered.size());
+    }
+
+    @Test
+    public void knapsackSubset() throws Exception {
+        // Nothing adds up to the target, the closest set with enough change is taken over the large output.
+        CoinSelection selection = selector.select(valueOf(0, 65),
+                outputs(valueOf(10, 0), valueOf(0, 50), valueOf(0, 40), valueOf(0, 30)));
+        assertEquals(valueOf(0, 70), selection.valueGathered);
+        assertEquals(new HashSet<>(Arrays.asList(valueOf(0, 40), valueOf(0, 30))), values(selection));
+    }
+
+    @Test
+    public void knapsackLowestLarger() throws Exception {
+        // The small outputs aren't enough, so the smallest of the large ones is taken.
+        CoinSelection selection = selector.select(COIN,
+                outputs(valueOf(10, 0), valueOf(0, 30), valueOf(5, 0), valueOf(0, 20)));
+        assertEquals(valueOf(5, 0), selection.valueGathered);
+        assertEquals(1, selection.gathered.size());
+    }
+
+    @Test
+    public void insufficient() throws Exception {
+        CoinSelection selection = selector.select(valueOf(4, 0), outputs(COIN, valueOf(2, 0)));
+        assertEquals(valueOf(3, 0), selection.valueGathered);
+        assertEquals(2, selection.gathered.size());
+    }
+
+    @Test
+    public void onlySelectable() throws Exception {
+        List<TransactionOutput> candidates = outputs(COIN, valueOf(2, 0));
+        candidates.add(output(valueOf(3, 0), TransactionConfidence.ConfidenceType.PENDING));
+        CoinSelection selection = selector.select(valueOf(3, 0), candidates);
+        assertEquals(valueOf(3, 0), selection.valueGathered);
+        assertEquals(2, selection.gathered.size());
+    }
+
+    @Test
+    public void branchAndBound() throws Exception {
+        long[] values = { 50, 40, 30, 20, 10 };
+        // 50 + 10 and 40 + 20 are both exact. The search tries to include the larger values first, so it finds
+        // 50 + 10 first, and keeps it because the other has no less excess and no fewer values.
+        boolean[] selection = BranchAndBoundCoinSelector.selectBranchAndBound(values, 150, 60, 0);
+        assertArrayEquals(new boolean[] { true, false, false, false, true }, selection);
+        // 55 can't be hit exactly, 60 is within the cost of change.
+        assertNotNull(BranchAndBoundCoinSelector.selectBranchAndBound(values, 150, 55, 5));
+        assertNull(BranchAndBoundCoinSelector.selectBranchAndBound(values, 150, 55, 4));
+        assertNull(BranchAndBoundCoinSelector.selectBranchAndBound(values, 150, 151, 100));
+    }
+
+    @Test
+    public void completeTxFromWallet() throws Exception {
+        sendMoneyToWallet(AbstractBlockChain.NewBlockType.BEST_CHAIN, COIN);
+        sendMoneyToWallet(AbstractBlockChain.NewBlockType.BEST_CHAIN, valueOf(3, 0));
+        sendMoneyToWallet(AbstractBlockChain.NewBlockType.BEST_CHAIN, valueOf(2, 0));
+        // The wallet hands out its candidates in the order the selector wants them.
+        List<TransactionOutput> candidates = wallet.calculateAllSpendCandidates();
+        assertEquals(valueOf(3, 0), candidates.get(0).getValue());
+        assertEquals(valueOf(2, 0), candidates.get(1).getValue());
+        assertEquals(COIN, candidates.get(2).getValue());
+
+        SendRequest req = SendRequest.to(LegacyAddress.fromKey(UNITTEST, new ECKey()), valueOf(3, 0));
+        req.coinSelector = selector;
+        req.feePerKb = ZERO;
+        req.ensureMinRequiredFee = false;
+        req.shuffleOutputs = false;
+        wallet.completeTx(req);
+        // One input and no change.
+        assertEquals(1, req.tx.getInputs().size());
+        assertEquals(1, req.tx.getOutputs().size());
+        assertEquals(valueOf(3, 0), req.tx.getInput(0).getValue());
+    }
+}
@@ -23,6 +23,8 @@ import org.bitcoinj.core.Address;
 import org.bitcoinj.core.Block;
 import org.bitcoinj.core.BlockChain;
 import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.DepthTracker;
 import org.bitcoinj.core.ECKey;
 import org.bitcoinj.core.InsufficientMoneyException;
 import org.bitcoinj.core.LegacyAddress;
@@ -298,6 +300,33 @@ public class WalletTest extends TestWithWallet {
         assertEquals(valueOf(0, 50), wallet.getBalance(Wallet.BalanceType.ESTIMATED));
     }
 
+    private Transaction spendSameOutpoint(Transaction tx, Coin value) {
+        Transaction doubleSpend = new Transaction(UNITTEST);
+        doubleSpend.addInput(tx.getInput(0).getOutpoint().getHash(), tx.getInput(0).getOutpoint().getIndex(),
+                tx.getInput(0).getScriptSig());
+        doubleSpend.addOutput(value, OTHER_ADDRESS);
+        return doubleSpend;
+    }
+
+    @Test
+    public void spentOutpointIndex() throws Exception {
+        // The incoming pending spends an outpoint that has nothing to do with our keys, so a transaction spending it
+        // too is only relevant because of the index.
+        Transaction t = cleanupCommon(OTHER_ADDRESS);
+        Transaction doubleSpend = spendSameOutpoint(t, valueOf(0, 10));
+        assertTrue(wallet.isTransactionRelevant(doubleSpend));
+
+        // The double spend confirms and kills the pending. Both stay in the wallet and so in the index.
+        sendMoneyToWallet(AbstractBlockChain.NewBlockType.BEST_CHAIN, doubleSpend);
+        assertTrue(wallet.poolContainsTxHash(WalletTransaction.Pool.DEAD, t.getTxId()));
+        Transaction tripleSpend = spendSameOutpoint(t, valueOf(0, 9));
+        assertTrue(wallet.isTransactionRelevant(tripleSpend));
+
+        // Clearing the transactions clears the index.
+        wallet.clearTransactions(0);
+        assertFalse(wallet.isTransactionRelevant(tripleSpend));
+    }
+
     @Test
     public void cleanupFailsDueToSpend() throws Exception {
         Transaction t = cleanupCommon(OTHER_ADDRESS);
@@ -647,7 +676,8 @@ public class WalletTest extends TestWithWallet {
         Threading.waitForUserCode();
         assertEquals(Coin.valueOf(0, 90), wallet.getBalance());
         assertEquals(null, txn[0]);
-        assertEquals(2, confTxns.size());
+        // Only send1 changed confidence, tx1 just got deeper.
+        assertEquals(1, confTxns.size());
         assertEquals(txn[1].getTxId(), send1.getTxId());
         assertEquals(Coin.COIN, bigints[2]);
         assertEquals(Coin.valueOf(0, 90), bigints[3]);
@@ -662,7 +692,173 @@ public class WalletTest extends TestWithWallet {
         confTxns.clear();
         wallet.notifyNewBestBlock(b4.storedBlock);
         Threading.waitForUserCode();
-        assertEquals(3, confTxns.size());
+        // A new block only changes the depth, which nobody asked to hear about.
+        assertEquals(0, confTxns.size());
+        assertEquals(2, send2.getConfidence().getDepthInBlocks());
+    }
+
+    @Test
+    public void depthFollowsBlocks() throws Exception {
+        Transaction tx1 = sendMoneyToWallet(AbstractBlockChain.NewBlockType.BEST_CHAIN, COIN);
+        assertEquals(1, tx1.getConfidence().getDepthInBlocks());
+        ListenableFuture<TransactionConfidence> depthFuture = tx1.getConfidence().getDepthFuture(3);
+        final List<TransactionConfidence.Listener.ChangeReason> reasons = new ArrayList<>();
+        tx1.getConfidence().addEventListener(new TransactionConfidence.Listener() {
+            @Override
+            public void onConfidenceChanged(TransactionConfidence confidence, ChangeReason reason) {
+                reasons.add(reason);
+            }
+        });
+
+        // The transaction that appears in a block starts at depth one, the older ones are one deeper.
+        Transaction tx2 = sendMoneyToWallet(AbstractBlockChain.NewBlockType.BEST_CHAIN, CENT);
+        assertEquals(2, tx1.getConfidence().getDepthInBlocks());
+        assertEquals(1, tx2.getConfidence().getDepthInBlocks());
+        Threading.waitForUserCode();
+        assertFalse(depthFuture.isDone());
+        assertTrue(reasons.isEmpty());
+
+        // Only the subscribed depth is announced.
+        sendMoneyToWallet(AbstractBlockChain.NewBlockType.BEST_CHAIN);
+        Threading.waitForUserCode();
+        assertEquals(3, tx1.getConfidence().getDepthInBlocks());
+        assertEquals(2, tx2.getConfidence().getDepthInBlocks());
+        assertSame(tx1.getConfidence(), depthFuture.get());
+        assertEquals(Collections.singletonList(TransactionConfidence.Listener.ChangeReason.DEPTH), reasons);
+        sendMoneyToWallet(AbstractBlockChain.NewBlockType.BEST_CHAIN);
+        Threading.waitForUserCode();
+        assertEquals(1, reasons.size());
+
+        // The depth survives serialization.
+        Wallet wallet2 = roundTrip(wallet);
+        assertEquals(4, wallet2.getTransaction(tx1.getTxId()).getConfidence().getDepthInBlocks());
+    }
+
+    @Test
+    public void broadcastPeersClearingQueuedOnce() throws Exception {
+        FakeTxBuilder.BlockPair blockPair0 = createFakeBlock(blockStore, 1);
+        Transaction tx = createFakeTx(UNITTEST, COIN, myAddress);
+        FakeTxBuilder.BlockPair blockPair1 = createFakeBlock(blockStore, blockPair0.storedBlock, 2, tx);
+        wallet.receiveFromBlock(tx, blockPair1.storedBlock, AbstractBlockChain.NewBlockType.BEST_CHAIN, 0);
+        wallet.notifyNewBestBlock(blockPair1.storedBlock);
+        DepthTracker tracker = tx.getConfidence().getDepthTracker();
+        assertEquals(1, tracker.getPendingActionCount());
+
+        // A re-org puts the transaction into another block, which doesn't queue the clearing again.
+        FakeTxBuilder.BlockPair blockPair2 = createFakeBlock(blockStore, blockPair0.storedBlock, 2, tx);
+        wallet.receiveFromBlock(tx, blockPair2.storedBlock, AbstractBlockChain.NewBlockType.SIDE_CHAIN, 0);
+        wallet.reorganize(blockPair0.storedBlock, Lists.newArrayList(blockPair1.storedBlock),
+                Lists.newArrayList(blockPair2.storedBlock));
+        assertEquals(ConfidenceType.BUILDING, tx.getConfidence().getConfidenceType());
+        assertEquals(1, tracker.getPendingActionCount());
+
+        // Once the transaction has left the chain the clearing is dropped, so it is queued again when it comes back.
+        FakeTxBuilder.BlockPair blockPair3 = createFakeBlock(blockStore, blockPair0.storedBlock, 2);
+        FakeTxBuilder.BlockPair blockPair4 = createFakeBlock(blockStore, blockPair3.storedBlock, 3);
+        wallet.reorganize(blockPair0.storedBlock, Lists.newArrayList(blockPair2.storedBlock),
+                Lists.newArrayList(blockPair3.storedBlock, blockPair4.storedBlock));
+        assertEquals(ConfidenceType.PENDING, tx.getConfidence().getConfidenceType());
+        wallet.lock.lock();
+        try {
+            for (int i = 0; i <= Context.get().getEventHorizon(); i++)
+                tracker.addBlock();
+        } finally {
+            wallet.lock.unlock();
+        }
+        assertEquals(0, tracker.getPendingActionCount());
+        FakeTxBuilder.BlockPair blockPair5 = createFakeBlock(blockStore, blockPair4.storedBlock, 4, tx);
+        wallet.receiveFromBlock(tx, blockPair5.storedBlock, AbstractBlockChain.NewBlockType.BEST_CHAIN, 0);
+        wallet.notifyNewBestBlock(blockPair5.storedBlock);
+        assertEquals(ConfidenceType.BUILDING, tx.getConfidence().getConfidenceType());
+        assertEquals(1, tracker.getPendingActionCount());
+
+        // Loading a transaction that is already past the event horizon clears the peers right away.
+        tx.getConfidence().setDepthInBlocks(Context.get().getEventHorizon() + 1);
+        tx.getConfidence().markBroadcastBy(new PeerAddress(UNITTEST, InetAddress.getByAddress(new byte[]{1,2,3,4})));
+        Wallet wallet2 = roundTrip(wallet);
+        TransactionConfidence confidence2 = wallet2.getTransaction(tx.getTxId()).getConfidence();
+        assertEquals(0, confidence2.getDepthTracker().getPendingActionCount());
+        assertEquals(0, confidence2.numBroadcastPeers());
+    }
+
+    @Test
+    public void balanceTotals() throws Exception {
+        // Without verification the totals are read as they are, check they follow changes the wallet isn't told about.
+        wallet.setBalanceVerification(false);
+        sendMoneyToWallet(AbstractBlockChain.NewBlockType.BEST_CHAIN, COIN);
+        assertEquals(COIN, wallet.getBalance());
+        assertEquals(COIN, wallet.getBalance(BalanceType.AVAILABLE_SPENDABLE));
+        Transaction send = wallet.createSend(OTHER_ADDRESS, CENT);
+        wallet.commitTx(send);
+        assertEquals(ZERO, wallet.getBalance());
+        assertEquals(COIN.subtract(CENT), wallet.getBalance(BalanceType.ESTIMATED));
+
+        // The change becomes available once the network has seen the spend.
+        send.getConfidence().markBroadcastBy(new PeerAddress(UNITTEST, InetAddress.getByAddress(new byte[]{1,2,3,4})));
+        send.getConfidence().markBroadcastBy(new PeerAddress(UNITTEST, InetAddress.getByAddress(new byte[]{10,2,3,4})));
+        assertEquals(COIN.subtract(CENT), wallet.getBalance());
+        send.getConfidence().setSource(TransactionConfidence.Source.NETWORK);
+        assertEquals(ZERO, wallet.getBalance());
+        sendMoneyToWallet(AbstractBlockChain.NewBlockType.BEST_CHAIN, send);
+        assertEquals(COIN.subtract(CENT), wallet.getBalance());
+
+        // Keys that let us sign for watched outputs count from then on.
+        ECKey watchedKey = new ECKey();
+        wallet.addWatchedAddress(LegacyAddress.fromKey(UNITTEST, watchedKey));
+        sendMoneyToWallet(AbstractBlockChain.NewBlockType.BEST_CHAIN, CENT, LegacyAddress.fromKey(UNITTEST, watchedKey));
+        assertEquals(COIN, wallet.getBalance());
+        assertEquals(COIN.subtract(CENT), wallet.getBalance(BalanceType.AVAILABLE_SPENDABLE));
+        wallet.importKey(watchedKey);
+        assertEquals(COIN, wallet.getBalance(BalanceType.AVAILABLE_SPENDABLE));
+    }
+
+    @Test
+    public void queriesDontWaitForTheLock() throws Exception {
+        wallet.setBalanceVerification(false);
+        Transaction tx1 = sendMoneyToWallet(AbstractBlockChain.NewBlockType.BEST_CHAIN, COIN);
+        assertEquals(1, wallet.getTransactions(true).size());
+        final Transaction tx2 = createFakeTx(UNITTEST, CENT, myAddress);
+        final CountDownLatch received = new CountDownLatch(1);
+        final CountDownLatch queried = new CountDownLatch(1);
+        final AtomicBoolean timedOut = new AtomicBoolean();
+        // Another thread receives a transaction and keeps the lock, like it would while processing a block.
+        Thread processor = new Thread() {
+            @Override
+            public void run() {
+                Context.propagate(wallet.getContext());
+                wallet.lock.lock();
+                try {
+                    wallet.receivePending(tx2, null);
+                    received.countDown();
+                    timedOut.set(!queried.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                } finally {
+                    wallet.lock.unlock();
+                }
+            }
+        };
+        processor.start();
+        assertTrue(received.await(10, TimeUnit.SECONDS));
+        // The pools are as of the last query, the balance totals as of the last event.
+        assertSame(tx1, wallet.getTransaction(tx1.getTxId()));
+        assertNull(wallet.getTransaction(tx2.getTxId()));
+        assertEquals(1, wallet.getTransactions(true).size());
+        assertTrue(wallet.getPendingTransactions().isEmpty());
+        assertEquals(1, wallet.getPoolSize(WalletTransaction.Pool.UNSPENT));
+        assertEquals(1, wallet.getUnspents().size());
+        assertEquals(1, wallet.calculateAllSpendCandidates().size());
+        assertEquals(COIN, wallet.getBalance());
+        assertEquals(COIN.add(CENT), wallet.getBalance(BalanceType.ESTIMATED));
+        queried.countDown();
+        processor.join();
+        assertFalse(timedOut.get());
+        // Once the lock is free, the pools are copied again.
+        assertSame(tx2, wallet.getTransaction(tx2.getTxId()));
+        assertEquals(2, wallet.getTransactions(true).size());
+        assertEquals(1, wallet.getPendingTransactions().size());
+        assertEquals(2, wallet.getUnspents().size());
+        assertEquals(2, wallet.calculateAllSpendCandidates().size());
     }
 
     @Test